@@ -0,0 +1,79 @@
+package uk.gov.ida.verifyserviceprovider.benchmarks;
+
+import org.opensaml.security.credential.BasicCredential;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.crypto.KeySupport;
+import uk.gov.ida.saml.core.test.TestCredentialFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * Loads the development keys and certificates in {@code test-keys-and-certs}.
+ *
+ * The VSP signing key stands in for the hub when signing responses, and the MSA signing key
+ * stands in for whichever party (MSA, IDP or country) signs the assertions.
+ */
+public class BenchmarkKeys {
+
+    private static final Path KEYS_AND_CERTS_DIR = Paths.get(System.getProperty("verify.keysAndCertsDir", "test-keys-and-certs"));
+
+    public static final String HUB_SIGNING = "vsp-signing";
+    public static final String ASSERTION_SIGNING = "msa-signing";
+    public static final String ENCRYPTION = "vsp-encryption";
+
+    public static Credential signingCredential(String name, String entityId) {
+        Credential credential = credentialFactory(name).getSigningCredential();
+        ((BasicCredential) credential).setEntityId(entityId);
+        return credential;
+    }
+
+    public static Credential encryptingCredential(String name) {
+        return credentialFactory(name).getEncryptingCredential();
+    }
+
+    public static KeyPair keyPair(String name) {
+        try {
+            PrivateKey privateKey = KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(readPrivateKey(name)));
+            return new KeyPair(KeySupport.derivePublicKey(privateKey), privateKey);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static TestCredentialFactory credentialFactory(String name) {
+        return new TestCredentialFactory(readCertificate(name), Base64.getEncoder().encodeToString(readPrivateKey(name)));
+    }
+
+    private static String readCertificate(String name) {
+        return read(name + ".crt")
+            .replace("-----BEGIN CERTIFICATE-----", "")
+            .replace("-----END CERTIFICATE-----", "")
+            .replaceAll("\\s", "");
+    }
+
+    private static byte[] readPrivateKey(String name) {
+        try {
+            return Files.readAllBytes(KEYS_AND_CERTS_DIR.resolve(name + ".pk8"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String read(String fileName) {
+        try {
+            return new String(Files.readAllBytes(KEYS_AND_CERTS_DIR.resolve(fileName)), "UTF-8");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package uk.gov.ida.verifyserviceprovider.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import org.opensaml.security.credential.impl.CollectionCredentialResolver;
+import org.opensaml.xmlsec.config.DefaultSecurityConfigurationBootstrap;
+import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
+import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.saml.security.AssertionDecrypter;
+import uk.gov.ida.saml.security.MetadataBackedSignatureValidator;
+import uk.gov.ida.saml.security.SamlMessageSignatureValidator;
+import uk.gov.ida.saml.security.validators.ValidatedResponse;
+import uk.gov.ida.saml.security.validators.signature.SamlResponseSignatureValidator;
+import uk.gov.ida.shared.utils.manifest.ManifestReader;
+import uk.gov.ida.verifyserviceprovider.configuration.CryptoProviderConfiguration;
+import uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance;
+import uk.gov.ida.verifyserviceprovider.factories.EncrypterFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.ResponseFactory;
+import uk.gov.ida.verifyserviceprovider.saml.JcaProviders;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+import static uk.gov.ida.saml.core.test.TestEntityIds.HUB_ENTITY_ID;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.ENCRYPTION;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.HUB_SIGNING;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.encryptingCredential;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.keyPair;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.signingCredential;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.ResponseFixtures.SERVICE_ENTITY_ID;
+
+/**
+ * Compares the JCA providers that can be selected with the cryptoProviders configuration on the three
+ * operations they are used for: signing an AuthnRequest, verifying a response's signature, and decrypting
+ * its assertion. "default" leaves provider selection to the JVM, which uses SunRsaSign for RSA signatures,
+ * SUN for digests and SunJCE for decryption.
+ *
+ * JMH runs each provider in its own fork, so the process-wide signature provider never leaks between runs.
+ * Other providers on the classpath can be compared with, for example, {@code -p provider=default,SunPKCS11-NSS}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoProviderBenchmark {
+
+    private static final String DEFAULT_PROVIDER = "default";
+
+    @Param({DEFAULT_PROVIDER, "BC"})
+    public String provider;
+
+    @Param({"org.bouncycastle.jce.provider.BouncyCastleProvider"})
+    public String providerClass;
+
+    private AuthnRequestFactory authnRequestFactory;
+    private SamlResponseSignatureValidator responseSignatureValidator;
+    private AssertionDecrypter assertionDecrypter;
+
+    private Response parsedResponse;
+    private ValidatedResponse validatedResponse;
+
+    @Setup(Level.Trial)
+    public void setUpProviders() {
+        IdaSamlBootstrap.bootstrap();
+        String selectedProvider = DEFAULT_PROVIDER.equals(provider) ? null : provider;
+        CryptoProviderConfiguration cryptoProviders = new CryptoProviderConfiguration(singletonList(providerClass), selectedProvider, selectedProvider);
+        JcaProviders.configure(cryptoProviders);
+
+        authnRequestFactory = new AuthnRequestFactory(
+            URI.create("http://benchmark-hub-sso-location"),
+            keyPair(HUB_SIGNING),
+            new ManifestReader(),
+            new EncrypterFactory(entityId -> encryptingCredential(ENCRYPTION), HUB_ENTITY_ID)
+        );
+        responseSignatureValidator = new SamlResponseSignatureValidator(new SamlMessageSignatureValidator(
+            MetadataBackedSignatureValidator.withoutCertificateChainValidation(new ExplicitKeySignatureTrustEngine(
+                new CollectionCredentialResolver(singletonList(signingCredential(HUB_SIGNING, HUB_ENTITY_ID))),
+                DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver()
+            ))
+        ));
+        assertionDecrypter = ResponseFactory.builder(singletonList(keyPair(ENCRYPTION)))
+            .withCryptoProviderConfiguration(cryptoProviders)
+            .build()
+            .createAssertionDecrypter();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpFixtures() {
+        parsedResponse = ResponseFactory.createStringToResponseTransformer().apply(ResponseFixtures.aMatchingResponse());
+        validatedResponse = responseSignatureValidator.validate(parsedResponse, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+    }
+
+    @Benchmark
+    public AuthnRequest signAuthnRequest() {
+        return authnRequestFactory.build(LevelOfAssurance.LEVEL_2, SERVICE_ENTITY_ID);
+    }
+
+    @Benchmark
+    public ValidatedResponse verifyResponseSignature() {
+        return responseSignatureValidator.validate(parsedResponse, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+    }
+
+    @Benchmark
+    public List<Assertion> decryptAssertion() {
+        return assertionDecrypter.decryptAssertions(validatedResponse);
+    }
+}
@@ -0,0 +1,40 @@
+package uk.gov.ida.verifyserviceprovider.benchmarks;
+
+import uk.gov.ida.saml.metadata.EidasMetadataResolverRepository;
+import uk.gov.ida.verifyserviceprovider.dto.TranslatedNonMatchingResponseBody;
+import uk.gov.ida.verifyserviceprovider.services.AssertionService;
+import uk.gov.ida.verifyserviceprovider.services.ResponseService;
+
+import java.util.Optional;
+
+import static java.util.Collections.singletonList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.ASSERTION_SIGNING;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.signingCredential;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.ResponseFixtures.COUNTRY_ENTITY_ID;
+
+public class EidasResponseTranslationBenchmark extends ResponseTranslationBenchmark<TranslatedNonMatchingResponseBody> {
+
+    @Override
+    protected AssertionService<TranslatedNonMatchingResponseBody> createAssertionService() {
+        // The repository is a lookup over already-resolved country metadata; stubbing it keeps the
+        // trust anchor and metadata HTTP fetches out of the benchmark without changing the crypto work.
+        EidasMetadataResolverRepository metadataResolverRepository = mock(EidasMetadataResolverRepository.class);
+        when(metadataResolverRepository.getResolverEntityIds()).thenReturn(singletonList(COUNTRY_ENTITY_ID));
+        when(metadataResolverRepository.getSignatureTrustEngine(COUNTRY_ENTITY_ID))
+            .thenReturn(Optional.of(trustEngineFor(signingCredential(ASSERTION_SIGNING, COUNTRY_ENTITY_ID))));
+
+        return responseFactory.createEidasAssertionService(dateTimeComparator, metadataResolverRepository);
+    }
+
+    @Override
+    protected ResponseService<TranslatedNonMatchingResponseBody> createResponseService(AssertionService<TranslatedNonMatchingResponseBody> assertionService) {
+        return responseFactory.createNonMatchingResponseService(hubSignatureTrustEngine, assertionService, dateTimeComparator);
+    }
+
+    @Override
+    protected String createSamlResponse() {
+        return ResponseFixtures.anEidasResponse();
+    }
+}
@@ -0,0 +1,87 @@
+package uk.gov.ida.verifyserviceprovider.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.shared.utils.manifest.ManifestReader;
+import uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance;
+import uk.gov.ida.verifyserviceprovider.dto.RequestGenerationBody;
+import uk.gov.ida.verifyserviceprovider.factories.EncrypterFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestPool;
+import uk.gov.ida.verifyserviceprovider.resources.GenerateAuthnRequestResource;
+import uk.gov.ida.verifyserviceprovider.services.EntityIdService;
+import uk.gov.ida.verifyserviceprovider.services.RequestTokenService;
+import uk.gov.ida.verifyserviceprovider.utils.DefaultObjectMapper;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+import static uk.gov.ida.saml.core.test.TestEntityIds.HUB_ENTITY_ID;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.ENCRYPTION;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.HUB_SIGNING;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.encryptingCredential;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.keyPair;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.ResponseFixtures.SERVICE_ENTITY_ID;
+
+/**
+ * Measures {@code /generate-request} from the parsed request body to the serialized response body, as it
+ * runs on the request threads, and building the signed AuthnRequest on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class GenerateRequestBenchmark {
+
+    private static final URI SSO_LOCATION = URI.create("http://benchmark-hub-sso-location");
+
+    private final RequestGenerationBody requestGenerationBody = new RequestGenerationBody(LevelOfAssurance.LEVEL_2, SERVICE_ENTITY_ID);
+
+    private AuthnRequestFactory authnRequestFactory;
+    private GenerateAuthnRequestResource generateAuthnRequestResource;
+
+    @Setup
+    public void setUp() {
+        IdaSamlBootstrap.bootstrap();
+        authnRequestFactory = new AuthnRequestFactory(
+            SSO_LOCATION,
+            keyPair(HUB_SIGNING),
+            new ManifestReader(),
+            new EncrypterFactory(entityId -> encryptingCredential(ENCRYPTION), HUB_ENTITY_ID)
+        );
+        generateAuthnRequestResource = new GenerateAuthnRequestResource(
+            AuthnRequestPool.disabled(authnRequestFactory),
+            SSO_LOCATION,
+            new EntityIdService(singletonList(SERVICE_ENTITY_ID)),
+            RequestTokenService.disabled()
+        );
+    }
+
+    @Benchmark
+    public AuthnRequest buildAuthnRequest() {
+        return authnRequestFactory.build(LevelOfAssurance.LEVEL_2, SERVICE_ENTITY_ID);
+    }
+
+    @Benchmark
+    public String generateRequest() throws JsonProcessingException {
+        return DefaultObjectMapper.OBJECT_MAPPER.writeValueAsString(
+            generateAuthnRequestResource.generateAuthnRequest(requestGenerationBody).getEntity()
+        );
+    }
+}
@@ -0,0 +1,37 @@
+package uk.gov.ida.verifyserviceprovider.benchmarks;
+
+import uk.gov.ida.verifyserviceprovider.dto.TranslatedNonMatchingResponseBody;
+import uk.gov.ida.verifyserviceprovider.factories.saml.SignatureValidatorFactory;
+import uk.gov.ida.verifyserviceprovider.services.AssertionService;
+import uk.gov.ida.verifyserviceprovider.services.ResponseService;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.ASSERTION_SIGNING;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.signingCredential;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.ResponseFixtures.HASHING_ENTITY_ID;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.ResponseFixtures.IDP_ENTITY_ID;
+
+public class IdpResponseTranslationBenchmark extends ResponseTranslationBenchmark<TranslatedNonMatchingResponseBody> {
+
+    @Override
+    protected AssertionService<TranslatedNonMatchingResponseBody> createAssertionService() {
+        return responseFactory.createIdpAssertionService(
+            trustEngineFor(signingCredential(ASSERTION_SIGNING, IDP_ENTITY_ID)),
+            new SignatureValidatorFactory(),
+            dateTimeComparator,
+            HASHING_ENTITY_ID,
+            ForkJoinPool.commonPool()
+        );
+    }
+
+    @Override
+    protected ResponseService<TranslatedNonMatchingResponseBody> createResponseService(AssertionService<TranslatedNonMatchingResponseBody> assertionService) {
+        return responseFactory.createNonMatchingResponseService(hubSignatureTrustEngine, assertionService, dateTimeComparator);
+    }
+
+    @Override
+    protected String createSamlResponse() {
+        return ResponseFixtures.anIdpResponse();
+    }
+}
@@ -0,0 +1,32 @@
+package uk.gov.ida.verifyserviceprovider.benchmarks;
+
+import uk.gov.ida.verifyserviceprovider.dto.TranslatedResponseBody;
+import uk.gov.ida.verifyserviceprovider.factories.saml.SignatureValidatorFactory;
+import uk.gov.ida.verifyserviceprovider.services.AssertionService;
+import uk.gov.ida.verifyserviceprovider.services.ResponseService;
+
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.ASSERTION_SIGNING;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.signingCredential;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.ResponseFixtures.MSA_ENTITY_ID;
+
+public class MatchingResponseTranslationBenchmark extends ResponseTranslationBenchmark<TranslatedResponseBody> {
+
+    @Override
+    protected AssertionService<TranslatedResponseBody> createAssertionService() {
+        return responseFactory.createMsaAssertionService(
+            trustEngineFor(signingCredential(ASSERTION_SIGNING, MSA_ENTITY_ID)),
+            new SignatureValidatorFactory(),
+            dateTimeComparator
+        );
+    }
+
+    @Override
+    protected ResponseService<TranslatedResponseBody> createResponseService(AssertionService<TranslatedResponseBody> assertionService) {
+        return responseFactory.createMatchingResponseService(hubSignatureTrustEngine, assertionService, dateTimeComparator);
+    }
+
+    @Override
+    protected String createSamlResponse() {
+        return ResponseFixtures.aMatchingResponse();
+    }
+}
@@ -0,0 +1,140 @@
+package uk.gov.ida.verifyserviceprovider.benchmarks;
+
+import org.joda.time.DateTime;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.saml2.core.AuthnStatement;
+import org.opensaml.saml.saml2.core.Conditions;
+import org.opensaml.saml.saml2.core.EncryptedAssertion;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.core.Subject;
+import org.opensaml.xmlsec.signature.Signature;
+import uk.gov.ida.saml.core.test.builders.AssertionBuilder;
+import uk.gov.ida.saml.core.test.builders.ResponseBuilder;
+import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
+
+import static uk.gov.ida.saml.core.extensions.IdaAuthnContext.LEVEL_2_AUTHN_CTX;
+import static uk.gov.ida.saml.core.test.TestEntityIds.HUB_ENTITY_ID;
+import static uk.gov.ida.saml.core.test.builders.AssertionBuilder.anAssertion;
+import static uk.gov.ida.saml.core.test.builders.AttributeStatementBuilder.anAttributeStatement;
+import static uk.gov.ida.saml.core.test.builders.AttributeStatementBuilder.anEidasAttributeStatement;
+import static uk.gov.ida.saml.core.test.builders.AudienceRestrictionBuilder.anAudienceRestriction;
+import static uk.gov.ida.saml.core.test.builders.AuthnContextBuilder.anAuthnContext;
+import static uk.gov.ida.saml.core.test.builders.AuthnContextClassRefBuilder.anAuthnContextClassRef;
+import static uk.gov.ida.saml.core.test.builders.AuthnStatementBuilder.anAuthnStatement;
+import static uk.gov.ida.saml.core.test.builders.AuthnStatementBuilder.anEidasAuthnStatement;
+import static uk.gov.ida.saml.core.test.builders.ConditionsBuilder.aConditions;
+import static uk.gov.ida.saml.core.test.builders.IPAddressAttributeBuilder.anIPAddress;
+import static uk.gov.ida.saml.core.test.builders.IssuerBuilder.anIssuer;
+import static uk.gov.ida.saml.core.test.builders.NameIdBuilder.aNameId;
+import static uk.gov.ida.saml.core.test.builders.ResponseBuilder.aResponse;
+import static uk.gov.ida.saml.core.test.builders.SignatureBuilder.aSignature;
+import static uk.gov.ida.saml.core.test.builders.SubjectBuilder.aSubject;
+import static uk.gov.ida.saml.core.test.builders.SubjectConfirmationBuilder.aSubjectConfirmation;
+import static uk.gov.ida.saml.core.test.builders.SubjectConfirmationDataBuilder.aSubjectConfirmationData;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.ASSERTION_SIGNING;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.ENCRYPTION;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.HUB_SIGNING;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.encryptingCredential;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.signingCredential;
+
+/**
+ * Builds signed and encrypted hub responses of the shapes the VSP receives on each of its translation paths.
+ */
+public class ResponseFixtures {
+
+    public static final String REQUEST_ID = "_benchmark-request-id";
+    public static final String SERVICE_ENTITY_ID = "http://benchmark-service-entity-id";
+    public static final String HASHING_ENTITY_ID = SERVICE_ENTITY_ID;
+    public static final String MSA_ENTITY_ID = "http://benchmark-msa-entity-id";
+    public static final String IDP_ENTITY_ID = "http://benchmark-idp-entity-id";
+    public static final String COUNTRY_ENTITY_ID = "http://benchmark-country-entity-id";
+
+    private static final XmlObjectToBase64EncodedStringTransformer<XMLObject> TO_BASE64 = new XmlObjectToBase64EncodedStringTransformer<>();
+
+    public static String aMatchingResponse() {
+        return aSignedResponseContaining(
+            aSignedAssertionFrom(MSA_ENTITY_ID)
+                .addAuthnStatement(aLevelTwoAuthnStatement())
+                .buildWithEncrypterCredential(encryptingCredential(ENCRYPTION))
+        );
+    }
+
+    public static String anIdpResponse() {
+        return aSignedResponseContaining(
+            aSignedAssertionFrom(IDP_ENTITY_ID)
+                .addAuthnStatement(aLevelTwoAuthnStatement())
+                .addAttributeStatement(anAttributeStatement().addAttribute(anIPAddress().build()).build())
+                .buildWithEncrypterCredential(encryptingCredential(ENCRYPTION)),
+            aSignedAssertionFrom(IDP_ENTITY_ID)
+                .addAttributeStatement(anAttributeStatement().build())
+                .buildWithEncrypterCredential(encryptingCredential(ENCRYPTION))
+        );
+    }
+
+    public static String anEidasResponse() {
+        return aSignedResponseContaining(
+            aSignedAssertionFrom(COUNTRY_ENTITY_ID)
+                .addAuthnStatement(anEidasAuthnStatement().build())
+                .addAttributeStatement(anEidasAttributeStatement().build())
+                .buildWithEncrypterCredential(encryptingCredential(ENCRYPTION))
+        );
+    }
+
+    private static String aSignedResponseContaining(EncryptedAssertion... encryptedAssertions) {
+        try {
+            ResponseBuilder responseBuilder = aResponse()
+                .withInResponseTo(REQUEST_ID)
+                .withIssuer(anIssuer().withIssuerId(HUB_ENTITY_ID).build())
+                .withIssueInstant(DateTime.now())
+                .withNoDefaultAssertion()
+                .withSigningCredential(signingCredential(HUB_SIGNING, HUB_ENTITY_ID));
+            for (EncryptedAssertion encryptedAssertion : encryptedAssertions) {
+                responseBuilder.addEncryptedAssertion(encryptedAssertion);
+            }
+            Response response = responseBuilder.build();
+            return TO_BASE64.apply(response);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not build benchmark response", e);
+        }
+    }
+
+    private static AssertionBuilder aSignedAssertionFrom(String issuerId) {
+        Signature signature = aSignature()
+            .withSigningCredential(signingCredential(ASSERTION_SIGNING, issuerId))
+            .build();
+        return anAssertion()
+            .withIssuer(anIssuer().withIssuerId(issuerId).build())
+            .withSubject(aSubjectFor(REQUEST_ID))
+            .withConditions(aConditionsFor(SERVICE_ENTITY_ID))
+            .withSignature(signature);
+    }
+
+    private static AuthnStatement aLevelTwoAuthnStatement() {
+        return anAuthnStatement()
+            .withAuthnContext(anAuthnContext()
+                .withAuthnContextClassRef(anAuthnContextClassRef()
+                    .withAuthnContextClasRefValue(LEVEL_2_AUTHN_CTX)
+                    .build())
+                .build())
+            .build();
+    }
+
+    private static Subject aSubjectFor(String inResponseTo) {
+        return aSubject()
+            .withNameId(aNameId().withValue("benchmark-pid").build())
+            .withSubjectConfirmation(aSubjectConfirmation()
+                .withSubjectConfirmationData(aSubjectConfirmationData()
+                    .withInResponseTo(inResponseTo)
+                    .withNotOnOrAfter(DateTime.now().plusHours(1))
+                    .build())
+                .build())
+            .build();
+    }
+
+    private static Conditions aConditionsFor(String audienceId) {
+        return aConditions()
+            .withoutDefaultAudienceRestriction()
+            .addAudienceRestriction(anAudienceRestriction().withAudienceId(audienceId).build())
+            .build();
+    }
+}
@@ -0,0 +1,144 @@
+package uk.gov.ida.verifyserviceprovider.benchmarks;
+
+import org.joda.time.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.impl.CollectionCredentialResolver;
+import org.opensaml.xmlsec.config.DefaultSecurityConfigurationBootstrap;
+import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
+import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.saml.deserializers.StringToOpenSamlObjectTransformer;
+import uk.gov.ida.saml.security.AssertionDecrypter;
+import uk.gov.ida.saml.security.MetadataBackedSignatureValidator;
+import uk.gov.ida.saml.security.SamlMessageSignatureValidator;
+import uk.gov.ida.saml.security.validators.ValidatedResponse;
+import uk.gov.ida.saml.security.validators.signature.SamlResponseSignatureValidator;
+import uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance;
+import uk.gov.ida.verifyserviceprovider.factories.saml.ResponseFactory;
+import uk.gov.ida.verifyserviceprovider.services.AssertionService;
+import uk.gov.ida.verifyserviceprovider.services.ResponseService;
+import uk.gov.ida.verifyserviceprovider.utils.DateTimeComparator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+import static uk.gov.ida.saml.core.test.TestEntityIds.HUB_ENTITY_ID;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.ENCRYPTION;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.HUB_SIGNING;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.keyPair;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.BenchmarkKeys.signingCredential;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.ResponseFixtures.REQUEST_ID;
+import static uk.gov.ida.verifyserviceprovider.benchmarks.ResponseFixtures.SERVICE_ENTITY_ID;
+
+/**
+ * Measures each stage of {@link ResponseService#convertTranslatedResponseBody} in isolation, and the whole
+ * pipeline end to end. Subclasses supply the assertion service and the response fixture for one translation path.
+ *
+ * Every stage is reported both as throughput and as a sampled latency distribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class ResponseTranslationBenchmark<T> {
+
+    protected final DateTimeComparator dateTimeComparator = new DateTimeComparator(Duration.standardSeconds(30));
+
+    protected ResponseFactory responseFactory;
+    protected ExplicitKeySignatureTrustEngine hubSignatureTrustEngine;
+
+    private StringToOpenSamlObjectTransformer<Response> stringToResponseTransformer;
+    private SamlResponseSignatureValidator responseSignatureValidator;
+    private AssertionDecrypter assertionDecrypter;
+    private AssertionService<T> assertionService;
+    private ResponseService<T> responseService;
+
+    private String samlResponse;
+    private Response parsedResponse;
+    private ValidatedResponse validatedResponse;
+    private List<Assertion> decryptedAssertions;
+
+    protected abstract AssertionService<T> createAssertionService();
+
+    protected abstract ResponseService<T> createResponseService(AssertionService<T> assertionService);
+
+    protected abstract String createSamlResponse();
+
+    @Setup(Level.Trial)
+    public void setUpPipeline() {
+        IdaSamlBootstrap.bootstrap();
+        responseFactory = new ResponseFactory(singletonList(keyPair(ENCRYPTION)));
+        hubSignatureTrustEngine = trustEngineFor(signingCredential(HUB_SIGNING, HUB_ENTITY_ID));
+
+        stringToResponseTransformer = ResponseFactory.createStringToResponseTransformer();
+        responseSignatureValidator = new SamlResponseSignatureValidator(new SamlMessageSignatureValidator(
+            MetadataBackedSignatureValidator.withoutCertificateChainValidation(hubSignatureTrustEngine)
+        ));
+        assertionDecrypter = responseFactory.createAssertionDecrypter();
+        assertionService = createAssertionService();
+        responseService = createResponseService(assertionService);
+    }
+
+    /**
+     * Fixtures are rebuilt for every iteration so that their IssueInstant never ages past the
+     * validators' limits, however long the run is configured to take.
+     */
+    @Setup(Level.Iteration)
+    public void setUpFixtures() {
+        samlResponse = createSamlResponse();
+        parsedResponse = stringToResponseTransformer.apply(samlResponse);
+        validatedResponse = responseSignatureValidator.validate(parsedResponse, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+        decryptedAssertions = assertionDecrypter.decryptAssertions(validatedResponse);
+
+        // Fail fast on a broken fixture rather than benchmarking the exception path
+        responseService.convertTranslatedResponseBody(samlResponse, REQUEST_ID, LevelOfAssurance.LEVEL_2, SERVICE_ENTITY_ID);
+    }
+
+    @Benchmark
+    public Response parseResponse() {
+        return stringToResponseTransformer.apply(samlResponse);
+    }
+
+    @Benchmark
+    public ValidatedResponse validateResponseSignature() {
+        return responseSignatureValidator.validate(parsedResponse, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+    }
+
+    @Benchmark
+    public List<Assertion> decryptAssertions() {
+        return assertionDecrypter.decryptAssertions(validatedResponse);
+    }
+
+    @Benchmark
+    public T translateAssertions() {
+        return assertionService.translateSuccessResponse(decryptedAssertions, REQUEST_ID, LevelOfAssurance.LEVEL_2, SERVICE_ENTITY_ID);
+    }
+
+    @Benchmark
+    public T convertTranslatedResponseBody() {
+        return responseService.convertTranslatedResponseBody(samlResponse, REQUEST_ID, LevelOfAssurance.LEVEL_2, SERVICE_ENTITY_ID);
+    }
+
+    protected static ExplicitKeySignatureTrustEngine trustEngineFor(Credential credential) {
+        return new ExplicitKeySignatureTrustEngine(
+            new CollectionCredentialResolver(singletonList(credential)),
+            DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver()
+        );
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.ida.verifyserviceprovider.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.saml.saml2.core.Response;
+import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.saml.deserializers.OpenSamlXMLObjectUnmarshaller;
+import uk.gov.ida.saml.deserializers.parser.SamlObjectParser;
+import uk.gov.ida.verifyserviceprovider.saml.HardenedDocumentBuilderPool;
+import uk.gov.ida.verifyserviceprovider.saml.PooledSamlObjectParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares unmarshalling a decoded response with the library's default parser against
+ * the pooled, pre-configured parser used by the VSP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class SamlParserBenchmark {
+
+    private OpenSamlXMLObjectUnmarshaller<Response> defaultUnmarshaller;
+    private OpenSamlXMLObjectUnmarshaller<Response> pooledUnmarshaller;
+    private String responseXml;
+
+    @Setup
+    public void setUp() {
+        IdaSamlBootstrap.bootstrap();
+        defaultUnmarshaller = new OpenSamlXMLObjectUnmarshaller<>(new SamlObjectParser());
+        pooledUnmarshaller = new OpenSamlXMLObjectUnmarshaller<>(new PooledSamlObjectParser(new HardenedDocumentBuilderPool()));
+        responseXml = new String(Base64.getDecoder().decode(ResponseFixtures.anIdpResponse()), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Response defaultParser() {
+        return defaultUnmarshaller.fromString(responseXml);
+    }
+
+    @Benchmark
+    public Response pooledParser() {
+        return pooledUnmarshaller.fromString(responseXml);
+    }
+}
@@ -1,24 +1,63 @@
 package uk.gov.ida.verifyserviceprovider;
 
+import com.codahale.metrics.health.HealthCheck;
 import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
 import io.dropwizard.Application;
+import io.dropwizard.ConfiguredBundle;
 import io.dropwizard.client.JerseyClientBuilder;
+import io.dropwizard.client.JerseyClientConfiguration;
 import io.dropwizard.configuration.EnvironmentVariableSubstitutor;
 import io.dropwizard.configuration.SubstitutingSourceProvider;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
 import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.saml.metadata.MetadataConfiguration;
 import uk.gov.ida.saml.metadata.bundle.MetadataResolverBundle;
+import uk.gov.ida.verifyserviceprovider.cache.MappedReplayCache;
+import uk.gov.ida.verifyserviceprovider.cache.ReplayCache;
+import uk.gov.ida.verifyserviceprovider.configuration.AuthnRequestPoolConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.BatchTranslationConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.CryptoExecutorConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.EidasMetadataRefreshConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.MetadataIndexConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.MetadataMonitoringConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.ReplayCacheConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.ResponseValidationConfiguration;
 import uk.gov.ida.verifyserviceprovider.configuration.VerifyServiceProviderConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.WarmUpConfiguration;
 import uk.gov.ida.verifyserviceprovider.exceptions.InvalidEntityIdExceptionMapper;
+import uk.gov.ida.verifyserviceprovider.exceptions.InvalidRequestTokenExceptionMapper;
 import uk.gov.ida.verifyserviceprovider.exceptions.JerseyViolationExceptionMapper;
 import uk.gov.ida.verifyserviceprovider.exceptions.JsonProcessingExceptionMapper;
 import uk.gov.ida.verifyserviceprovider.factories.VerifyServiceProviderFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestPool;
+import uk.gov.ida.verifyserviceprovider.factories.saml.PreSignedAuthnRequestPool;
+import uk.gov.ida.verifyserviceprovider.factories.saml.ResponseFactory;
+import uk.gov.ida.verifyserviceprovider.filters.RequestEntitySizeLimiter;
+import uk.gov.ida.verifyserviceprovider.healthcheck.CachedHealthCheck;
+import uk.gov.ida.verifyserviceprovider.healthcheck.MetadataHealthCheck;
+import uk.gov.ida.verifyserviceprovider.healthcheck.WarmUpHealthCheck;
 import uk.gov.ida.verifyserviceprovider.listeners.VerifyServiceProviderServerListener;
+import uk.gov.ida.verifyserviceprovider.saml.EidasMetadataRefresher;
+import uk.gov.ida.verifyserviceprovider.saml.JcaProviders;
+import uk.gov.ida.verifyserviceprovider.services.WarmUpService;
 import uk.gov.ida.verifyserviceprovider.utils.ConfigurationFileFinder;
 
 import javax.ws.rs.client.Client;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.ida.verifyserviceprovider.utils.Scheduling.scheduleWithFixedDelayLoggingFailures;
 
 public class VerifyServiceProviderApplication extends Application<VerifyServiceProviderConfiguration> {
 
@@ -50,8 +89,8 @@ public class VerifyServiceProviderApplication extends Application<VerifyServiceP
         );
         IdaSamlBootstrap.bootstrap();
         bootstrap.getObjectMapper().setDateFormat(ISO8601DateFormat.getInstance());
-        bootstrap.addBundle(hubMetadataBundle);
-        bootstrap.addBundle(msaMetadataBundle);
+        bootstrap.addBundle(new UnlessMetadataSnapshotsEnabled(hubMetadataBundle));
+        bootstrap.addBundle(new UnlessMetadataSnapshotsEnabled(msaMetadataBundle));
     }
 
     @Override
@@ -61,17 +100,236 @@ public class VerifyServiceProviderApplication extends Application<VerifyServiceP
 
     @Override
     public void run(VerifyServiceProviderConfiguration configuration, Environment environment) throws Exception {
+        JcaProviders.configure(configuration.getCryptoProviders());
+        ResponseFactory.registerParserPoolMetrics(environment.metrics());
         Client client = new JerseyClientBuilder(environment).build(getName());
-        VerifyServiceProviderFactory factory = new VerifyServiceProviderFactory(configuration, hubMetadataBundle, msaMetadataBundle, client);
+        ReplayCache replayCache = createReplayCache(configuration.getReplayCache(), environment);
+        VerifyServiceProviderFactory factory = new VerifyServiceProviderFactory(
+            configuration,
+            hubMetadataBundle,
+            msaMetadataBundle,
+            client,
+            createEidasMetadataClient(configuration.getEidasMetadataRefresh(), client, environment),
+            environment.metrics(),
+            replayCache,
+            createSpeculativeDecryptionExecutor(configuration.getResponseValidation(), environment),
+            createMetadataIndexExecutor(configuration.getMetadataIndex(), environment)
+        );
 
         environment.jersey().register(new JerseyViolationExceptionMapper());
         environment.jersey().register(new JsonProcessingExceptionMapper());
         environment.jersey().register(new InvalidEntityIdExceptionMapper());
+        environment.jersey().register(new InvalidRequestTokenExceptionMapper());
+        environment.jersey().register(new RequestEntitySizeLimiter(
+            RequestEntitySizeLimiter.DEFAULT_MAX_ENTITY_LENGTH,
+            RequestEntitySizeLimiter.DEFAULT_MAX_ENTITY_LENGTH * configuration.getBatchTranslation().getMaxBatchSize()
+        ));
         environment.jersey().register(factory.getVersionNumberResource());
-        environment.jersey().register(factory.getGenerateAuthnRequestResource());
-        environment.jersey().register(factory.getTranslateMatchingSamlResponseResource());
-        environment.jersey().register(factory.getTranslateNonMatchingSamlResponseResource());
+        AuthnRequestPool authnRequestPool = createAuthnRequestPool(configuration.getAuthnRequestPool(), factory, environment);
+        environment.jersey().register(factory.getGenerateAuthnRequestResource(authnRequestPool));
+
+        ExecutorService cryptoExecutorService = createCryptoExecutorService(configuration.getCryptoExecutor(), environment);
+        environment.jersey().register(factory.getTranslateMatchingSamlResponseResource(cryptoExecutorService));
+        environment.jersey().register(factory.getTranslateNonMatchingSamlResponseResource(cryptoExecutorService));
+
+        ExecutorService batchExecutorService = createBatchExecutorService(configuration.getBatchTranslation(), environment);
+        environment.jersey().register(factory.getTranslateMatchingSamlResponseBatchResource(batchExecutorService));
+        environment.jersey().register(factory.getTranslateNonMatchingSamlResponseBatchResource(batchExecutorService));
+
+        registerMetadataSnapshots(configuration, factory, environment);
+        registerEidasMetadataRefresh(configuration, factory, environment);
+        registerMetadataMonitoring(configuration, factory, environment);
+        registerWarmUp(configuration.getWarmUp(), factory, environment);
 
         environment.lifecycle().addServerLifecycleListener(new VerifyServiceProviderServerListener(environment));
     }
+
+    /**
+     * With snapshots enabled the metadata bundles are not run, so the health checks they would have registered under
+     * the metadata's URI are registered here against the snapshot-backed metadata resolvers.
+     */
+    private void registerMetadataSnapshots(VerifyServiceProviderConfiguration configuration, VerifyServiceProviderFactory factory, Environment environment) {
+        if (!configuration.getMetadataSnapshots().isEnabled()) {
+            return;
+        }
+        MetadataConfiguration hubMetadata = configuration.getVerifyHubMetadata();
+        MetadataConfiguration msaMetadata = configuration.getMsaMetadata();
+        replaceMetadataHealthCheck(hubMetadata, new MetadataHealthCheck(factory.getHubMetadataResolver(), hubMetadata.getExpectedEntityId()), environment);
+        replaceMetadataHealthCheck(msaMetadata, new MetadataHealthCheck(factory.getMsaMetadataResolver(), msaMetadata.getExpectedEntityId()), environment);
+    }
+
+    private void registerEidasMetadataRefresh(VerifyServiceProviderConfiguration configuration, VerifyServiceProviderFactory factory, Environment environment) {
+        EidasMetadataRefreshConfiguration eidasMetadataRefresh = configuration.getEidasMetadataRefresh();
+        if (!eidasMetadataRefresh.isEnabled() || configuration.getEuropeanIdentity() == null || !configuration.getEuropeanIdentity().isEnabled()) {
+            return;
+        }
+        ScheduledExecutorService scheduler = environment.lifecycle().scheduledExecutorService("eidas-metadata-refresh-scheduler-%d")
+            .threads(1)
+            .build();
+        // At most one refresh per country is queued or running, so the queue is bounded by the number of countries
+        ExecutorService refreshExecutorService = environment.lifecycle().executorService("eidas-metadata-refresh-%d")
+            .minThreads(eidasMetadataRefresh.getThreads())
+            .maxThreads(eidasMetadataRefresh.getThreads())
+            .build();
+        EidasMetadataRefresher refresher = factory.getEidasMetadataRefresher(scheduler, refreshExecutorService);
+        long refreshIntervalMillis = eidasMetadataRefresh.getRefreshIntervalMillis();
+        scheduleWithFixedDelayLoggingFailures(scheduler, refresher::scheduleRefreshes, "schedule eIDAS metadata refreshes", refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void registerMetadataMonitoring(VerifyServiceProviderConfiguration configuration, VerifyServiceProviderFactory factory, Environment environment) {
+        MetadataMonitoringConfiguration metadataMonitoring = configuration.getMetadataMonitoring();
+        if (!metadataMonitoring.isEnabled()) {
+            return;
+        }
+        ScheduledExecutorService scheduler = environment.lifecycle().scheduledExecutorService("metadata-monitoring-%d")
+            .threads(1)
+            .build();
+        registerCachedMetadataHealthCheck(configuration.getVerifyHubMetadata(), factory.getHubMetadataResolver(), scheduler, metadataMonitoring.getIntervalSeconds(), environment);
+        registerCachedMetadataHealthCheck(configuration.getMsaMetadata(), factory.getMsaMetadataResolver(), scheduler, metadataMonitoring.getIntervalSeconds(), environment);
+        scheduleWithFixedDelayLoggingFailures(scheduler, factory.getMetadataFreshnessMonitor()::update, "record metadata freshness", 0, metadataMonitoring.getIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Replaces the health check the metadata bundle registers under the metadata's URI with one that is run on a
+     * schedule, so polling /healthcheck does not resolve metadata.
+     */
+    private void registerCachedMetadataHealthCheck(
+        MetadataConfiguration metadataConfiguration,
+        MetadataResolver metadataResolver,
+        ScheduledExecutorService scheduler,
+        long intervalSeconds,
+        Environment environment
+    ) {
+        CachedHealthCheck healthCheck = new CachedHealthCheck(
+            new MetadataHealthCheck(metadataResolver, metadataConfiguration.getExpectedEntityId())
+        );
+        replaceMetadataHealthCheck(metadataConfiguration, healthCheck, environment);
+        scheduleWithFixedDelayLoggingFailures(scheduler, healthCheck::refresh, "check the metadata at " + metadataConfiguration.getUri(), 0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private static void replaceMetadataHealthCheck(MetadataConfiguration metadataConfiguration, HealthCheck healthCheck, Environment environment) {
+        String name = metadataConfiguration.getUri().toString();
+        environment.healthChecks().unregister(name);
+        environment.healthChecks().register(name, healthCheck);
+    }
+
+    private void registerWarmUp(WarmUpConfiguration warmUp, VerifyServiceProviderFactory factory, Environment environment) throws Exception {
+        if (!warmUp.isEnabled()) {
+            return;
+        }
+        ExecutorService warmUpExecutorService = environment.lifecycle().executorService("warm-up-%d")
+            .minThreads(1)
+            .maxThreads(1)
+            .build();
+        WarmUpService warmUpService = factory.getWarmUpService(environment.getObjectMapper(), warmUpExecutorService);
+        environment.lifecycle().manage(warmUpService);
+        environment.healthChecks().register("warm-up", new WarmUpHealthCheck(warmUpService));
+    }
+
+    private AuthnRequestPool createAuthnRequestPool(AuthnRequestPoolConfiguration authnRequestPool, VerifyServiceProviderFactory factory, Environment environment) throws Exception {
+        AuthnRequestFactory authnRequestFactory = factory.getAuthnRequestFactory();
+        if (!authnRequestPool.isEnabled()) {
+            return AuthnRequestPool.disabled(authnRequestFactory);
+        }
+        ScheduledExecutorService refillExecutorService = environment.lifecycle().scheduledExecutorService("authn-request-pool-%d")
+            .threads(1)
+            .build();
+        PreSignedAuthnRequestPool preSignedAuthnRequestPool = factory.getPreSignedAuthnRequestPool(authnRequestFactory);
+        scheduleWithFixedDelayLoggingFailures(refillExecutorService, preSignedAuthnRequestPool::refill, "refill the pool of signed AuthnRequests", 0, authnRequestPool.getRefillIntervalMillis(), TimeUnit.MILLISECONDS);
+        return preSignedAuthnRequestPool;
+    }
+
+    /**
+     * With eIDAS metadata refresh enabled, countries' metadata is fetched with its own client whose connect and read
+     * timeouts are the refresh timeout, so a country whose metadata host stops responding gives its thread back to the
+     * refresh pool. Interrupting the refresh cannot do that on its own, as it does not abort a blocked socket read.
+     */
+    private Client createEidasMetadataClient(EidasMetadataRefreshConfiguration eidasMetadataRefresh, Client client, Environment environment) {
+        if (!eidasMetadataRefresh.isEnabled()) {
+            return client;
+        }
+        Duration timeout = Duration.milliseconds(eidasMetadataRefresh.getTimeoutMillis());
+        JerseyClientConfiguration clientConfiguration = new JerseyClientConfiguration();
+        clientConfiguration.setTimeout(timeout);
+        clientConfiguration.setConnectionTimeout(timeout);
+        clientConfiguration.setConnectionRequestTimeout(timeout);
+        return new JerseyClientBuilder(environment).using(clientConfiguration).build(getName() + "-eidas-metadata");
+    }
+
+    private ReplayCache createReplayCache(ReplayCacheConfiguration replayCacheConfiguration, Environment environment) throws IOException {
+        if (!replayCacheConfiguration.isEnabled()) {
+            return ReplayCache.disabled();
+        }
+        MappedReplayCache replayCache = replayCacheConfiguration.getFile() == null
+            ? MappedReplayCache.inMemory(replayCacheConfiguration.getCapacity())
+            : MappedReplayCache.mappedTo(Paths.get(replayCacheConfiguration.getFile()), replayCacheConfiguration.getCapacity());
+        environment.lifecycle().manage(replayCache);
+        return replayCache;
+    }
+
+    private ExecutorService createCryptoExecutorService(CryptoExecutorConfiguration cryptoExecutor, Environment environment) {
+        // The default rejection policy throws when the queue is full, which the resources turn into a 503
+        return environment.lifecycle().executorService("crypto-%d")
+            .minThreads(cryptoExecutor.getThreads())
+            .maxThreads(cryptoExecutor.getThreads())
+            .workQueue(new ArrayBlockingQueue<>(cryptoExecutor.getQueueSize()))
+            .build();
+    }
+
+    private Optional<Executor> createSpeculativeDecryptionExecutor(ResponseValidationConfiguration responseValidation, Environment environment) {
+        if (!responseValidation.isSpeculativeDecryption()) {
+            return Optional.empty();
+        }
+        // When the queue is full the assertions are decrypted after the signature is verified, as they are without this executor
+        return Optional.of(environment.lifecycle().executorService("speculative-decryption-%d")
+            .minThreads(responseValidation.getSpeculativeDecryptionThreads())
+            .maxThreads(responseValidation.getSpeculativeDecryptionThreads())
+            .workQueue(new ArrayBlockingQueue<>(responseValidation.getSpeculativeDecryptionQueueSize()))
+            .build());
+    }
+
+    private Optional<Executor> createMetadataIndexExecutor(MetadataIndexConfiguration metadataIndex, Environment environment) {
+        if (!metadataIndex.isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.of(environment.lifecycle().executorService("metadata-index-%d")
+            .minThreads(1)
+            .maxThreads(1)
+            .build());
+    }
+
+    private ExecutorService createBatchExecutorService(BatchTranslationConfiguration batchTranslation, Environment environment) {
+        // The default rejection policy throws when the queue is full, which the batch resources turn into a 503
+        return environment.lifecycle().executorService("batch-translation-%d")
+            .minThreads(batchTranslation.getThreads())
+            .maxThreads(batchTranslation.getThreads())
+            .workQueue(new ArrayBlockingQueue<>(batchTranslation.getQueueSize()))
+            .build();
+    }
+
+    /**
+     * Runs a metadata bundle only when metadata snapshots are disabled. With snapshots enabled the factory builds
+     * snapshot-backed resolvers from the configuration itself, so the bundle's resolver would only fetch the
+     * metadata a second time, and hold up startup while doing so.
+     */
+    private static class UnlessMetadataSnapshotsEnabled implements ConfiguredBundle<VerifyServiceProviderConfiguration> {
+
+        private final ConfiguredBundle<VerifyServiceProviderConfiguration> bundle;
+
+        private UnlessMetadataSnapshotsEnabled(ConfiguredBundle<VerifyServiceProviderConfiguration> bundle) {
+            this.bundle = bundle;
+        }
+
+        @Override
+        public void initialize(Bootstrap<?> bootstrap) {
+            bundle.initialize(bootstrap);
+        }
+
+        @Override
+        public void run(VerifyServiceProviderConfiguration configuration, Environment environment) throws Exception {
+            if (!configuration.getMetadataSnapshots().isEnabled()) {
+                bundle.run(configuration, environment);
+            }
+        }
+    }
 }
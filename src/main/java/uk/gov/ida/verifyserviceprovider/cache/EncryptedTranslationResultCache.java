@@ -0,0 +1,182 @@
+package uk.gov.ida.verifyserviceprovider.cache;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance;
+import uk.gov.ida.verifyserviceprovider.utils.Futures;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A short lived {@link TranslationResultCache} keyed by a SHA-256 digest of the translation's inputs.
+ *
+ * Results are held as JSON encrypted with AES-GCM under a key that only exists in this process's
+ * memory, so a heap dump does not reveal the personal data in recent translations. Identical
+ * requests that arrive while the first is still being translated wait for its result rather than
+ * starting their own translation. Failed translations are never cached.
+ */
+public class EncryptedTranslationResultCache<T> implements TranslationResultCache<T> {
+
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int KEY_BITS = 256;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final Class<T> type;
+    private final Duration timeToLive;
+    private final int maxEntries;
+    private final ObjectMapper objectMapper;
+    private final SecretKey key;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public EncryptedTranslationResultCache(
+        Class<T> type,
+        Duration timeToLive,
+        int maxEntries,
+        ObjectMapper objectMapper,
+        MetricRegistry metricRegistry,
+        String metricPrefix
+    ) {
+        this.type = type;
+        this.timeToLive = timeToLive;
+        this.maxEntries = maxEntries;
+        this.objectMapper = objectMapper;
+        this.key = generateKey();
+        this.hits = metricRegistry.counter(name(metricPrefix, "hits"));
+        this.misses = metricRegistry.counter(name(metricPrefix, "misses"));
+        this.coalesced = metricRegistry.counter(name(metricPrefix, "coalesced"));
+    }
+
+    @Override
+    public T get(String samlResponse, String requestId, LevelOfAssurance levelOfAssurance, String entityId, Supplier<T> translation) {
+        byte[] digest = digestOf(samlResponse, requestId, levelOfAssurance == null ? null : levelOfAssurance.name(), entityId);
+        String cacheKey = Base64.getEncoder().encodeToString(digest);
+
+        while (true) {
+            long now = DateTime.now().getMillis();
+            Entry entry = entries.get(cacheKey);
+            if (entry != null && entry.hasExpired(now)) {
+                entries.remove(cacheKey, entry);
+                continue;
+            }
+            if (entry != null) {
+                (entry.sealedResult.isDone() ? hits : coalesced).inc();
+                return open(Futures.join(entry.sealedResult), digest);
+            }
+            if (entries.size() >= maxEntries && !purgeExpired(now)) {
+                misses.inc();
+                return translation.get();
+            }
+            Entry created = new Entry();
+            if (entries.putIfAbsent(cacheKey, created) == null) {
+                misses.inc();
+                return translateInto(created, cacheKey, digest, translation);
+            }
+        }
+    }
+
+    private T translateInto(Entry entry, String cacheKey, byte[] digest, Supplier<T> translation) {
+        T result;
+        byte[] sealedResult;
+        try {
+            result = translation.get();
+            sealedResult = seal(result, digest);
+        } catch (Throwable e) {
+            entries.remove(cacheKey, entry);
+            entry.sealedResult.completeExceptionally(e);
+            throw e;
+        }
+        entry.expiresAt = DateTime.now().plus(timeToLive).getMillis();
+        entry.sealedResult.complete(sealedResult);
+        return result;
+    }
+
+    private boolean purgeExpired(long now) {
+        entries.values().removeIf(entry -> entry.hasExpired(now));
+        return entries.size() < maxEntries;
+    }
+
+    private byte[] seal(T result, byte[] digest) {
+        try {
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(digest);
+            byte[] ciphertext = cipher.doFinal(objectMapper.writeValueAsBytes(result));
+            return ByteBuffer.allocate(IV_BYTES + ciphertext.length).put(iv).put(ciphertext).array();
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt translation result", e);
+        }
+    }
+
+    private T open(byte[] sealedResult, byte[] digest) {
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, Arrays.copyOfRange(sealedResult, 0, IV_BYTES)));
+            cipher.updateAAD(digest);
+            byte[] json = cipher.doFinal(sealedResult, IV_BYTES, sealedResult.length - IV_BYTES);
+            return objectMapper.readValue(json, type);
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Could not decrypt cached translation result", e);
+        }
+    }
+
+    private static byte[] digestOf(String... values) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            for (String value : values) {
+                byte[] bytes = value == null ? new byte[0] : value.getBytes(UTF_8);
+                messageDigest.update(ByteBuffer.allocate(4).putInt(value == null ? -1 : bytes.length).array());
+                messageDigest.update(bytes);
+            }
+            return messageDigest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static SecretKey generateKey() {
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+            keyGenerator.init(KEY_BITS);
+            return keyGenerator.generateKey();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("AES is not available", e);
+        }
+    }
+
+    private static class Entry {
+        private final CompletableFuture<byte[]> sealedResult = new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private boolean hasExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+}
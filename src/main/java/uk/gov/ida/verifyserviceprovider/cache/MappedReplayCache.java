@@ -0,0 +1,165 @@
+package uk.gov.ida.verifyserviceprovider.cache;
+
+import io.dropwizard.lifecycle.Managed;
+import org.joda.time.DateTime;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A fixed size {@link ReplayCache}, held in a buffer that can be memory-mapped to a file so its
+ * contents survive restarts.
+ *
+ * The buffer is an open-addressed hash table. Each slot holds a 128 bit SHA-256 prefix of an ID and
+ * the time it expires. Expired slots are reused, and if every slot an ID could use is live the one
+ * that expires soonest is evicted, so memory use never grows past the configured capacity.
+ */
+public class MappedReplayCache implements ReplayCache, Managed {
+
+    private static final int MAGIC = 0x56535052;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int SLOT_BYTES = 24;
+    private static final int MAX_PROBES = 32;
+
+    private final ByteBuffer table;
+    private final FileChannel channel;
+    private final int capacity;
+
+    private MappedReplayCache(ByteBuffer table, FileChannel channel, int capacity) {
+        this.table = table;
+        this.channel = channel;
+        this.capacity = capacity;
+        if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION || table.getInt(8) != capacity) {
+            clear();
+        }
+    }
+
+    public static MappedReplayCache inMemory(int capacity) {
+        return new MappedReplayCache(ByteBuffer.allocate(sizeFor(capacity)), null, capacity);
+    }
+
+    public static MappedReplayCache mappedTo(Path file, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+        MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeFor(capacity));
+        return new MappedReplayCache(table, channel, capacity);
+    }
+
+    @Override
+    public boolean hasSeen(String id) {
+        long[] key = keyFor(id);
+        long now = DateTime.now().getMillis();
+        synchronized (table) {
+            return findLive(key, now) >= 0;
+        }
+    }
+
+    @Override
+    public boolean recordIfAbsent(String id, DateTime expiry) {
+        long[] key = keyFor(id);
+        long now = DateTime.now().getMillis();
+        synchronized (table) {
+            if (findLive(key, now) >= 0) {
+                return false;
+            }
+            int slot = slotToReplace(key, now);
+            table.putLong(offsetOf(slot), key[0]);
+            table.putLong(offsetOf(slot) + 8, key[1]);
+            table.putLong(offsetOf(slot) + 16, expiry.getMillis());
+            return true;
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws IOException {
+        if (channel != null) {
+            ((MappedByteBuffer) table).force();
+            channel.close();
+        }
+    }
+
+    private int findLive(long[] key, long now) {
+        int start = startSlot(key);
+        for (int probe = 0; probe < Math.min(MAX_PROBES, capacity); probe++) {
+            int slot = (start + probe) % capacity;
+            long first = table.getLong(offsetOf(slot));
+            long second = table.getLong(offsetOf(slot) + 8);
+            if (first == 0 && second == 0) {
+                return -1;
+            }
+            if (first == key[0] && second == key[1] && table.getLong(offsetOf(slot) + 16) > now) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int slotToReplace(long[] key, long now) {
+        int start = startSlot(key);
+        int soonestToExpire = start;
+        long soonestExpiry = Long.MAX_VALUE;
+        for (int probe = 0; probe < Math.min(MAX_PROBES, capacity); probe++) {
+            int slot = (start + probe) % capacity;
+            long expiry = table.getLong(offsetOf(slot) + 16);
+            if (expiry <= now) {
+                return slot;
+            }
+            if (expiry < soonestExpiry) {
+                soonestExpiry = expiry;
+                soonestToExpire = slot;
+            }
+        }
+        return soonestToExpire;
+    }
+
+    private int startSlot(long[] key) {
+        return (int) Long.remainderUnsigned(key[0], capacity);
+    }
+
+    private void clear() {
+        for (int i = 0; i < sizeFor(capacity); i++) {
+            table.put(i, (byte) 0);
+        }
+        table.putInt(0, MAGIC);
+        table.putInt(4, VERSION);
+        table.putInt(8, capacity);
+    }
+
+    private static long[] keyFor(String id) {
+        ByteBuffer digest = ByteBuffer.wrap(sha256(id.getBytes(StandardCharsets.UTF_8)));
+        long first = digest.getLong();
+        long second = digest.getLong();
+        // An all zero key marks an unused slot
+        return first == 0 && second == 0 ? new long[]{0, 1} : new long[]{first, second};
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static int offsetOf(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static int sizeFor(int capacity) {
+        return HEADER_BYTES + capacity * SLOT_BYTES;
+    }
+}
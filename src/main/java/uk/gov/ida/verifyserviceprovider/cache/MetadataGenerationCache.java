@@ -0,0 +1,89 @@
+package uk.gov.ida.verifyserviceprovider.cache;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.DateTime;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Remembers values derived from a metadata resolver's metadata. Everything remembered is dropped at once when the
+ * resolver finishes a refresh, so values are never served from metadata older than the resolver's own.
+ *
+ * Nothing is remembered while the resolver has no last refresh time, which is the case for a resolver that never
+ * refreshes or has not yet loaded its metadata, as there is then no way to tell when the metadata changes.
+ * Null values are never remembered.
+ */
+public class MetadataGenerationCache<K, V> {
+
+    private final Supplier<DateTime> lastRefresh;
+    private final AtomicReference<Generation<K, V>> generation;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    public MetadataGenerationCache(Supplier<DateTime> lastRefresh, MetricRegistry metricRegistry, String metricPrefix) {
+        this.lastRefresh = lastRefresh;
+        this.generation = new AtomicReference<>(new Generation<>(lastRefresh.get()));
+        this.hits = metricRegistry.counter(name(metricPrefix, "hits"));
+        this.misses = metricRegistry.counter(name(metricPrefix, "misses"));
+        this.invalidations = metricRegistry.counter(name(metricPrefix, "invalidations"));
+    }
+
+    /**
+     * @return the value remembered for the key since the last refresh, or else the value the loader returns
+     */
+    public <E extends Exception> V get(K key, Loader<K, V, E> loader) throws E {
+        DateTime refreshedAt = lastRefresh.get();
+        if (refreshedAt == null) {
+            return loader.load(key);
+        }
+
+        Generation<K, V> current = currentGeneration(refreshedAt);
+        V cached = current.values.get(key);
+        if (cached != null) {
+            hits.inc();
+            return cached;
+        }
+
+        misses.inc();
+        V loaded = loader.load(key);
+        if (loaded != null) {
+            current.values.putIfAbsent(key, loaded);
+        }
+        return loaded;
+    }
+
+    private Generation<K, V> currentGeneration(DateTime refreshedAt) {
+        Generation<K, V> current = generation.get();
+        if (Objects.equals(current.refreshedAt, refreshedAt)) {
+            return current;
+        }
+        Generation<K, V> refreshed = new Generation<>(refreshedAt);
+        if (generation.compareAndSet(current, refreshed)) {
+            invalidations.inc();
+            return refreshed;
+        }
+        return generation.get();
+    }
+
+    @FunctionalInterface
+    public interface Loader<K, V, E extends Exception> {
+        V load(K key) throws E;
+    }
+
+    private static class Generation<K, V> {
+        private final DateTime refreshedAt;
+        private final ConcurrentMap<K, V> values = new ConcurrentHashMap<>();
+
+        private Generation(DateTime refreshedAt) {
+            this.refreshedAt = refreshedAt;
+        }
+    }
+}
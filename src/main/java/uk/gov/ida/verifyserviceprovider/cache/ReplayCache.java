@@ -0,0 +1,30 @@
+package uk.gov.ida.verifyserviceprovider.cache;
+
+import org.joda.time.DateTime;
+
+/**
+ * Remembers the IDs of responses and assertions that have already been translated until they expire.
+ */
+public interface ReplayCache {
+
+    boolean hasSeen(String id);
+
+    /**
+     * @return false if the ID had already been recorded and has not yet expired
+     */
+    boolean recordIfAbsent(String id, DateTime expiry);
+
+    static ReplayCache disabled() {
+        return new ReplayCache() {
+            @Override
+            public boolean hasSeen(String id) {
+                return false;
+            }
+
+            @Override
+            public boolean recordIfAbsent(String id, DateTime expiry) {
+                return true;
+            }
+        };
+    }
+}
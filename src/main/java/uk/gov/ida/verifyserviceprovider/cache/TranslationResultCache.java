@@ -0,0 +1,22 @@
+package uk.gov.ida.verifyserviceprovider.cache;
+
+import uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance;
+
+import java.util.function.Supplier;
+
+/**
+ * Remembers recent translations so a relying party retrying a request with an identical body
+ * gets the earlier result without the response being translated again.
+ */
+public interface TranslationResultCache<T> {
+
+    /**
+     * @return the cached result for these inputs, or the result of the translation, which is
+     *         only run if no identical translation has recently completed or is still in progress
+     */
+    T get(String samlResponse, String requestId, LevelOfAssurance levelOfAssurance, String entityId, Supplier<T> translation);
+
+    static <T> TranslationResultCache<T> disabled() {
+        return (samlResponse, requestId, levelOfAssurance, entityId, translation) -> translation.get();
+    }
+}
@@ -0,0 +1,43 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+public class AuthnRequestPoolConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+
+    @Min(1)
+    @Max(1000)
+    @JsonProperty
+    private int size = 10;
+
+    @Min(1)
+    @Max(300)
+    @JsonProperty
+    private int maxAgeSeconds = 60;
+
+    @Min(10)
+    @Max(60_000)
+    @JsonProperty
+    private long refillIntervalMillis = 500;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    public long getRefillIntervalMillis() {
+        return refillIntervalMillis;
+    }
+}
@@ -0,0 +1,40 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+public class BatchTranslationConfiguration {
+
+    @Min(1)
+    @JsonProperty
+    private int maxBatchSize = 100;
+
+    @Min(1)
+    @JsonProperty
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Min(1)
+    @JsonProperty
+    private int queueSize = 1000;
+
+    @Min(1)
+    @JsonProperty
+    private int retryAfterSeconds = 1;
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
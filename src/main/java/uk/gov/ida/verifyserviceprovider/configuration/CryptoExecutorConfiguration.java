@@ -0,0 +1,32 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+public class CryptoExecutorConfiguration {
+
+    @Min(1)
+    @JsonProperty
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Min(1)
+    @JsonProperty
+    private int queueSize = 100;
+
+    @Min(1)
+    @JsonProperty
+    private int retryAfterSeconds = 1;
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,41 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.List;
+
+public class CryptoProviderConfiguration {
+
+    @NotNull
+    @JsonProperty
+    private List<String> providerClasses = Collections.emptyList();
+
+    @JsonProperty
+    private String signatureProvider;
+
+    @JsonProperty
+    private String decryptionProvider;
+
+    public CryptoProviderConfiguration() {
+    }
+
+    public CryptoProviderConfiguration(List<String> providerClasses, String signatureProvider, String decryptionProvider) {
+        this.providerClasses = providerClasses;
+        this.signatureProvider = signatureProvider;
+        this.decryptionProvider = decryptionProvider;
+    }
+
+    public List<String> getProviderClasses() {
+        return providerClasses;
+    }
+
+    public String getSignatureProvider() {
+        return signatureProvider;
+    }
+
+    public String getDecryptionProvider() {
+        return decryptionProvider;
+    }
+}
@@ -0,0 +1,49 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+public class EidasMetadataRefreshConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+
+    @Min(1)
+    @Max(64)
+    @JsonProperty
+    private int threads = 4;
+
+    @Min(1_000)
+    @JsonProperty
+    private long refreshIntervalMillis = 60_000;
+
+    @Min(0)
+    @JsonProperty
+    private long maxJitterMillis = 10_000;
+
+    @Min(100)
+    @JsonProperty
+    private long timeoutMillis = 30_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getRefreshIntervalMillis() {
+        return refreshIntervalMillis;
+    }
+
+    public long getMaxJitterMillis() {
+        return maxJitterMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
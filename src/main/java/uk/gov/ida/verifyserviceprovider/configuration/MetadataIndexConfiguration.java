@@ -0,0 +1,13 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class MetadataIndexConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
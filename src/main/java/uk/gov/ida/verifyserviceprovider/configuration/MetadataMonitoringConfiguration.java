@@ -0,0 +1,25 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+public class MetadataMonitoringConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+
+    @Min(1)
+    @Max(3600)
+    @JsonProperty
+    private long intervalSeconds = 10;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getIntervalSeconds() {
+        return intervalSeconds;
+    }
+}
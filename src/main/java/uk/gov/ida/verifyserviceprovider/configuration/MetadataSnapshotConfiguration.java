@@ -0,0 +1,20 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class MetadataSnapshotConfiguration {
+
+    @JsonProperty
+    private String directory;
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public Path getDirectory() {
+        return Paths.get(directory);
+    }
+}
@@ -0,0 +1,32 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+public class ReplayCacheConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+
+    @JsonProperty
+    private String file;
+
+    @Min(1)
+    @Max(10_000_000)
+    @JsonProperty
+    private int capacity = 100_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
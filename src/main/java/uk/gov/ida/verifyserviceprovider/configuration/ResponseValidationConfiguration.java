@@ -0,0 +1,38 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+public class ResponseValidationConfiguration {
+
+    @JsonProperty
+    private boolean cheapChecksFirst = true;
+
+    @JsonProperty
+    private boolean speculativeDecryption = false;
+
+    @Min(1)
+    @JsonProperty
+    private int speculativeDecryptionThreads = Runtime.getRuntime().availableProcessors();
+
+    @Min(1)
+    @JsonProperty
+    private int speculativeDecryptionQueueSize = 100;
+
+    public boolean isCheapChecksFirst() {
+        return cheapChecksFirst;
+    }
+
+    public boolean isSpeculativeDecryption() {
+        return speculativeDecryption;
+    }
+
+    public int getSpeculativeDecryptionThreads() {
+        return speculativeDecryptionThreads;
+    }
+
+    public int getSpeculativeDecryptionQueueSize() {
+        return speculativeDecryptionQueueSize;
+    }
+}
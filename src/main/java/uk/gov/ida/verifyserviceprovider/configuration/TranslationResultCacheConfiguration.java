@@ -0,0 +1,33 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+public class TranslationResultCacheConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+
+    @Min(1)
+    @Max(300)
+    @JsonProperty
+    private int timeToLiveSeconds = 30;
+
+    @Min(1)
+    @JsonProperty
+    private int maxEntries = 10_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getTimeToLiveSeconds() {
+        return timeToLiveSeconds;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+}
@@ -27,6 +27,71 @@ public class VerifyServiceProviderConfiguration extends Configuration {
     private Duration clockSkew;
     private EuropeanIdentityConfiguration europeanIdentity;
 
+    @JsonProperty
+    @NotNull
+    @Valid
+    private BatchTranslationConfiguration batchTranslation = new BatchTranslationConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private CryptoExecutorConfiguration cryptoExecutor = new CryptoExecutorConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private ReplayCacheConfiguration replayCache = new ReplayCacheConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private TranslationResultCacheConfiguration translationResultCache = new TranslationResultCacheConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private ResponseValidationConfiguration responseValidation = new ResponseValidationConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private WarmUpConfiguration warmUp = new WarmUpConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private CryptoProviderConfiguration cryptoProviders = new CryptoProviderConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private AuthnRequestPoolConfiguration authnRequestPool = new AuthnRequestPoolConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private RequestTokenConfiguration requestTokens = new RequestTokenConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private MetadataSnapshotConfiguration metadataSnapshots = new MetadataSnapshotConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private EidasMetadataRefreshConfiguration eidasMetadataRefresh = new EidasMetadataRefreshConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private MetadataIndexConfiguration metadataIndex = new MetadataIndexConfiguration();
+
+    @JsonProperty
+    @NotNull
+    @Valid
+    private MetadataMonitoringConfiguration metadataMonitoring = new MetadataMonitoringConfiguration();
+
     @JsonCreator
     public VerifyServiceProviderConfiguration(
         @JsonProperty("serviceEntityIds") @NotNull @Size(min = 1, message = NOT_EMPTY_MESSAGE) @Valid List<String> serviceEntityIds,
@@ -95,4 +160,56 @@ public class VerifyServiceProviderConfiguration extends Configuration {
     public EuropeanIdentityConfiguration getEuropeanIdentity() {
         return europeanIdentity;
     }
+
+    public BatchTranslationConfiguration getBatchTranslation() {
+        return batchTranslation;
+    }
+
+    public CryptoExecutorConfiguration getCryptoExecutor() {
+        return cryptoExecutor;
+    }
+
+    public ReplayCacheConfiguration getReplayCache() {
+        return replayCache;
+    }
+
+    public TranslationResultCacheConfiguration getTranslationResultCache() {
+        return translationResultCache;
+    }
+
+    public ResponseValidationConfiguration getResponseValidation() {
+        return responseValidation;
+    }
+
+    public WarmUpConfiguration getWarmUp() {
+        return warmUp;
+    }
+
+    public CryptoProviderConfiguration getCryptoProviders() {
+        return cryptoProviders;
+    }
+
+    public AuthnRequestPoolConfiguration getAuthnRequestPool() {
+        return authnRequestPool;
+    }
+
+    public RequestTokenConfiguration getRequestTokens() {
+        return requestTokens;
+    }
+
+    public MetadataSnapshotConfiguration getMetadataSnapshots() {
+        return metadataSnapshots;
+    }
+
+    public EidasMetadataRefreshConfiguration getEidasMetadataRefresh() {
+        return eidasMetadataRefresh;
+    }
+
+    public MetadataIndexConfiguration getMetadataIndex() {
+        return metadataIndex;
+    }
+
+    public MetadataMonitoringConfiguration getMetadataMonitoring() {
+        return metadataMonitoring;
+    }
 }
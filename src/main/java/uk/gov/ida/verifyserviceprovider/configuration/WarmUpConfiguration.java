@@ -0,0 +1,25 @@
+package uk.gov.ida.verifyserviceprovider.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+public class WarmUpConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+
+    @Min(1)
+    @Max(10_000)
+    @JsonProperty
+    private int iterations = 50;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+}
@@ -0,0 +1,54 @@
+package uk.gov.ida.verifyserviceprovider.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.jersey.errors.ErrorMessage;
+
+import java.util.Optional;
+
+@JsonInclude(JsonInclude.Include.NON_ABSENT)
+public class BatchTranslationResult<T> {
+
+    private final String requestId;
+    private final int status;
+    private final T response;
+    private final ErrorMessage error;
+
+    @JsonCreator
+    public BatchTranslationResult(
+        @JsonProperty("requestId") String requestId,
+        @JsonProperty("status") int status,
+        @JsonProperty("response") T response,
+        @JsonProperty("error") ErrorMessage error
+    ) {
+        this.requestId = requestId;
+        this.status = status;
+        this.response = response;
+        this.error = error;
+    }
+
+    public static <T> BatchTranslationResult<T> success(String requestId, T response) {
+        return new BatchTranslationResult<>(requestId, 200, response, null);
+    }
+
+    public static <T> BatchTranslationResult<T> error(String requestId, int status, String message) {
+        return new BatchTranslationResult<>(requestId, status, null, new ErrorMessage(status, message));
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Optional<T> getResponse() {
+        return Optional.ofNullable(response);
+    }
+
+    public Optional<ErrorMessage> getError() {
+        return Optional.ofNullable(error);
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.ida.verifyserviceprovider.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.apache.commons.collections.CollectionUtils;
@@ -24,13 +25,14 @@ public class NonMatchingAttributes {
     private final List<NonMatchingVerifiableAttribute<NonMatchingAddress>> addresses;
 
 
+    @JsonCreator
     public NonMatchingAttributes(
-            NonMatchingVerifiableAttribute<String> firstName,
-            List<NonMatchingVerifiableAttribute<String>> middleNames,
-            List<NonMatchingVerifiableAttribute<String>> surnames,
-            NonMatchingVerifiableAttribute<LocalDate> dateOfBirth,
-            NonMatchingVerifiableAttribute<Gender> gender,
-            List<NonMatchingVerifiableAttribute<NonMatchingAddress>> addresses
+            @JsonProperty("firstName") NonMatchingVerifiableAttribute<String> firstName,
+            @JsonProperty("middleNames") List<NonMatchingVerifiableAttribute<String>> middleNames,
+            @JsonProperty("surnames") List<NonMatchingVerifiableAttribute<String>> surnames,
+            @JsonProperty("dateOfBirth") NonMatchingVerifiableAttribute<LocalDate> dateOfBirth,
+            @JsonProperty("gender") NonMatchingVerifiableAttribute<Gender> gender,
+            @JsonProperty("addresses") List<NonMatchingVerifiableAttribute<NonMatchingAddress>> addresses
     ) {
         this.firstName = firstName;
         this.middleNames = middleNames;
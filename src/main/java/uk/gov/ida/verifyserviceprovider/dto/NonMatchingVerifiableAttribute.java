@@ -1,5 +1,6 @@
 package uk.gov.ida.verifyserviceprovider.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.LocalDateTime;
@@ -15,11 +16,12 @@ public class NonMatchingVerifiableAttribute<T> {
     @JsonProperty("to") @JsonInclude(JsonInclude.Include.NON_NULL)
     private final LocalDateTime to;
 
+    @JsonCreator
     public NonMatchingVerifiableAttribute(
-           T value,
-           boolean verified,
-           LocalDateTime from,
-           LocalDateTime to) {
+           @JsonProperty("value") T value,
+           @JsonProperty("verified") boolean verified,
+           @JsonProperty("from") LocalDateTime from,
+           @JsonProperty("to") LocalDateTime to) {
         this.value = value;
         this.verified = verified;
         this.from = from;
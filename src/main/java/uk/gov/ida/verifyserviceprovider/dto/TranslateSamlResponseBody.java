@@ -10,18 +10,25 @@ public class TranslateSamlResponseBody {
     private final String requestId;
     private final LevelOfAssurance levelOfAssurance;
     private final String entityId;
+    private final String requestToken;
+
+    public TranslateSamlResponseBody(String samlResponse, String requestId, LevelOfAssurance levelOfAssurance, String entityId) {
+        this(samlResponse, requestId, levelOfAssurance, entityId, null);
+    }
 
     @JsonCreator
     public TranslateSamlResponseBody(
         @JsonProperty(value = "samlResponse") String samlResponse,
         @JsonProperty(value = "requestId") String requestId,
         @JsonProperty(value = "levelOfAssurance") LevelOfAssurance levelOfAssurance,
-        @JsonProperty(value = "entityId") String entityId
+        @JsonProperty(value = "entityId") String entityId,
+        @JsonProperty(value = "requestToken") String requestToken
     ) {
         this.samlResponse = samlResponse;
         this.requestId = requestId;
         this.levelOfAssurance = levelOfAssurance;
         this.entityId = entityId;
+        this.requestToken = requestToken;
     }
 
     @NotNull
@@ -40,4 +47,6 @@ public class TranslateSamlResponseBody {
     }
 
     public String getEntityId() { return entityId; }
+
+    public String getRequestToken() { return requestToken; }
 }
@@ -1,5 +1,6 @@
 package uk.gov.ida.verifyserviceprovider.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Optional;
 
@@ -14,11 +15,12 @@ public class TranslatedNonMatchingResponseBody {
     @JsonProperty("attributes")
     protected final NonMatchingAttributes attributes;
 
+    @JsonCreator
     public TranslatedNonMatchingResponseBody(
-            NonMatchingScenario scenario,
-            String pid,
-            LevelOfAssurance levelOfAssurance,
-            NonMatchingAttributes attributes
+            @JsonProperty("scenario") NonMatchingScenario scenario,
+            @JsonProperty("pid") String pid,
+            @JsonProperty("levelOfAssurance") LevelOfAssurance levelOfAssurance,
+            @JsonProperty("attributes") NonMatchingAttributes attributes
     ) {
         this.scenario = scenario;
         this.pid = pid;
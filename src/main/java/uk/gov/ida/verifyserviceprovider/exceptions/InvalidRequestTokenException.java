@@ -0,0 +1,7 @@
+package uk.gov.ida.verifyserviceprovider.exceptions;
+
+public class InvalidRequestTokenException extends RuntimeException {
+    public InvalidRequestTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+package uk.gov.ida.verifyserviceprovider.exceptions;
+
+import io.dropwizard.jersey.errors.ErrorMessage;
+import org.apache.http.HttpStatus;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+
+public class InvalidRequestTokenExceptionMapper implements ExceptionMapper<InvalidRequestTokenException> {
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(InvalidRequestTokenExceptionMapper.class);
+
+    @Override
+    public Response toResponse(InvalidRequestTokenException exception) {
+        LOG.warn(String.format("Request token rejected. %s", exception.getMessage()));
+
+        return Response
+            .status(HttpStatus.SC_BAD_REQUEST)
+            .entity(new ErrorMessage(HttpStatus.SC_BAD_REQUEST, exception.getMessage()))
+            .build();
+    }
+}
@@ -1,9 +1,23 @@
 package uk.gov.ida.verifyserviceprovider.factories;
 
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.shibboleth.utilities.java.support.component.ComponentInitializationException;
+import org.joda.time.Duration;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.saml.metadata.resolver.filter.impl.SignatureValidationFilter;
+import org.opensaml.saml.metadata.resolver.impl.PredicateRoleDescriptorResolver;
 import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
 import org.opensaml.saml.security.impl.MetadataCredentialResolver;
+import org.opensaml.security.credential.CredentialResolver;
 import org.opensaml.security.crypto.KeySupport;
+import org.opensaml.security.x509.impl.BasicPKIXValidationInformation;
+import org.opensaml.security.x509.impl.StaticPKIXValidationInformationResolver;
+import org.opensaml.xmlsec.config.DefaultSecurityConfigurationBootstrap;
 import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
+import org.opensaml.xmlsec.signature.support.impl.PKIXSignatureTrustEngine;
+import uk.gov.ida.saml.metadata.MetadataConfiguration;
 import uk.gov.ida.saml.metadata.EidasMetadataConfiguration;
 import uk.gov.ida.saml.metadata.EidasMetadataResolverRepository;
 import uk.gov.ida.saml.metadata.EidasTrustAnchorResolver;
@@ -13,55 +27,121 @@ import uk.gov.ida.saml.metadata.factories.DropwizardMetadataResolverFactory;
 import uk.gov.ida.saml.metadata.factories.MetadataSignatureTrustEngineFactory;
 import uk.gov.ida.saml.security.MetadataBackedEncryptionCredentialResolver;
 import uk.gov.ida.shared.utils.manifest.ManifestReader;
+import uk.gov.ida.verifyserviceprovider.cache.ReplayCache;
+import uk.gov.ida.verifyserviceprovider.configuration.AuthnRequestPoolConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.EidasMetadataRefreshConfiguration;
 import uk.gov.ida.verifyserviceprovider.configuration.VerifyServiceProviderConfiguration;
 import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestPool;
+import uk.gov.ida.verifyserviceprovider.factories.saml.PreSignedAuthnRequestPool;
 import uk.gov.ida.verifyserviceprovider.factories.saml.ResponseFactory;
 import uk.gov.ida.verifyserviceprovider.factories.saml.SignatureValidatorFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.SyntheticResponseFactory;
+import uk.gov.ida.verifyserviceprovider.dto.TranslatedNonMatchingResponseBody;
+import uk.gov.ida.verifyserviceprovider.dto.TranslatedResponseBody;
+import uk.gov.ida.verifyserviceprovider.resources.AsyncResponseExecutor;
 import uk.gov.ida.verifyserviceprovider.resources.GenerateAuthnRequestResource;
+import uk.gov.ida.verifyserviceprovider.resources.TranslateNonMatchingSamlResponseBatchResource;
 import uk.gov.ida.verifyserviceprovider.resources.TranslateNonMatchingSamlResponseResource;
+import uk.gov.ida.verifyserviceprovider.resources.TranslateSamlResponseBatchResource;
 import uk.gov.ida.verifyserviceprovider.resources.TranslateSamlResponseResource;
 import uk.gov.ida.verifyserviceprovider.resources.VersionNumberResource;
+import uk.gov.ida.verifyserviceprovider.saml.CachingEncryptionCredentialResolver;
+import uk.gov.ida.verifyserviceprovider.saml.CachingMetadataCredentialResolver;
+import uk.gov.ida.verifyserviceprovider.saml.EidasMetadataRefresher;
+import uk.gov.ida.verifyserviceprovider.saml.IndexedMetadataCredentialResolver;
+import uk.gov.ida.verifyserviceprovider.saml.MetadataFreshnessMonitor;
+import uk.gov.ida.verifyserviceprovider.saml.MetadataRefreshSuppressingTimer;
+import uk.gov.ida.verifyserviceprovider.saml.MetadataSnapshotStore;
+import uk.gov.ida.verifyserviceprovider.saml.SnapshotBackedMetadataResolver;
+import uk.gov.ida.verifyserviceprovider.saml.TimedMetadataFilter;
+import uk.gov.ida.verifyserviceprovider.services.BatchTranslationService;
 import uk.gov.ida.verifyserviceprovider.services.ClassifyingAssertionService;
 import uk.gov.ida.verifyserviceprovider.services.EidasAssertionService;
 import uk.gov.ida.verifyserviceprovider.services.EntityIdService;
 import uk.gov.ida.verifyserviceprovider.services.IdpAssertionService;
+import uk.gov.ida.verifyserviceprovider.services.RequestTokenService;
+import uk.gov.ida.verifyserviceprovider.services.ResponseService;
+import uk.gov.ida.verifyserviceprovider.services.WarmUpService;
 import uk.gov.ida.verifyserviceprovider.utils.DateTimeComparator;
 
 import javax.ws.rs.client.Client;
 import java.security.KeyException;
 import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.Timer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 
 public class VerifyServiceProviderFactory {
 
+    private static final int HUB_METADATA_CERTIFICATE_CHAIN_DEPTH = 10;
+
     private final VerifyServiceProviderConfiguration configuration;
     private final ResponseFactory responseFactory;
 
     private final DateTimeComparator dateTimeComparator;
     private final EntityIdService entityIdService;
+    private final RequestTokenService requestTokenService;
     private final MetadataResolverBundle verifyMetadataBundler;
     private final MetadataResolverBundle msaMetadataBundle;
     private final ManifestReader manifestReader;
     private final Client client;
+    private final Client eidasMetadataClient;
+    private final MetricRegistry metricRegistry;
+    private final Optional<Executor> metadataIndexExecutor;
+    private ExplicitKeySignatureTrustEngine hubSignatureTrustEngine;
+    private ExplicitKeySignatureTrustEngine msaSignatureTrustEngine;
+    private MetadataResolver hubSnapshotBackedMetadataResolver;
+    private MetadataResolver msaSnapshotBackedMetadataResolver;
+    private EidasMetadataResolverRepository eidasMetadataResolverRepository;
 
     public VerifyServiceProviderFactory(
             VerifyServiceProviderConfiguration configuration,
             MetadataResolverBundle verifyMetadataBundler,
             MetadataResolverBundle msaMetadataBundle,
-            Client client) throws KeyException {
+            Client client,
+            Client eidasMetadataClient,
+            MetricRegistry metricRegistry,
+            ReplayCache replayCache,
+            Optional<Executor> speculativeDecryptionExecutor,
+            Optional<Executor> metadataIndexExecutor) throws KeyException {
         this.configuration = configuration;
-        this.responseFactory = new ResponseFactory(getDecryptionKeyPairs(configuration.getSamlPrimaryEncryptionKey(), configuration.getSamlSecondaryEncryptionKey()));
+        this.responseFactory = ResponseFactory.builder(getDecryptionKeyPairs(configuration.getSamlPrimaryEncryptionKey(), configuration.getSamlSecondaryEncryptionKey()))
+            .withMetricRegistry(metricRegistry)
+            .withReplayCache(replayCache)
+            .withResultCacheConfiguration(configuration.getTranslationResultCache())
+            .withResponseValidationConfiguration(configuration.getResponseValidation())
+            .withCryptoProviderConfiguration(configuration.getCryptoProviders())
+            .withSpeculativeDecryptionExecutor(speculativeDecryptionExecutor)
+            .build();
         this.dateTimeComparator = new DateTimeComparator(configuration.getClockSkew());
         this.entityIdService = new EntityIdService(configuration.getServiceEntityIds());
+        this.requestTokenService = configuration.getRequestTokens().isEnabled()
+            ? new RequestTokenService(configuration.getRequestTokens().getSecret())
+            : RequestTokenService.disabled();
         this.verifyMetadataBundler = verifyMetadataBundler;
         this.msaMetadataBundle = msaMetadataBundle;
         this.manifestReader = new ManifestReader();
         this.client = client;
+        this.eidasMetadataClient = eidasMetadataClient;
+        this.metricRegistry = metricRegistry;
+        this.metadataIndexExecutor = metadataIndexExecutor;
     }
 
     private List<KeyPair> getDecryptionKeyPairs(PrivateKey primary, PrivateKey secondary) throws KeyException {
@@ -76,43 +156,99 @@ public class VerifyServiceProviderFactory {
         return new KeyPair(KeySupport.derivePublicKey(key), key);
     }
 
-    public GenerateAuthnRequestResource getGenerateAuthnRequestResource() throws Exception {
+    public AuthnRequestFactory getAuthnRequestFactory() throws Exception {
         MetadataCredentialResolver metadataCredentialResolver = getHubMetadataCredentialResolver();
-        MetadataBackedEncryptionCredentialResolver encryptionCredentialResolver = new MetadataBackedEncryptionCredentialResolver(metadataCredentialResolver, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+        CachingEncryptionCredentialResolver encryptionCredentialResolver = new CachingEncryptionCredentialResolver(
+            new MetadataBackedEncryptionCredentialResolver(metadataCredentialResolver, SPSSODescriptor.DEFAULT_ELEMENT_NAME),
+            CachingMetadataCredentialResolver.lastRefreshOf(this::getHubMetadataResolver),
+            metricRegistry,
+            name("hub-metadata", "encryption-credential-cache")
+        );
         EncrypterFactory encrypterFactory = new EncrypterFactory(encryptionCredentialResolver, configuration.getVerifyHubMetadata().getExpectedEntityId());
 
         PrivateKey signingKey = configuration.getSamlSigningKey();
 
-        AuthnRequestFactory authnRequestFactory = new AuthnRequestFactory(
+        return new AuthnRequestFactory(
                 configuration.getHubSsoLocation(),
                 createKeyPair(signingKey),
                 manifestReader, encrypterFactory
         );
+    }
 
-        return new GenerateAuthnRequestResource(
+    public PreSignedAuthnRequestPool getPreSignedAuthnRequestPool(AuthnRequestFactory authnRequestFactory) {
+        AuthnRequestPoolConfiguration authnRequestPool = configuration.getAuthnRequestPool();
+        return new PreSignedAuthnRequestPool(
             authnRequestFactory,
+            configuration.getServiceEntityIds(),
+            authnRequestPool.getSize(),
+            Duration.standardSeconds(authnRequestPool.getMaxAgeSeconds()),
+            metricRegistry,
+            "authn-request-pool"
+        );
+    }
+
+    public GenerateAuthnRequestResource getGenerateAuthnRequestResource(AuthnRequestPool authnRequestPool) {
+        return new GenerateAuthnRequestResource(
+            authnRequestPool,
             configuration.getHubSsoLocation(),
-            entityIdService
+            entityIdService,
+            requestTokenService
         );
     }
 
-    public TranslateSamlResponseResource getTranslateMatchingSamlResponseResource() {
+    public TranslateSamlResponseResource getTranslateMatchingSamlResponseResource(ExecutorService cryptoExecutorService) {
         return new TranslateSamlResponseResource(
-            responseFactory.createMatchingResponseService(
-                getHubSignatureTrustEngine(),
-                responseFactory.createMsaAssertionService(getMsaSignatureTrustEngine(), new SignatureValidatorFactory(), dateTimeComparator),
-                dateTimeComparator
-            ),
-            entityIdService
+            createMatchingResponseService(),
+            entityIdService,
+            createAsyncResponseExecutor(cryptoExecutorService),
+            requestTokenService
+        );
+    }
+
+    public TranslateSamlResponseBatchResource getTranslateMatchingSamlResponseBatchResource(ExecutorService batchExecutorService) {
+        return new TranslateSamlResponseBatchResource(
+            new BatchTranslationService<>(createMatchingResponseService(), entityIdService, batchExecutorService, requestTokenService),
+            configuration.getBatchTranslation().getMaxBatchSize(),
+            configuration.getBatchTranslation().getRetryAfterSeconds()
+        );
+    }
+
+    public TranslateNonMatchingSamlResponseResource getTranslateNonMatchingSamlResponseResource(ExecutorService cryptoExecutorService) {
+        return new TranslateNonMatchingSamlResponseResource(
+            createNonMatchingResponseService(cryptoExecutorService),
+            entityIdService,
+            createAsyncResponseExecutor(cryptoExecutorService),
+            requestTokenService
+        );
+    }
+
+    public TranslateNonMatchingSamlResponseBatchResource getTranslateNonMatchingSamlResponseBatchResource(ExecutorService batchExecutorService) {
+        return new TranslateNonMatchingSamlResponseBatchResource(
+            new BatchTranslationService<>(createNonMatchingResponseService(batchExecutorService), entityIdService, batchExecutorService, requestTokenService),
+            configuration.getBatchTranslation().getMaxBatchSize(),
+            configuration.getBatchTranslation().getRetryAfterSeconds()
+        );
+    }
+
+    private AsyncResponseExecutor createAsyncResponseExecutor(ExecutorService cryptoExecutorService) {
+        return new AsyncResponseExecutor(cryptoExecutorService, configuration.getCryptoExecutor().getRetryAfterSeconds());
+    }
+
+    private ResponseService<TranslatedResponseBody> createMatchingResponseService() {
+        return responseFactory.createMatchingResponseService(
+            getHubSignatureTrustEngine(),
+            responseFactory.createMsaAssertionService(getMsaSignatureTrustEngine(), new SignatureValidatorFactory(), dateTimeComparator),
+            dateTimeComparator
         );
     }
 
-    public TranslateNonMatchingSamlResponseResource getTranslateNonMatchingSamlResponseResource() {
+    private ResponseService<TranslatedNonMatchingResponseBody> createNonMatchingResponseService(Executor validationExecutor) {
         IdpAssertionService idpAssertionService = responseFactory.createIdpAssertionService(
                 getHubSignatureTrustEngine(),
                 new SignatureValidatorFactory(),
                 dateTimeComparator,
-                configuration.getHashingEntityId()
+                configuration.getHashingEntityId(),
+                validationExecutor
         );
 
         EidasAssertionService eidasAssertionService = responseFactory.createEidasAssertionService(
@@ -120,13 +256,75 @@ public class VerifyServiceProviderFactory {
                 getEidasMetadataResolverRepository()
         );
 
-        return new TranslateNonMatchingSamlResponseResource(
-                responseFactory.createNonMatchingResponseService(
-                        getHubSignatureTrustEngine(),
-                        new ClassifyingAssertionService(idpAssertionService, eidasAssertionService),
-                        dateTimeComparator
-                ),
-                entityIdService
+        return responseFactory.createNonMatchingResponseService(
+                getHubSignatureTrustEngine(),
+                new ClassifyingAssertionService(idpAssertionService, eidasAssertionService),
+                dateTimeComparator
+        );
+    }
+
+    /**
+     * Translates responses signed by a throwaway key and encrypted for our own primary key, through its own
+     * response service, so that warming up touches neither the hub nor the application's metrics and caches.
+     */
+    public WarmUpService getWarmUpService(ObjectMapper objectMapper, ExecutorService warmUpExecutorService) throws KeyException, NoSuchAlgorithmException {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        KeyPair primaryEncryptionKeyPair = createKeyPair(configuration.getSamlPrimaryEncryptionKey());
+        SyntheticResponseFactory syntheticResponseFactory = new SyntheticResponseFactory(keyPairGenerator.generateKeyPair(), primaryEncryptionKeyPair.getPublic());
+
+        AuthnRequestFactory authnRequestFactory = new AuthnRequestFactory(
+            configuration.getHubSsoLocation(),
+            createKeyPair(configuration.getSamlSigningKey()),
+            manifestReader,
+            new EncrypterFactory(entityId -> syntheticResponseFactory.getEncryptionCredential(), SyntheticResponseFactory.HUB_ENTITY_ID)
+        );
+
+        ExplicitKeySignatureTrustEngine trustEngine = syntheticResponseFactory.createTrustEngine();
+        ResponseFactory warmUpResponseFactory = ResponseFactory.builder(singletonList(primaryEncryptionKeyPair))
+            .withResponseValidationConfiguration(configuration.getResponseValidation())
+            .withCryptoProviderConfiguration(configuration.getCryptoProviders())
+            .build();
+        ResponseService<TranslatedResponseBody> responseService = warmUpResponseFactory.createMatchingResponseService(
+            trustEngine,
+            warmUpResponseFactory.createMsaAssertionService(trustEngine, new SignatureValidatorFactory(), dateTimeComparator),
+            dateTimeComparator
+        );
+
+        return new WarmUpService(
+            authnRequestFactory,
+            syntheticResponseFactory,
+            responseService,
+            objectMapper,
+            configuration.getHubSsoLocation(),
+            configuration.getServiceEntityIds().get(0),
+            configuration.getWarmUp().getIterations(),
+            warmUpExecutorService
+        );
+    }
+
+    public EidasMetadataRefresher getEidasMetadataRefresher(ScheduledExecutorService scheduler, ExecutorService refreshExecutorService) {
+        EidasMetadataRefreshConfiguration eidasMetadataRefresh = configuration.getEidasMetadataRefresh();
+        return new EidasMetadataRefresher(
+            getEidasMetadataResolverRepository(),
+            scheduler,
+            refreshExecutorService,
+            eidasMetadataRefresh.getMaxJitterMillis(),
+            eidasMetadataRefresh.getTimeoutMillis(),
+            metricRegistry,
+            "eidas-metadata"
+        );
+    }
+
+    public MetadataFreshnessMonitor getMetadataFreshnessMonitor() {
+        boolean europeanIdentityEnabled = configuration.getEuropeanIdentity() != null && configuration.getEuropeanIdentity().isEnabled();
+        return new MetadataFreshnessMonitor(
+            asList(
+                new MetadataFreshnessMonitor.Source("hub-metadata", configuration.getVerifyHubMetadata().getExpectedEntityId(), this::getHubMetadataResolver),
+                new MetadataFreshnessMonitor.Source("msa-metadata", configuration.getMsaMetadata().getExpectedEntityId(), this::getMsaMetadataResolver)
+            ),
+            europeanIdentityEnabled ? Optional.of(getEidasMetadataResolverRepository()) : Optional.empty(),
+            metricRegistry
         );
     }
 
@@ -135,26 +333,178 @@ public class VerifyServiceProviderFactory {
     }
 
     private ExplicitKeySignatureTrustEngine getHubSignatureTrustEngine() {
-        return verifyMetadataBundler.getSignatureTrustEngine();
+        if (hubSignatureTrustEngine == null) {
+            hubSignatureTrustEngine = createCachingSignatureTrustEngine(verifyMetadataBundler, this::getHubMetadataResolver, "hub-metadata");
+        }
+        return hubSignatureTrustEngine;
     }
 
     private MetadataCredentialResolver getHubMetadataCredentialResolver() {
+        if (configuration.getMetadataSnapshots().isEnabled()) {
+            return createMetadataCredentialResolver(getHubMetadataResolver());
+        }
         return verifyMetadataBundler.getMetadataCredentialResolver();
     }
 
     private ExplicitKeySignatureTrustEngine getMsaSignatureTrustEngine() {
-        return msaMetadataBundle.getSignatureTrustEngine();
+        if (msaSignatureTrustEngine == null) {
+            msaSignatureTrustEngine = createCachingSignatureTrustEngine(msaMetadataBundle, this::getMsaMetadataResolver, "msa-metadata");
+        }
+        return msaSignatureTrustEngine;
+    }
+
+    private ExplicitKeySignatureTrustEngine createCachingSignatureTrustEngine(
+        MetadataResolverBundle metadataBundle,
+        Supplier<MetadataResolver> metadataResolver,
+        String metricPrefix
+    ) {
+        ExplicitKeySignatureTrustEngine trustEngine = configuration.getMetadataSnapshots().isEnabled()
+            ? new ExplicitKeySignatureTrustEngine(
+                createMetadataCredentialResolver(metadataResolver.get()),
+                DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver()
+            )
+            : metadataBundle.getSignatureTrustEngine();
+        CredentialResolver credentialResolver = new CachingMetadataCredentialResolver(
+            trustEngine.getCredentialResolver(),
+            CachingMetadataCredentialResolver.lastRefreshOf(metadataResolver),
+            metricRegistry,
+            name(metricPrefix, "credential-cache")
+        );
+        if (metadataIndexExecutor.isPresent()) {
+            credentialResolver = new IndexedMetadataCredentialResolver(
+                credentialResolver,
+                metadataResolver,
+                CachingMetadataCredentialResolver.lastRefreshOf(metadataResolver),
+                trustEngine.getKeyInfoResolver(),
+                metadataIndexExecutor.get(),
+                metricRegistry,
+                name(metricPrefix, "index")
+            );
+        }
+        return new ExplicitKeySignatureTrustEngine(credentialResolver, trustEngine.getKeyInfoResolver());
+    }
+
+    /**
+     * With metadata snapshots enabled the hub and MSA metadata comes from our own snapshot-backed resolvers, and the
+     * bundles are never run.
+     */
+    public MetadataResolver getHubMetadataResolver() {
+        if (!configuration.getMetadataSnapshots().isEnabled()) {
+            return verifyMetadataBundler.getMetadataResolver();
+        }
+        if (hubSnapshotBackedMetadataResolver == null) {
+            hubSnapshotBackedMetadataResolver = createSnapshotBackedMetadataResolver(
+                configuration.getVerifyHubMetadata(),
+                "hub-metadata",
+                Optional.of(createHubMetadataSignatureValidationFilter())
+            );
+        }
+        return hubSnapshotBackedMetadataResolver;
+    }
+
+    public MetadataResolver getMsaMetadataResolver() {
+        if (!configuration.getMetadataSnapshots().isEnabled()) {
+            return msaMetadataBundle.getMetadataResolver();
+        }
+        if (msaSnapshotBackedMetadataResolver == null) {
+            // MSA metadata is not signed, so like the MSA bundle this resolver does not validate signatures
+            msaSnapshotBackedMetadataResolver = createSnapshotBackedMetadataResolver(
+                configuration.getMsaMetadata(),
+                "msa-metadata",
+                Optional.empty()
+            );
+        }
+        return msaSnapshotBackedMetadataResolver;
+    }
+
+    private MetadataResolver createSnapshotBackedMetadataResolver(
+        MetadataConfiguration metadataConfiguration,
+        String source,
+        Optional<SignatureValidationFilter> signatureValidationFilter
+    ) {
+        SnapshotBackedMetadataResolver metadataResolver = new SnapshotBackedMetadataResolver(
+            new Timer(source + "-refresh", true),
+            client,
+            metadataConfiguration.getUri(),
+            new MetadataSnapshotStore(configuration.getMetadataSnapshots().getDirectory()),
+            source,
+            metricRegistry
+        );
+        metadataResolver.setId(source);
+        metadataResolver.setParserPool(XMLObjectProviderRegistrySupport.getParserPool());
+        metadataResolver.setMinRefreshDelay(metadataConfiguration.getMinRefreshDelay());
+        metadataResolver.setMaxRefreshDelay(metadataConfiguration.getMaxRefreshDelay());
+        metadataResolver.setRequireValidMetadata(true);
+        metadataResolver.setFailFastInitialization(false);
+        signatureValidationFilter
+            .map(filter -> new TimedMetadataFilter(filter, metricRegistry.timer(name(source, "signature-verification"))))
+            .ifPresent(metadataResolver::setMetadataFilter);
+        try {
+            metadataResolver.initialize();
+        } catch (ComponentInitializationException e) {
+            throw new IllegalStateException(String.format("Could not initialise the %s resolver", source), e);
+        }
+        return metadataResolver;
+    }
+
+    private SignatureValidationFilter createHubMetadataSignatureValidationFilter() {
+        BasicPKIXValidationInformation validationInformation = new BasicPKIXValidationInformation(
+            getCertificates(configuration.getVerifyHubMetadata().getTrustStore()),
+            Collections.emptyList(),
+            HUB_METADATA_CERTIFICATE_CHAIN_DEPTH
+        );
+        SignatureValidationFilter signatureValidationFilter = new SignatureValidationFilter(new PKIXSignatureTrustEngine(
+            new StaticPKIXValidationInformationResolver(singletonList(validationInformation), Collections.emptySet()),
+            DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver()
+        ));
+        signatureValidationFilter.setRequireSignedRoot(true);
+        return signatureValidationFilter;
+    }
+
+    private static List<X509Certificate> getCertificates(KeyStore trustStore) {
+        try {
+            List<X509Certificate> certificates = new ArrayList<>();
+            for (String alias : Collections.list(trustStore.aliases())) {
+                certificates.add((X509Certificate) trustStore.getCertificate(alias));
+            }
+            return certificates;
+        } catch (KeyStoreException e) {
+            throw new IllegalStateException("Could not read the hub metadata trust store", e);
+        }
+    }
+
+    private static MetadataCredentialResolver createMetadataCredentialResolver(MetadataResolver metadataResolver) {
+        try {
+            PredicateRoleDescriptorResolver roleDescriptorResolver = new PredicateRoleDescriptorResolver(metadataResolver);
+            roleDescriptorResolver.initialize();
+            MetadataCredentialResolver credentialResolver = new MetadataCredentialResolver();
+            credentialResolver.setRoleDescriptorResolver(roleDescriptorResolver);
+            credentialResolver.setKeyInfoCredentialResolver(DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver());
+            credentialResolver.initialize();
+            return credentialResolver;
+        } catch (ComponentInitializationException e) {
+            throw new IllegalStateException("Could not create a credential resolver for the metadata", e);
+        }
     }
 
     private EidasMetadataResolverRepository getEidasMetadataResolverRepository() {
+        if (eidasMetadataResolverRepository == null) {
+            eidasMetadataResolverRepository = createEidasMetadataResolverRepository();
+        }
+        return eidasMetadataResolverRepository;
+    }
+
+    private EidasMetadataResolverRepository createEidasMetadataResolverRepository() {
         return new EidasMetadataResolverRepository(
             getEidasTrustAnchorResolver(),
             configuration.getEuropeanIdentity().getAggregatedMetadata(),
             new DropwizardMetadataResolverFactory(),
-            new Timer(),
+            configuration.getEidasMetadataRefresh().isEnabled()
+                ? new MetadataRefreshSuppressingTimer("eidas-metadata-repository")
+                : new Timer("eidas-metadata-repository", true),
             new MetadataSignatureTrustEngineFactory(),
             new MetadataResolverConfigBuilder(),
-            client
+            eidasMetadataClient
         );
     }
 
@@ -16,7 +16,6 @@ import org.opensaml.saml.saml2.core.impl.IssuerBuilder;
 import org.opensaml.xmlsec.algorithm.descriptors.DigestSHA256;
 import org.opensaml.xmlsec.algorithm.descriptors.SignatureRSASHA256;
 import org.opensaml.xmlsec.encryption.support.EncryptionException;
-import org.opensaml.xmlsec.signature.Signature;
 import org.opensaml.xmlsec.signature.support.SignatureException;
 import org.opensaml.xmlsec.signature.support.Signer;
 import org.slf4j.Logger;
@@ -43,36 +42,56 @@ public class AuthnRequestFactory {
 
     private static final Logger LOG = LoggerFactory.getLogger(AuthnRequestFactory.class);
 
-    private final URI destination;
+    private static final String UNKNOWN_VERSION = "UNKNOWN_VERSION";
+
+    private final String destination;
     private final ManifestReader manifestReader;
     private final EncrypterFactory encrypterFactory;
-    private KeyPair signingKeyPair;
-
+    private final SignatureFactory signatureFactory;
+    private volatile String applicationManifestVersion;
+
+    /**
+     * Everything that is the same for every request, the destination, the signing credential and algorithms,
+     * and the application version, is prepared once and shared between threads. Each request only builds its
+     * own ID, IssueInstant, Issuer and encrypted Versions extension before it is signed.
+     */
     public AuthnRequestFactory(
             URI destination,
             KeyPair signingKeyPair,
             ManifestReader manifestReader,
             EncrypterFactory encrypterFactory
     ) {
-        this.destination = destination;
+        this.destination = destination.toString();
         this.manifestReader = manifestReader;
         this.encrypterFactory = encrypterFactory;
-        this.signingKeyPair = signingKeyPair;
+        this.signatureFactory = new SignatureFactory(
+            new IdaKeyStoreCredentialRetriever(new IdaKeyStore(signingKeyPair, Collections.emptyList())),
+            new SignatureRSASHA256(),
+            new DigestSHA256()
+        );
     }
 
     public AuthnRequest build(LevelOfAssurance levelOfAssurance, String serviceEntityId) {
+        return build(serviceEntityId);
+    }
+
+    /**
+     * The level of assurance is not part of the AuthnRequest, so a request built for a service can be sent at any
+     * level of assurance.
+     */
+    public AuthnRequest build(String serviceEntityId) {
         AuthnRequest authnRequest = new AuthnRequestBuilder().buildObject();
         authnRequest.setID(String.format("_%s", UUID.randomUUID()));
         authnRequest.setIssueInstant(DateTime.now());
         authnRequest.setForceAuthn(false);
-        authnRequest.setDestination(destination.toString());
+        authnRequest.setDestination(destination);
         authnRequest.setExtensions(createExtensions());
 
         Issuer issuer = new IssuerBuilder().buildObject();
         issuer.setValue(serviceEntityId);
         authnRequest.setIssuer(issuer);
 
-        authnRequest.setSignature(createSignature());
+        authnRequest.setSignature(signatureFactory.createSignature());
 
         try {
             XMLObjectProviderRegistrySupport.getMarshallerFactory().getMarshaller(authnRequest).marshall(authnRequest);
@@ -103,27 +122,23 @@ public class AuthnRequestFactory {
 
     private Version createApplicationVersion() {
         ApplicationVersion applicationVersion = new ApplicationVersionImpl();
-
-        String applicationManifestVersion = "UNKNOWN_VERSION";
-        try {
-            applicationManifestVersion = manifestReader.getAttributeValueFor(VerifyServiceProviderApplication.class, "Version");
-        } catch (IOException e) {
-            LOG.error("Failed to read version number from the manifest", e);
-        }
-
-        applicationVersion.setValue(applicationManifestVersion);
+        applicationVersion.setValue(getApplicationManifestVersion());
         Version version = new VersionImpl() {{
             setApplicationVersion(applicationVersion);
         }};
         return version;
     }
 
-    private Signature createSignature() {
-        IdaKeyStore keyStore = new IdaKeyStore(signingKeyPair, Collections.emptyList());
-        IdaKeyStoreCredentialRetriever keyStoreCredentialRetriever = new IdaKeyStoreCredentialRetriever(keyStore);
-        SignatureRSASHA256 signatureAlgorithm = new SignatureRSASHA256();
-        DigestSHA256 digestAlgorithm = new DigestSHA256();
-        SignatureFactory signatureFactory = new SignatureFactory(keyStoreCredentialRetriever, signatureAlgorithm, digestAlgorithm);
-        return signatureFactory.createSignature();
+    private String getApplicationManifestVersion() {
+        // The manifest cannot change while the application is running, so it is only read once
+        if (applicationManifestVersion == null) {
+            try {
+                applicationManifestVersion = manifestReader.getAttributeValueFor(VerifyServiceProviderApplication.class, "Version");
+            } catch (IOException e) {
+                LOG.error("Failed to read version number from the manifest", e);
+                applicationManifestVersion = UNKNOWN_VERSION;
+            }
+        }
+        return applicationManifestVersion;
     }
 }
@@ -0,0 +1,18 @@
+package uk.gov.ida.verifyserviceprovider.factories.saml;
+
+import org.opensaml.saml.saml2.core.AuthnRequest;
+
+/**
+ * Supplies signed AuthnRequests to the request threads.
+ */
+public interface AuthnRequestPool {
+
+    /**
+     * @return a signed AuthnRequest that has not been handed out before
+     */
+    AuthnRequest take(String serviceEntityId);
+
+    static AuthnRequestPool disabled(AuthnRequestFactory authnRequestFactory) {
+        return authnRequestFactory::build;
+    }
+}
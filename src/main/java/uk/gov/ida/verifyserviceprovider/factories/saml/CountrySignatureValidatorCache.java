@@ -0,0 +1,69 @@
+package uk.gov.ida.verifyserviceprovider.factories.saml;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
+import uk.gov.ida.saml.metadata.MetadataResolverRepository;
+import uk.gov.ida.saml.security.SamlAssertionsSignatureValidator;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Remembers the assertion signature validator built for each country's entity ID. The repository replaces a
+ * country's trust engine when it refreshes that country, so a validator is rebuilt only when the trust engine
+ * it was built from is no longer the one the repository returns. Validators for countries that have been
+ * removed from the repository are forgotten.
+ */
+public class CountrySignatureValidatorCache {
+
+    private final MetadataResolverRepository metadataResolverRepository;
+    private final SignatureValidatorFactory signatureValidatorFactory;
+    private final ConcurrentMap<String, CachedValidator> validators = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter rebuilds;
+
+    public CountrySignatureValidatorCache(
+        MetadataResolverRepository metadataResolverRepository,
+        SignatureValidatorFactory signatureValidatorFactory,
+        MetricRegistry metricRegistry,
+        String metricPrefix
+    ) {
+        this.metadataResolverRepository = metadataResolverRepository;
+        this.signatureValidatorFactory = signatureValidatorFactory;
+        this.hits = metricRegistry.counter(name(metricPrefix, "hits"));
+        this.rebuilds = metricRegistry.counter(name(metricPrefix, "rebuilds"));
+    }
+
+    public Optional<SamlAssertionsSignatureValidator> getSignatureValidator(String entityId) {
+        Optional<ExplicitKeySignatureTrustEngine> trustEngine = metadataResolverRepository.getSignatureTrustEngine(entityId);
+        if (!trustEngine.isPresent()) {
+            validators.remove(entityId);
+            return Optional.empty();
+        }
+
+        CachedValidator cached = validators.get(entityId);
+        if (cached != null && cached.trustEngine == trustEngine.get()) {
+            hits.inc();
+            return Optional.of(cached.validator);
+        }
+
+        rebuilds.inc();
+        Optional<SamlAssertionsSignatureValidator> validator = signatureValidatorFactory.getSignatureValidator(trustEngine);
+        validator.ifPresent(built -> validators.put(entityId, new CachedValidator(trustEngine.get(), built)));
+        return validator;
+    }
+
+    private static class CachedValidator {
+        private final ExplicitKeySignatureTrustEngine trustEngine;
+        private final SamlAssertionsSignatureValidator validator;
+
+        private CachedValidator(ExplicitKeySignatureTrustEngine trustEngine, SamlAssertionsSignatureValidator validator) {
+            this.trustEngine = trustEngine;
+            this.validator = validator;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package uk.gov.ida.verifyserviceprovider.factories.saml;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Keeps a bounded queue of signed AuthnRequests for each service entity ID, refilled in the background by calling
+ * {@link #refill()} on a schedule, so that request threads do not have to wait for an RSA signature. The level of
+ * assurance is not part of the request, so one queue serves every level. Requests older than the maximum age are
+ * discarded rather than handed out, so their IssueInstant stays within the hub's tolerance. When a queue is empty the
+ * request is built and signed on the request thread, as it is without a pool.
+ *
+ * Each request is handed out at most once.
+ */
+public class PreSignedAuthnRequestPool implements AuthnRequestPool {
+
+    private final AuthnRequestFactory authnRequestFactory;
+    private final Map<String, BlockingQueue<AuthnRequest>> queues = new HashMap<>();
+    private final Duration maxAge;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter expired;
+
+    public PreSignedAuthnRequestPool(
+        AuthnRequestFactory authnRequestFactory,
+        List<String> serviceEntityIds,
+        int size,
+        Duration maxAge,
+        MetricRegistry metricRegistry,
+        String metricPrefix
+    ) {
+        this.authnRequestFactory = authnRequestFactory;
+        this.maxAge = maxAge;
+        for (String serviceEntityId : serviceEntityIds) {
+            queues.put(serviceEntityId, new ArrayBlockingQueue<>(size));
+        }
+        this.hits = metricRegistry.counter(name(metricPrefix, "hits"));
+        this.misses = metricRegistry.counter(name(metricPrefix, "misses"));
+        this.expired = metricRegistry.counter(name(metricPrefix, "expired"));
+    }
+
+    @Override
+    public AuthnRequest take(String serviceEntityId) {
+        BlockingQueue<AuthnRequest> queue = queues.get(serviceEntityId);
+        if (queue != null) {
+            DateTime oldestAcceptable = DateTime.now().minus(maxAge);
+            AuthnRequest authnRequest;
+            while ((authnRequest = queue.poll()) != null) {
+                if (authnRequest.getIssueInstant().isAfter(oldestAcceptable)) {
+                    hits.inc();
+                    return authnRequest;
+                }
+                expired.inc();
+            }
+        }
+        misses.inc();
+        return authnRequestFactory.build(serviceEntityId);
+    }
+
+    /**
+     * Discards expired requests from the head of each queue and tops every queue up to its size.
+     */
+    public void refill() {
+        for (Map.Entry<String, BlockingQueue<AuthnRequest>> entry : queues.entrySet()) {
+            String serviceEntityId = entry.getKey();
+            BlockingQueue<AuthnRequest> queue = entry.getValue();
+
+            DateTime oldestAcceptable = DateTime.now().minus(maxAge);
+            AuthnRequest head;
+            while ((head = queue.peek()) != null && !head.getIssueInstant().isAfter(oldestAcceptable)) {
+                if (queue.remove(head)) {
+                    expired.inc();
+                }
+            }
+            while (queue.remainingCapacity() > 0) {
+                queue.offer(authnRequestFactory.build(serviceEntityId));
+            }
+        }
+    }
+}
@@ -1,7 +1,15 @@
 package uk.gov.ida.verifyserviceprovider.factories.saml;
 
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.Duration;
 import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.encryption.Decrypter;
+import org.opensaml.saml.saml2.encryption.EncryptedElementTypeEncryptedKeyResolver;
 import org.opensaml.security.credential.Credential;
+import org.opensaml.xmlsec.encryption.support.ChainingEncryptedKeyResolver;
+import org.opensaml.xmlsec.encryption.support.EncryptedKeyResolver;
+import org.opensaml.xmlsec.encryption.support.InlineEncryptedKeyResolver;
+import org.opensaml.xmlsec.encryption.support.SimpleRetrievalMethodEncryptedKeyResolver;
 import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
 import uk.gov.ida.saml.core.domain.AddressFactory;
 import uk.gov.ida.saml.core.transformers.EidasMatchingDatasetUnmarshaller;
@@ -9,12 +17,10 @@ import uk.gov.ida.saml.core.transformers.VerifyMatchingDatasetUnmarshaller;
 import uk.gov.ida.saml.core.validators.assertion.AssertionAttributeStatementValidator;
 import uk.gov.ida.saml.deserializers.OpenSamlXMLObjectUnmarshaller;
 import uk.gov.ida.saml.deserializers.StringToOpenSamlObjectTransformer;
-import uk.gov.ida.saml.deserializers.parser.SamlObjectParser;
 import uk.gov.ida.saml.deserializers.validators.Base64StringDecoder;
 import uk.gov.ida.saml.deserializers.validators.NotNullSamlStringValidator;
 import uk.gov.ida.saml.metadata.EidasMetadataResolverRepository;
 import uk.gov.ida.saml.security.AssertionDecrypter;
-import uk.gov.ida.saml.security.DecrypterFactory;
 import uk.gov.ida.saml.security.IdaKeyStore;
 import uk.gov.ida.saml.security.IdaKeyStoreCredentialRetriever;
 import uk.gov.ida.saml.security.MetadataBackedSignatureValidator;
@@ -22,9 +28,20 @@ import uk.gov.ida.saml.security.SamlAssertionsSignatureValidator;
 import uk.gov.ida.saml.security.SamlMessageSignatureValidator;
 import uk.gov.ida.saml.security.validators.encryptedelementtype.EncryptionAlgorithmValidator;
 import uk.gov.ida.saml.security.validators.signature.SamlResponseSignatureValidator;
+import uk.gov.ida.verifyserviceprovider.cache.EncryptedTranslationResultCache;
+import uk.gov.ida.verifyserviceprovider.cache.ReplayCache;
+import uk.gov.ida.verifyserviceprovider.cache.TranslationResultCache;
+import uk.gov.ida.verifyserviceprovider.configuration.CryptoProviderConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.ResponseValidationConfiguration;
+import uk.gov.ida.verifyserviceprovider.configuration.TranslationResultCacheConfiguration;
 import uk.gov.ida.verifyserviceprovider.dto.TranslatedNonMatchingResponseBody;
 import uk.gov.ida.verifyserviceprovider.dto.TranslatedResponseBody;
 import uk.gov.ida.verifyserviceprovider.mappers.MatchingDatasetToNonMatchingAttributesMapper;
+import uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics;
+import uk.gov.ida.verifyserviceprovider.saml.HardenedDocumentBuilderPool;
+import uk.gov.ida.verifyserviceprovider.saml.KeyAffinityDecryptionCredentialResolver;
+import uk.gov.ida.verifyserviceprovider.saml.PooledSamlObjectParser;
+import uk.gov.ida.verifyserviceprovider.saml.StreamingStringToOpenSamlObjectTransformer;
 import uk.gov.ida.verifyserviceprovider.services.AssertionClassifier;
 import uk.gov.ida.verifyserviceprovider.services.AssertionService;
 import uk.gov.ida.verifyserviceprovider.services.EidasAssertionService;
@@ -32,33 +49,78 @@ import uk.gov.ida.verifyserviceprovider.services.MsaAssertionService;
 import uk.gov.ida.verifyserviceprovider.services.IdpAssertionService;
 import uk.gov.ida.verifyserviceprovider.services.ResponseService;
 import uk.gov.ida.verifyserviceprovider.utils.DateTimeComparator;
+import uk.gov.ida.verifyserviceprovider.utils.DefaultObjectMapper;
 import uk.gov.ida.verifyserviceprovider.validators.AssertionValidator;
 import uk.gov.ida.verifyserviceprovider.validators.AudienceRestrictionValidator;
 import uk.gov.ida.verifyserviceprovider.validators.ConditionsValidator;
 import uk.gov.ida.verifyserviceprovider.validators.InstantValidator;
 import uk.gov.ida.verifyserviceprovider.validators.LevelOfAssuranceValidator;
+import uk.gov.ida.verifyserviceprovider.validators.ResponsePrecheckValidator;
 import uk.gov.ida.verifyserviceprovider.validators.ResponseSizeValidator;
 import uk.gov.ida.verifyserviceprovider.validators.SubjectValidator;
 import uk.gov.ida.verifyserviceprovider.validators.TimeRestrictionValidator;
 
 import java.security.KeyPair;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Arrays.asList;
 
 public class ResponseFactory {
 
     private static final NotNullSamlStringValidator notNullSamlStringValidator = new NotNullSamlStringValidator();
     private static final Base64StringDecoder base64StringDecoder = new Base64StringDecoder();
     private static final ResponseSizeValidator responseSizeValidator = new ResponseSizeValidator();
-    private static final SamlObjectParser samlObjectParser = new SamlObjectParser();
+    private static final HardenedDocumentBuilderPool documentBuilderPool = new HardenedDocumentBuilderPool();
+    private static final PooledSamlObjectParser samlObjectParser = new PooledSamlObjectParser(documentBuilderPool);
     private static final OpenSamlXMLObjectUnmarshaller<Response> responseOpenSamlXMLObjectUnmarshaller = new OpenSamlXMLObjectUnmarshaller<>(samlObjectParser);
     private static final EncryptionAlgorithmValidator encryptionAlgorithmValidator = new EncryptionAlgorithmValidator();
-    private static final DecrypterFactory decrypterFactory = new DecrypterFactory();
+    private static final EncryptedKeyResolver encryptedKeyResolver = new ChainingEncryptedKeyResolver(asList(
+            new InlineEncryptedKeyResolver(),
+            new EncryptedElementTypeEncryptedKeyResolver(),
+            new SimpleRetrievalMethodEncryptedKeyResolver()
+    ));
+    private static final List<String> DECRYPTION_KEY_NAMES = asList("primary", "secondary");
+
+    private static final String MATCHING_ENDPOINT = "translate-response";
+    private static final String NON_MATCHING_ENDPOINT = "translate-non-matching-response";
 
     private List<KeyPair> encryptionKeyPairs;
+    private final MetricRegistry metricRegistry;
+    private final ReplayCache replayCache;
+    private final TranslationResultCacheConfiguration resultCacheConfiguration;
+    private final ResponseValidationConfiguration responseValidationConfiguration;
+    private final CryptoProviderConfiguration cryptoProviderConfiguration;
+    private final Optional<Executor> speculativeDecryptionExecutor;
 
     public ResponseFactory(List<KeyPair> encryptionKeyPairs) {
-        this.encryptionKeyPairs = encryptionKeyPairs;
+        this(builder(encryptionKeyPairs));
+    }
+
+    private ResponseFactory(Builder builder) {
+        this.encryptionKeyPairs = builder.encryptionKeyPairs;
+        this.metricRegistry = builder.metricRegistry;
+        this.replayCache = builder.replayCache;
+        this.resultCacheConfiguration = builder.resultCacheConfiguration;
+        this.responseValidationConfiguration = builder.responseValidationConfiguration;
+        this.cryptoProviderConfiguration = builder.cryptoProviderConfiguration;
+        this.speculativeDecryptionExecutor = builder.speculativeDecryptionExecutor;
+    }
+
+    public static Builder builder(List<KeyPair> encryptionKeyPairs) {
+        return new Builder(encryptionKeyPairs);
+    }
+
+    /**
+     * The SAML parser pool is shared by every response factory, so its metrics are registered once by the application
+     * rather than by each factory.
+     */
+    public static void registerParserPoolMetrics(MetricRegistry metricRegistry) {
+        documentBuilderPool.registerMetrics(metricRegistry, "saml-parser-pool");
     }
 
     public static StringToOpenSamlObjectTransformer<Response> createStringToResponseTransformer() {
@@ -70,11 +132,19 @@ public class ResponseFactory {
         );
     }
 
+    public static StreamingStringToOpenSamlObjectTransformer<Response> createStreamingStringToResponseTransformer() {
+        return new StreamingStringToOpenSamlObjectTransformer<>(
+                samlObjectParser,
+                ResponseSizeValidator.MAX_SAML_RESPONSE_LENGTH,
+                createStringToResponseTransformer()
+        );
+    }
+
     public AssertionDecrypter createAssertionDecrypter() {
         List<Credential> decryptingCredentials = new IdaKeyStoreCredentialRetriever(createEncryptionKeyStore()).getDecryptingCredentials();
         return new AssertionDecrypter(
                 encryptionAlgorithmValidator,
-                decrypterFactory.createDecrypter(decryptingCredentials)
+                createKeyAffinityDecrypter(decryptingCredentials)
         );
     }
 
@@ -87,11 +157,16 @@ public class ResponseFactory {
         MetadataBackedSignatureValidator metadataBackedSignatureValidator = createMetadataBackedSignatureValidator(hubSignatureTrustEngine);
 
         return new ResponseService<>(
-                createStringToResponseTransformer(),
+                createStreamingStringToResponseTransformer(),
                 assertionDecrypter,
                 matchingAssertionService,
                 new SamlResponseSignatureValidator(new SamlMessageSignatureValidator(metadataBackedSignatureValidator)),
-                new InstantValidator(dateTimeComparator)
+                new InstantValidator(dateTimeComparator),
+                createPrecheckValidator(dateTimeComparator),
+                new ResponseMetrics<>(metricRegistry, MATCHING_ENDPOINT, TranslatedResponseBody::getScenario),
+                replayCache,
+                createResultCache(TranslatedResponseBody.class, MATCHING_ENDPOINT),
+                speculativeDecryptionExecutor
         );
     }
 
@@ -104,11 +179,16 @@ public class ResponseFactory {
         MetadataBackedSignatureValidator metadataBackedSignatureValidator = createMetadataBackedSignatureValidator(hubSignatureTrustEngine);
 
         return new ResponseService<>(
-                createStringToResponseTransformer(),
+                createStreamingStringToResponseTransformer(),
                 assertionDecrypter,
                 nonMatchingAssertionService,
                 new SamlResponseSignatureValidator(new SamlMessageSignatureValidator(metadataBackedSignatureValidator)),
-                new InstantValidator(dateTimeComparator)
+                new InstantValidator(dateTimeComparator),
+                createPrecheckValidator(dateTimeComparator),
+                new ResponseMetrics<>(metricRegistry, NON_MATCHING_ENDPOINT, TranslatedNonMatchingResponseBody::getScenario),
+                replayCache,
+                createResultCache(TranslatedNonMatchingResponseBody.class, NON_MATCHING_ENDPOINT),
+                speculativeDecryptionExecutor
         );
     }
 
@@ -136,7 +216,8 @@ public class ResponseFactory {
     public IdpAssertionService createIdpAssertionService(ExplicitKeySignatureTrustEngine signatureTrustEngine,
                                                          SignatureValidatorFactory signatureValidatorFactory,
                                                          DateTimeComparator dateTimeComparator,
-                                                         String hashingEntityId) {
+                                                         String hashingEntityId,
+                                                         Executor validationExecutor) {
 
         TimeRestrictionValidator timeRestrictionValidator = new TimeRestrictionValidator(dateTimeComparator);
 
@@ -148,7 +229,8 @@ public class ResponseFactory {
                 new AssertionClassifier(),
                 new MatchingDatasetToNonMatchingAttributesMapper(),
                 new LevelOfAssuranceValidator(),
-                new UserIdHashFactory(hashingEntityId)
+                new UserIdHashFactory(hashingEntityId),
+                validationExecutor
             );
     }
 
@@ -167,7 +249,49 @@ public class ResponseFactory {
                 new ConditionsValidator(timeRestrictionValidator, audienceRestrictionValidator),
                 new LevelOfAssuranceValidator(),
                 eidasMetadataResolverRepository,
-                new SignatureValidatorFactory());
+                new CountrySignatureValidatorCache(
+                        eidasMetadataResolverRepository,
+                        new SignatureValidatorFactory(),
+                        metricRegistry,
+                        name("eidas-metadata", "signature-validator-cache")
+                ));
+    }
+
+    private ResponsePrecheckValidator createPrecheckValidator(DateTimeComparator dateTimeComparator) {
+        if (!responseValidationConfiguration.isCheapChecksFirst()) {
+            return ResponsePrecheckValidator.disabled();
+        }
+        return new ResponsePrecheckValidator(new InstantValidator(dateTimeComparator));
+    }
+
+    private <T> TranslationResultCache<T> createResultCache(Class<T> type, String endpoint) {
+        if (!resultCacheConfiguration.isEnabled()) {
+            return TranslationResultCache.disabled();
+        }
+        return new EncryptedTranslationResultCache<>(
+                type,
+                Duration.standardSeconds(resultCacheConfiguration.getTimeToLiveSeconds()),
+                resultCacheConfiguration.getMaxEntries(),
+                DefaultObjectMapper.OBJECT_MAPPER,
+                metricRegistry,
+                name(endpoint, "result-cache")
+        );
+    }
+
+    private Decrypter createKeyAffinityDecrypter(List<Credential> decryptingCredentials) {
+        Map<String, Credential> namedCredentials = new LinkedHashMap<>();
+        for (int i = 0; i < decryptingCredentials.size(); i++) {
+            namedCredentials.put(i < DECRYPTION_KEY_NAMES.size() ? DECRYPTION_KEY_NAMES.get(i) : "key-" + i, decryptingCredentials.get(i));
+        }
+
+        Decrypter decrypter = new Decrypter(
+                null,
+                new KeyAffinityDecryptionCredentialResolver(namedCredentials, metricRegistry, "decryption-key"),
+                encryptedKeyResolver
+        );
+        decrypter.setRootInNewDocument(true);
+        decrypter.setJCAProviderName(cryptoProviderConfiguration.getDecryptionProvider());
+        return decrypter;
     }
 
     private MetadataBackedSignatureValidator createMetadataBackedSignatureValidator( ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine ) {
@@ -177,4 +301,57 @@ public class ResponseFactory {
     private IdaKeyStore createEncryptionKeyStore() {
         return new IdaKeyStore(null, encryptionKeyPairs);
     }
+
+    public static class Builder {
+
+        private final List<KeyPair> encryptionKeyPairs;
+        private MetricRegistry metricRegistry = new MetricRegistry();
+        private ReplayCache replayCache = ReplayCache.disabled();
+        private TranslationResultCacheConfiguration resultCacheConfiguration = new TranslationResultCacheConfiguration();
+        private ResponseValidationConfiguration responseValidationConfiguration = new ResponseValidationConfiguration();
+        private CryptoProviderConfiguration cryptoProviderConfiguration = new CryptoProviderConfiguration();
+        private Optional<Executor> speculativeDecryptionExecutor = Optional.empty();
+
+        private Builder(List<KeyPair> encryptionKeyPairs) {
+            this.encryptionKeyPairs = encryptionKeyPairs;
+        }
+
+        public Builder withMetricRegistry(MetricRegistry metricRegistry) {
+            this.metricRegistry = metricRegistry;
+            return this;
+        }
+
+        public Builder withReplayCache(ReplayCache replayCache) {
+            this.replayCache = replayCache;
+            return this;
+        }
+
+        public Builder withResultCacheConfiguration(TranslationResultCacheConfiguration resultCacheConfiguration) {
+            this.resultCacheConfiguration = resultCacheConfiguration;
+            return this;
+        }
+
+        public Builder withResponseValidationConfiguration(ResponseValidationConfiguration responseValidationConfiguration) {
+            this.responseValidationConfiguration = responseValidationConfiguration;
+            return this;
+        }
+
+        public Builder withCryptoProviderConfiguration(CryptoProviderConfiguration cryptoProviderConfiguration) {
+            this.cryptoProviderConfiguration = cryptoProviderConfiguration;
+            return this;
+        }
+
+        /**
+         * @param speculativeDecryptionExecutor if present, assertions are decrypted on this executor while the
+         *                                      response's signature is verified
+         */
+        public Builder withSpeculativeDecryptionExecutor(Optional<Executor> speculativeDecryptionExecutor) {
+            this.speculativeDecryptionExecutor = speculativeDecryptionExecutor;
+            return this;
+        }
+
+        public ResponseFactory build() {
+            return new ResponseFactory(this);
+        }
+    }
 }
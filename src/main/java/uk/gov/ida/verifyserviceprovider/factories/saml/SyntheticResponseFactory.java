@@ -0,0 +1,201 @@
+package uk.gov.ida.verifyserviceprovider.factories.saml;
+
+import org.joda.time.DateTime;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.MarshallingException;
+import org.opensaml.saml.common.SAMLRuntimeException;
+import org.opensaml.saml.common.SignableSAMLObject;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.Audience;
+import org.opensaml.saml.saml2.core.AudienceRestriction;
+import org.opensaml.saml.saml2.core.AuthnContext;
+import org.opensaml.saml.saml2.core.AuthnContextClassRef;
+import org.opensaml.saml.saml2.core.AuthnStatement;
+import org.opensaml.saml.saml2.core.Conditions;
+import org.opensaml.saml.saml2.core.Issuer;
+import org.opensaml.saml.saml2.core.NameID;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.core.Status;
+import org.opensaml.saml.saml2.core.StatusCode;
+import org.opensaml.saml.saml2.core.Subject;
+import org.opensaml.saml.saml2.core.SubjectConfirmation;
+import org.opensaml.saml.saml2.core.SubjectConfirmationData;
+import org.opensaml.saml.saml2.core.impl.AssertionBuilder;
+import org.opensaml.saml.saml2.core.impl.AudienceBuilder;
+import org.opensaml.saml.saml2.core.impl.AudienceRestrictionBuilder;
+import org.opensaml.saml.saml2.core.impl.AuthnContextBuilder;
+import org.opensaml.saml.saml2.core.impl.AuthnContextClassRefBuilder;
+import org.opensaml.saml.saml2.core.impl.AuthnStatementBuilder;
+import org.opensaml.saml.saml2.core.impl.ConditionsBuilder;
+import org.opensaml.saml.saml2.core.impl.IssuerBuilder;
+import org.opensaml.saml.saml2.core.impl.NameIDBuilder;
+import org.opensaml.saml.saml2.core.impl.ResponseBuilder;
+import org.opensaml.saml.saml2.core.impl.StatusBuilder;
+import org.opensaml.saml.saml2.core.impl.StatusCodeBuilder;
+import org.opensaml.saml.saml2.core.impl.SubjectBuilder;
+import org.opensaml.saml.saml2.core.impl.SubjectConfirmationBuilder;
+import org.opensaml.saml.saml2.core.impl.SubjectConfirmationDataBuilder;
+import org.opensaml.security.credential.BasicCredential;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.impl.StaticCredentialResolver;
+import org.opensaml.xmlsec.algorithm.descriptors.DigestSHA256;
+import org.opensaml.xmlsec.algorithm.descriptors.SignatureRSASHA256;
+import org.opensaml.xmlsec.config.DefaultSecurityConfigurationBootstrap;
+import org.opensaml.xmlsec.encryption.support.EncryptionException;
+import org.opensaml.xmlsec.signature.support.SignatureException;
+import org.opensaml.xmlsec.signature.support.Signer;
+import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
+import uk.gov.ida.saml.core.extensions.IdaAuthnContext;
+import uk.gov.ida.saml.security.EncrypterFactory;
+import uk.gov.ida.saml.security.IdaKeyStore;
+import uk.gov.ida.saml.security.IdaKeyStoreCredentialRetriever;
+import uk.gov.ida.saml.security.SignatureFactory;
+import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * Builds hub responses like those the MSA sends, signed by a key that only this factory knows and encrypted
+ * for one of the service's own decryption keys, so the whole translation pipeline can be run without the hub.
+ * Responses are only trusted by the trust engine this factory creates.
+ */
+public class SyntheticResponseFactory {
+
+    public static final String HUB_ENTITY_ID = "synthetic-hub-entity-id";
+    public static final String MSA_ENTITY_ID = "synthetic-msa-entity-id";
+
+    private static final XmlObjectToBase64EncodedStringTransformer<Response> toBase64 = new XmlObjectToBase64EncodedStringTransformer<>();
+
+    private final KeyPair signingKeyPair;
+    private final SignatureFactory signatureFactory;
+    private final Credential encryptionCredential;
+
+    public SyntheticResponseFactory(KeyPair signingKeyPair, PublicKey encryptionKey) {
+        this.signingKeyPair = signingKeyPair;
+        this.signatureFactory = new SignatureFactory(
+            new IdaKeyStoreCredentialRetriever(new IdaKeyStore(signingKeyPair, Collections.emptyList())),
+            new SignatureRSASHA256(),
+            new DigestSHA256()
+        );
+        this.encryptionCredential = new BasicCredential(encryptionKey);
+    }
+
+    public ExplicitKeySignatureTrustEngine createTrustEngine() {
+        return new ExplicitKeySignatureTrustEngine(
+            new StaticCredentialResolver(new BasicCredential(signingKeyPair.getPublic())),
+            DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver()
+        );
+    }
+
+    public Credential getEncryptionCredential() {
+        return encryptionCredential;
+    }
+
+    /**
+     * @return a base64 encoded, signed response containing one encrypted, signed level 2 assertion for a new match
+     */
+    public String createMatchingResponse(String inResponseTo, String audience) {
+        DateTime now = DateTime.now();
+
+        Assertion assertion = sign(createAssertion(inResponseTo, audience, now));
+        Response response = new ResponseBuilder().buildObject();
+        response.setID(newId());
+        response.setIssueInstant(now);
+        response.setInResponseTo(inResponseTo);
+        response.setIssuer(createIssuer(HUB_ENTITY_ID));
+        response.setStatus(createStatus(StatusCode.SUCCESS));
+        try {
+            response.getEncryptedAssertions().add(new EncrypterFactory().createEncrypter(encryptionCredential).encrypt(assertion));
+        } catch (EncryptionException e) {
+            throw new SAMLRuntimeException("Unknown problem while encrypting SAML object", e);
+        }
+        return toBase64.apply(sign(response));
+    }
+
+    private Assertion createAssertion(String inResponseTo, String audience, DateTime now) {
+        Assertion assertion = new AssertionBuilder().buildObject();
+        assertion.setID(newId());
+        assertion.setIssueInstant(now);
+        assertion.setIssuer(createIssuer(MSA_ENTITY_ID));
+        assertion.setSubject(createSubject(inResponseTo, now));
+        assertion.setConditions(createConditions(audience));
+        assertion.getAuthnStatements().add(createAuthnStatement(now));
+        return assertion;
+    }
+
+    private Subject createSubject(String inResponseTo, DateTime now) {
+        NameID nameId = new NameIDBuilder().buildObject();
+        nameId.setValue("synthetic-pid");
+
+        SubjectConfirmationData subjectConfirmationData = new SubjectConfirmationDataBuilder().buildObject();
+        subjectConfirmationData.setInResponseTo(inResponseTo);
+        subjectConfirmationData.setNotOnOrAfter(now.plusMinutes(5));
+
+        SubjectConfirmation subjectConfirmation = new SubjectConfirmationBuilder().buildObject();
+        subjectConfirmation.setMethod(SubjectConfirmation.METHOD_BEARER);
+        subjectConfirmation.setSubjectConfirmationData(subjectConfirmationData);
+
+        Subject subject = new SubjectBuilder().buildObject();
+        subject.setNameID(nameId);
+        subject.getSubjectConfirmations().add(subjectConfirmation);
+        return subject;
+    }
+
+    private Conditions createConditions(String audienceUri) {
+        Audience audience = new AudienceBuilder().buildObject();
+        audience.setAudienceURI(audienceUri);
+
+        AudienceRestriction audienceRestriction = new AudienceRestrictionBuilder().buildObject();
+        audienceRestriction.getAudiences().add(audience);
+
+        Conditions conditions = new ConditionsBuilder().buildObject();
+        conditions.getAudienceRestrictions().add(audienceRestriction);
+        return conditions;
+    }
+
+    private AuthnStatement createAuthnStatement(DateTime now) {
+        AuthnContextClassRef authnContextClassRef = new AuthnContextClassRefBuilder().buildObject();
+        authnContextClassRef.setAuthnContextClassRef(IdaAuthnContext.LEVEL_2_AUTHN_CTX);
+
+        AuthnContext authnContext = new AuthnContextBuilder().buildObject();
+        authnContext.setAuthnContextClassRef(authnContextClassRef);
+
+        AuthnStatement authnStatement = new AuthnStatementBuilder().buildObject();
+        authnStatement.setAuthnInstant(now);
+        authnStatement.setAuthnContext(authnContext);
+        return authnStatement;
+    }
+
+    private static Issuer createIssuer(String entityId) {
+        Issuer issuer = new IssuerBuilder().buildObject();
+        issuer.setValue(entityId);
+        return issuer;
+    }
+
+    private static Status createStatus(String value) {
+        StatusCode statusCode = new StatusCodeBuilder().buildObject();
+        statusCode.setValue(value);
+
+        Status status = new StatusBuilder().buildObject();
+        status.setStatusCode(statusCode);
+        return status;
+    }
+
+    private <T extends SignableSAMLObject> T sign(T signableObject) {
+        signableObject.setSignature(signatureFactory.createSignature());
+        try {
+            XMLObjectProviderRegistrySupport.getMarshallerFactory().getMarshaller(signableObject).marshall(signableObject);
+            Signer.signObject(signableObject.getSignature());
+        } catch (SignatureException | MarshallingException e) {
+            throw new SAMLRuntimeException("Unknown problem while signing SAML object", e);
+        }
+        return signableObject;
+    }
+
+    private static String newId() {
+        return String.format("_%s", UUID.randomUUID());
+    }
+}
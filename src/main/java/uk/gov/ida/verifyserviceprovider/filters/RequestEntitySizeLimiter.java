@@ -0,0 +1,115 @@
+package uk.gov.ida.verifyserviceprovider.filters;
+
+import io.dropwizard.jersey.errors.ErrorMessage;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+
+/**
+ * Rejects request bodies larger than a fixed limit while they are being read, before Jackson
+ * has built the request object, rather than after the whole SAML message has been copied into memory.
+ */
+public class RequestEntitySizeLimiter implements ReaderInterceptor {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(RequestEntitySizeLimiter.class);
+    private static final int REQUEST_ENTITY_TOO_LARGE = 413;
+
+    // A 50,000 byte SAML response is around 67,000 characters of base64, plus line breaks and the other fields
+    public static final long DEFAULT_MAX_ENTITY_LENGTH = 128 * 1024;
+
+    private final long maxEntityLength;
+    private final long maxBatchEntityLength;
+
+    public RequestEntitySizeLimiter() {
+        this(DEFAULT_MAX_ENTITY_LENGTH, DEFAULT_MAX_ENTITY_LENGTH);
+    }
+
+    /**
+     * @param maxEntityLength the limit for a single request object
+     * @param maxBatchEntityLength the limit for bodies that are read as a collection of request objects
+     */
+    public RequestEntitySizeLimiter(long maxEntityLength, long maxBatchEntityLength) {
+        this.maxEntityLength = maxEntityLength;
+        this.maxBatchEntityLength = maxBatchEntityLength;
+    }
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        long limit = Collection.class.isAssignableFrom(context.getType()) ? maxBatchEntityLength : maxEntityLength;
+        String contentLength = context.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength != null && isLongerThan(contentLength, limit)) {
+            throw tooLarge(limit);
+        }
+        context.setInputStream(new LimitedInputStream(context.getInputStream(), limit));
+        return context.proceed();
+    }
+
+    private boolean isLongerThan(String contentLength, long limit) {
+        try {
+            return Long.parseLong(contentLength.trim()) > limit;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private WebApplicationException tooLarge(long limit) {
+        LOG.warn(String.format("Rejected request body longer than %d bytes", limit));
+        return new WebApplicationException(Response
+            .status(REQUEST_ENTITY_TOO_LARGE)
+            .type(MediaType.APPLICATION_JSON_TYPE)
+            .entity(new ErrorMessage(REQUEST_ENTITY_TOO_LARGE, "Request body is too large."))
+            .build());
+    }
+
+    private class LimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count = 0;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                countRead(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                countRead(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            countRead(skipped);
+            return skipped;
+        }
+
+        private void countRead(long read) {
+            count += read;
+            if (count > limit) {
+                throw tooLarge(limit);
+            }
+        }
+    }
+}
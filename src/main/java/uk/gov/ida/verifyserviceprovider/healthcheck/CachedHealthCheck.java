@@ -0,0 +1,32 @@
+package uk.gov.ida.verifyserviceprovider.healthcheck;
+
+import com.codahale.metrics.health.HealthCheck;
+
+/**
+ * Answers with the result of the last time the delegate was run, so polling the health check costs nothing.
+ * The delegate is run by {@link #refresh()}, which is meant to be scheduled, and only runs on a poll if it has
+ * never been run.
+ */
+public class CachedHealthCheck extends HealthCheck {
+
+    private final HealthCheck delegate;
+    private volatile Result result;
+
+    public CachedHealthCheck(HealthCheck delegate) {
+        this.delegate = delegate;
+    }
+
+    public void refresh() {
+        result = delegate.execute();
+    }
+
+    @Override
+    protected Result check() {
+        Result cached = result;
+        if (cached == null) {
+            refresh();
+            return result;
+        }
+        return cached;
+    }
+}
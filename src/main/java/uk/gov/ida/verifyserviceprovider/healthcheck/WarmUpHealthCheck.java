@@ -0,0 +1,30 @@
+package uk.gov.ida.verifyserviceprovider.healthcheck;
+
+import com.codahale.metrics.health.HealthCheck;
+import uk.gov.ida.verifyserviceprovider.services.WarmUpService;
+
+import static com.codahale.metrics.health.HealthCheck.Result.healthy;
+import static com.codahale.metrics.health.HealthCheck.Result.unhealthy;
+
+/**
+ * Unhealthy until the warm-up has finished, so load balancers do not send users to a cold instance.
+ * A warm-up that fails does not keep the service out of rotation.
+ */
+public class WarmUpHealthCheck extends HealthCheck {
+
+    private final WarmUpService warmUpService;
+
+    public WarmUpHealthCheck(WarmUpService warmUpService) {
+        this.warmUpService = warmUpService;
+    }
+
+    @Override
+    protected Result check() {
+        if (!warmUpService.isFinished()) {
+            return unhealthy("Warming up. %d of %d iterations complete.", warmUpService.getCompletedIterations(), warmUpService.getIterations());
+        }
+        return warmUpService.getFailure()
+            .map(failure -> healthy("Warm-up stopped early: %s", failure))
+            .orElseGet(() -> healthy("Warm-up complete."));
+    }
+}
@@ -0,0 +1,83 @@
+package uk.gov.ida.verifyserviceprovider.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Timers for the stages of translating a SAML response, published through the Dropwizard
+ * metrics registry (and so under /admin/metrics).
+ *
+ * Dropwizard metrics do not support tags, so tags are encoded as key/value pairs in the
+ * metric name, e.g. {@code translate-response.stage.decryption.entityId.<entity-id>}.
+ */
+public class ResponseMetrics<T> {
+
+    public static final String FAILED_OUTCOME = "ERROR";
+
+    public enum Stage {
+        PARSE("parse"),
+        PRECHECK("precheck"),
+        RESPONSE_SIGNATURE_VALIDATION("response-signature-validation"),
+        INSTANT_VALIDATION("instant-validation"),
+        DECRYPTION("decryption"),
+        ASSERTION_TRANSLATION("assertion-translation");
+
+        private final String metricName;
+
+        Stage(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private final MetricRegistry metricRegistry;
+    private final String endpoint;
+    private final Function<T, ? extends Enum<?>> scenarioExtractor;
+
+    public ResponseMetrics(MetricRegistry metricRegistry, String endpoint, Function<T, ? extends Enum<?>> scenarioExtractor) {
+        this.metricRegistry = metricRegistry;
+        this.endpoint = endpoint;
+        this.scenarioExtractor = scenarioExtractor;
+    }
+
+    public <R> R time(Stage stage, String entityId, Supplier<R> work) {
+        try (Timer.Context ignored = stageTimer(stage, entityId).time()) {
+            return work.get();
+        }
+    }
+
+    public void run(Stage stage, String entityId, Runnable work) {
+        try (Timer.Context ignored = stageTimer(stage, entityId).time()) {
+            work.run();
+        }
+    }
+
+    public void recordTranslation(String entityId, T translatedResponse, long startNanos) {
+        recordOutcome(entityId, scenarioExtractor.apply(translatedResponse).name(), startNanos);
+    }
+
+    public void recordFailure(String entityId, long startNanos) {
+        recordOutcome(entityId, FAILED_OUTCOME, startNanos);
+    }
+
+    public Timer stageTimer(Stage stage, String entityId) {
+        return metricRegistry.timer(name(endpoint, "stage", stage.getMetricName(), "entityId", entityId));
+    }
+
+    public Timer outcomeTimer(String entityId, String scenario) {
+        return metricRegistry.timer(name(endpoint, "total", "entityId", entityId, "scenario", scenario));
+    }
+
+    private void recordOutcome(String entityId, String scenario, long startNanos) {
+        outcomeTimer(entityId, scenario).update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,60 @@
+package uk.gov.ida.verifyserviceprovider.resources;
+
+import io.dropwizard.jersey.errors.ErrorMessage;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+
+/**
+ * Runs the CPU-bound part of a request on a dedicated executor and resumes the suspended response with its
+ * result, so Jetty's request threads stay free for cheap requests such as health checks.
+ *
+ * If the executor has no room for the work the response is resumed straight away with a 503 and a Retry-After
+ * header, rather than queueing requests without limit. Whatever the work throws, the response is always resumed.
+ */
+public class AsyncResponseExecutor {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(AsyncResponseExecutor.class);
+
+    private final Executor executor;
+    private final int retryAfterSeconds;
+
+    public AsyncResponseExecutor(Executor executor, int retryAfterSeconds) {
+        this.executor = executor;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public void resume(AsyncResponse asyncResponse, Supplier<Response> work) {
+        try {
+            executor.execute(() -> {
+                try {
+                    asyncResponse.resume(work.get());
+                } catch (RuntimeException e) {
+                    asyncResponse.resume(e);
+                } catch (Throwable e) {
+                    // Errors would otherwise escape to the executor and leave the client waiting until it times out
+                    LOG.error("Unexpected error processing request", e);
+                    asyncResponse.resume(Response
+                        .status(INTERNAL_SERVER_ERROR)
+                        .entity(new ErrorMessage(INTERNAL_SERVER_ERROR.getStatusCode(), "There was an error processing your request."))
+                        .build());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Rejected request as there is no capacity to process it");
+            asyncResponse.resume(Response
+                .status(SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity(new ErrorMessage(SERVICE_UNAVAILABLE.getStatusCode(), "The service is busy, please try again later."))
+                .build());
+        }
+    }
+}
@@ -5,8 +5,9 @@ import org.slf4j.LoggerFactory;
 import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
 import uk.gov.ida.verifyserviceprovider.dto.RequestGenerationBody;
 import uk.gov.ida.verifyserviceprovider.dto.RequestResponseBody;
-import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestPool;
 import uk.gov.ida.verifyserviceprovider.services.EntityIdService;
+import uk.gov.ida.verifyserviceprovider.services.RequestTokenService;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -24,24 +25,31 @@ import java.net.URI;
 public class GenerateAuthnRequestResource {
 
     private final URI ssoLocation;
-    private final AuthnRequestFactory authnRequestFactory;
+    private final AuthnRequestPool authnRequestPool;
     private final EntityIdService entityIdService;
+    private final RequestTokenService requestTokenService;
+    private final XmlObjectToBase64EncodedStringTransformer<AuthnRequest> xmlToBase64Transformer = new XmlObjectToBase64EncodedStringTransformer<>();
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(GenerateAuthnRequestResource.class);
 
-    public GenerateAuthnRequestResource(AuthnRequestFactory authnRequestFactory, URI ssoLocation, EntityIdService entityIdService) {
-        this.authnRequestFactory = authnRequestFactory;
+    public GenerateAuthnRequestResource(AuthnRequestPool authnRequestPool, URI ssoLocation, EntityIdService entityIdService, RequestTokenService requestTokenService) {
+        this.authnRequestPool = authnRequestPool;
         this.ssoLocation = ssoLocation;
         this.entityIdService = entityIdService;
+        this.requestTokenService = requestTokenService;
     }
 
     @POST
     public Response generateAuthnRequest(@NotNull @Valid RequestGenerationBody requestGenerationBody) {
         String entityId = entityIdService.getEntityId(requestGenerationBody);
-        AuthnRequest authnRequest = this.authnRequestFactory.build(requestGenerationBody.getLevelOfAssurance(), entityId);
-        XmlObjectToBase64EncodedStringTransformer xmlToBase64Transformer = new XmlObjectToBase64EncodedStringTransformer();
+        AuthnRequest authnRequest = authnRequestPool.take(entityId);
         String samlRequest = xmlToBase64Transformer.apply(authnRequest);
 
-        RequestResponseBody requestResponseBody = new RequestResponseBody(samlRequest, authnRequest.getID(), ssoLocation);
+        RequestResponseBody requestResponseBody = new RequestResponseBody(
+            samlRequest,
+            authnRequest.getID(),
+            ssoLocation,
+            requestTokenService.createToken(authnRequest.getID(), entityId)
+        );
 
         LOG.info(String.format("AuthnRequest generated for entityId: %s with requestId: %s", entityId, requestResponseBody.getRequestId()));
         LOG.debug(String.format("AuthnRequest generated for entityId: %s with saml: %s", entityId, requestResponseBody.getSamlRequest()));
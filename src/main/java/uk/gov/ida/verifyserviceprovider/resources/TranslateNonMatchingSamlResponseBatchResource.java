@@ -0,0 +1,70 @@
+package uk.gov.ida.verifyserviceprovider.resources;
+
+import io.dropwizard.jersey.errors.ErrorMessage;
+import org.slf4j.LoggerFactory;
+import uk.gov.ida.verifyserviceprovider.dto.BatchTranslationResult;
+import uk.gov.ida.verifyserviceprovider.dto.TranslateSamlResponseBody;
+import uk.gov.ida.verifyserviceprovider.dto.TranslatedNonMatchingResponseBody;
+import uk.gov.ida.verifyserviceprovider.services.BatchTranslationService;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+
+@Path("/translate-non-matching-response/batch")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class TranslateNonMatchingSamlResponseBatchResource {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(TranslateNonMatchingSamlResponseBatchResource.class);
+    private final BatchTranslationService<TranslatedNonMatchingResponseBody> batchTranslationService;
+    private final int maxBatchSize;
+    private final int retryAfterSeconds;
+
+    public TranslateNonMatchingSamlResponseBatchResource(BatchTranslationService<TranslatedNonMatchingResponseBody> batchTranslationService, int maxBatchSize, int retryAfterSeconds) {
+        this.batchTranslationService = batchTranslationService;
+        this.maxBatchSize = maxBatchSize;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @POST
+    public Response translateResponses(@NotNull @Valid List<TranslateSamlResponseBody> translateSamlResponseBodies) {
+        if (translateSamlResponseBodies.size() > maxBatchSize) {
+            String message = String.format("Batch contains %d responses, but at most %d are allowed", translateSamlResponseBodies.size(), maxBatchSize);
+            LOG.warn(message);
+            return Response
+                .status(BAD_REQUEST)
+                .entity(new ErrorMessage(BAD_REQUEST.getStatusCode(), message))
+                .build();
+        }
+
+        List<BatchTranslationResult<TranslatedNonMatchingResponseBody>> results;
+        try {
+            results = batchTranslationService.translate(translateSamlResponseBodies);
+        } catch (RejectedExecutionException e) {
+            LOG.warn(String.format("Rejected batch of %d responses as there is no capacity to process it", translateSamlResponseBodies.size()));
+            return Response
+                .status(SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity(new ErrorMessage(SERVICE_UNAVAILABLE.getStatusCode(), "The service is busy, please try again later."))
+                .build();
+        }
+
+        LOG.info(String.format("Translated batch of %d responses, %d succeeded",
+            results.size(),
+            results.stream().filter(result -> result.getResponse().isPresent()).count()));
+
+        return Response.ok(results).build();
+    }
+}
@@ -7,6 +7,7 @@ import uk.gov.ida.verifyserviceprovider.dto.TranslatedNonMatchingResponseBody;
 import uk.gov.ida.verifyserviceprovider.dto.TranslateSamlResponseBody;
 import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
 import uk.gov.ida.verifyserviceprovider.services.EntityIdService;
+import uk.gov.ida.verifyserviceprovider.services.RequestTokenService;
 import uk.gov.ida.verifyserviceprovider.services.ResponseService;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -14,9 +15,10 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.io.IOException;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 
 @Path("/translate-non-matching-response")
@@ -27,16 +29,34 @@ public class TranslateNonMatchingSamlResponseResource {
     private final ResponseService<TranslatedNonMatchingResponseBody> responseService;
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(TranslateNonMatchingSamlResponseResource.class);
     private final EntityIdService entityIdService;
+    private final AsyncResponseExecutor asyncResponseExecutor;
+    private final RequestTokenService requestTokenService;
 
 
-    public TranslateNonMatchingSamlResponseResource(ResponseService<TranslatedNonMatchingResponseBody> responseService, EntityIdService entityIdService) {
+    public TranslateNonMatchingSamlResponseResource(ResponseService<TranslatedNonMatchingResponseBody> responseService, EntityIdService entityIdService, AsyncResponseExecutor asyncResponseExecutor) {
+        this(responseService, entityIdService, asyncResponseExecutor, RequestTokenService.disabled());
+    }
+
+    public TranslateNonMatchingSamlResponseResource(
+        ResponseService<TranslatedNonMatchingResponseBody> responseService,
+        EntityIdService entityIdService,
+        AsyncResponseExecutor asyncResponseExecutor,
+        RequestTokenService requestTokenService
+    ) {
         this.responseService = responseService;
         this.entityIdService = entityIdService;
+        this.asyncResponseExecutor = asyncResponseExecutor;
+        this.requestTokenService = requestTokenService;
     }
 
     @POST
-    public Response translateResponse(@NotNull @Valid TranslateSamlResponseBody translateSamlResponseBody) throws IOException {
+    public void translateResponse(@NotNull @Valid TranslateSamlResponseBody translateSamlResponseBody, @Suspended AsyncResponse asyncResponse) {
         String entityId = entityIdService.getEntityId(translateSamlResponseBody);
+        requestTokenService.verify(translateSamlResponseBody, entityId);
+        asyncResponseExecutor.resume(asyncResponse, () -> translateResponse(translateSamlResponseBody, entityId));
+    }
+
+    private Response translateResponse(TranslateSamlResponseBody translateSamlResponseBody, String entityId) {
         try {
             TranslatedNonMatchingResponseBody translatedResponseBody = responseService.convertTranslatedResponseBody(
                 translateSamlResponseBody.getSamlResponse(),
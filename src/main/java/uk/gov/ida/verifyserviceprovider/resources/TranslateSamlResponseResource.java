@@ -7,6 +7,7 @@ import uk.gov.ida.verifyserviceprovider.dto.TranslateSamlResponseBody;
 import uk.gov.ida.verifyserviceprovider.dto.TranslatedResponseBody;
 import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
 import uk.gov.ida.verifyserviceprovider.services.EntityIdService;
+import uk.gov.ida.verifyserviceprovider.services.RequestTokenService;
 import uk.gov.ida.verifyserviceprovider.services.ResponseService;
 
 import javax.validation.Valid;
@@ -15,9 +16,10 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.io.IOException;
 
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 
@@ -29,16 +31,34 @@ public class TranslateSamlResponseResource {
     private final ResponseService<TranslatedResponseBody> responseService;
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(TranslateSamlResponseResource.class);
     private final EntityIdService entityIdService;
+    private final AsyncResponseExecutor asyncResponseExecutor;
+    private final RequestTokenService requestTokenService;
 
 
-    public TranslateSamlResponseResource(ResponseService<TranslatedResponseBody> responseService, EntityIdService entityIdService) {
+    public TranslateSamlResponseResource(ResponseService<TranslatedResponseBody> responseService, EntityIdService entityIdService, AsyncResponseExecutor asyncResponseExecutor) {
+        this(responseService, entityIdService, asyncResponseExecutor, RequestTokenService.disabled());
+    }
+
+    public TranslateSamlResponseResource(
+        ResponseService<TranslatedResponseBody> responseService,
+        EntityIdService entityIdService,
+        AsyncResponseExecutor asyncResponseExecutor,
+        RequestTokenService requestTokenService
+    ) {
         this.responseService = responseService;
         this.entityIdService = entityIdService;
+        this.asyncResponseExecutor = asyncResponseExecutor;
+        this.requestTokenService = requestTokenService;
     }
 
     @POST
-    public Response translateResponse(@NotNull @Valid TranslateSamlResponseBody translateSamlResponseBody) throws IOException {
+    public void translateResponse(@NotNull @Valid TranslateSamlResponseBody translateSamlResponseBody, @Suspended AsyncResponse asyncResponse) {
         String entityId = entityIdService.getEntityId(translateSamlResponseBody);
+        requestTokenService.verify(translateSamlResponseBody, entityId);
+        asyncResponseExecutor.resume(asyncResponse, () -> translateResponse(translateSamlResponseBody, entityId));
+    }
+
+    private Response translateResponse(TranslateSamlResponseBody translateSamlResponseBody, String entityId) {
         try {
             TranslatedResponseBody translatedResponseBody = responseService.convertTranslatedResponseBody(
                 translateSamlResponseBody.getSamlResponse(),
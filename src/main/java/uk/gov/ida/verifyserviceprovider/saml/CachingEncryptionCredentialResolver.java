@@ -0,0 +1,66 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.io.BaseEncoding;
+import org.joda.time.DateTime;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.x509.X509Credential;
+import uk.gov.ida.saml.security.EncryptionCredentialResolver;
+import uk.gov.ida.verifyserviceprovider.cache.MetadataGenerationCache;
+import uk.gov.ida.verifyserviceprovider.utils.Gauges;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Remembers the encryption credential a metadata-backed resolver returns for each receiver, so that generating
+ * an AuthnRequest does not walk the hub's metadata. Like {@link CachingMetadataCredentialResolver}, credentials are
+ * remembered in a {@link MetadataGenerationCache}, so they are dropped when the metadata resolver finishes a refresh.
+ *
+ * Publishes the SHA-256 fingerprint of the certificate most recently used for encryption, so it is clear when
+ * a rotated hub encryption certificate has been picked up.
+ */
+public class CachingEncryptionCredentialResolver implements EncryptionCredentialResolver {
+
+    private final EncryptionCredentialResolver delegate;
+    private final MetadataGenerationCache<String, Credential> credentials;
+    private volatile String certificateFingerprint;
+
+    public CachingEncryptionCredentialResolver(
+        EncryptionCredentialResolver delegate,
+        Supplier<DateTime> lastRefresh,
+        MetricRegistry metricRegistry,
+        String metricPrefix
+    ) {
+        this.delegate = delegate;
+        this.credentials = new MetadataGenerationCache<>(lastRefresh, metricRegistry, metricPrefix);
+        Gauges.replace(metricRegistry, name(metricPrefix, "certificate-fingerprint"), (Gauge<String>) () -> certificateFingerprint);
+    }
+
+    @Override
+    public Credential getEncryptingCredential(String receiverId) {
+        return credentials.get(receiverId, ignored -> {
+            Credential resolved = delegate.getEncryptingCredential(receiverId);
+            if (resolved != null) {
+                certificateFingerprint = fingerprintOf(resolved);
+            }
+            return resolved;
+        });
+    }
+
+    private static String fingerprintOf(Credential credential) {
+        try {
+            byte[] encoded = credential instanceof X509Credential
+                ? ((X509Credential) credential).getEntityCertificate().getEncoded()
+                : credential.getPublicKey().getEncoded();
+            return BaseEncoding.base16().lowerCase().encode(MessageDigest.getInstance("SHA-256").digest(encoded));
+        } catch (CertificateEncodingException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+}
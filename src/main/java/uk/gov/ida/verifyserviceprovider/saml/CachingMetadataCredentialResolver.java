@@ -0,0 +1,88 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.Criterion;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.joda.time.DateTime;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
+import org.opensaml.saml.criterion.ProtocolCriterion;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.saml.metadata.resolver.RefreshableMetadataResolver;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.CredentialResolver;
+import org.opensaml.security.criteria.UsageCriterion;
+import uk.gov.ida.verifyserviceprovider.cache.MetadataGenerationCache;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the credentials a metadata-backed resolver returns for each entity ID, role, protocol and usage,
+ * which are the only criteria a metadata credential resolver resolves by.
+ *
+ * Credentials are remembered in a {@link MetadataGenerationCache}, so they are dropped at once when the metadata
+ * resolver finishes a refresh. Only non-empty results are remembered, so signatures claiming to be from unknown
+ * entities cannot fill the cache.
+ */
+public class CachingMetadataCredentialResolver implements CredentialResolver {
+
+    private final CredentialResolver delegate;
+    private final MetadataGenerationCache<List<Object>, List<Credential>> credentials;
+
+    public CachingMetadataCredentialResolver(
+        CredentialResolver delegate,
+        Supplier<DateTime> lastRefresh,
+        MetricRegistry metricRegistry,
+        String metricPrefix
+    ) {
+        this.delegate = delegate;
+        this.credentials = new MetadataGenerationCache<>(lastRefresh, metricRegistry, metricPrefix);
+    }
+
+    /**
+     * @return when the resolver last finished a refresh, or null if it never refreshes
+     */
+    public static Supplier<DateTime> lastRefreshOf(Supplier<MetadataResolver> metadataResolver) {
+        return () -> {
+            MetadataResolver resolver = metadataResolver.get();
+            return resolver instanceof RefreshableMetadataResolver ? ((RefreshableMetadataResolver) resolver).getLastRefresh() : null;
+        };
+    }
+
+    @Override
+    public Iterable<Credential> resolve(CriteriaSet criteriaSet) throws ResolverException {
+        EntityIdCriterion entityId = criteriaSet.get(EntityIdCriterion.class);
+        if (entityId == null) {
+            return delegate.resolve(criteriaSet);
+        }
+
+        List<Object> key = Arrays.asList(
+            entityId.getEntityId(),
+            valueOf(criteriaSet, EntityRoleCriterion.class, EntityRoleCriterion::getRole),
+            valueOf(criteriaSet, ProtocolCriterion.class, ProtocolCriterion::getProtocol),
+            valueOf(criteriaSet, UsageCriterion.class, UsageCriterion::getUsage)
+        );
+        List<Credential> resolved = credentials.get(key, ignored -> {
+            List<Credential> fromMetadata = ImmutableList.copyOf(delegate.resolve(criteriaSet));
+            return fromMetadata.isEmpty() ? null : fromMetadata;
+        });
+        return resolved == null ? ImmutableList.of() : resolved;
+    }
+
+    @Override
+    public Credential resolveSingle(CriteriaSet criteriaSet) throws ResolverException {
+        Iterator<Credential> credentials = resolve(criteriaSet).iterator();
+        return credentials.hasNext() ? credentials.next() : null;
+    }
+
+    private static <C extends Criterion> Object valueOf(CriteriaSet criteriaSet, Class<C> type, Function<C, Object> value) {
+        C criterion = criteriaSet.get(type);
+        return criterion == null ? null : value.apply(criterion);
+    }
+}
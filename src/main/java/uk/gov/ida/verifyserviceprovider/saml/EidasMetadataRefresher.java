@@ -0,0 +1,140 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.saml.metadata.resolver.RefreshableMetadataResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.ida.saml.metadata.MetadataResolverRepository;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Refreshes each eIDAS country's metadata on a pool of threads, so that a slow or unavailable country only holds up
+ * its own refresh. Each refresh is started at a random offset within the jitter, so that countries are not all
+ * fetched at the same moment, and is interrupted if it takes longer than the timeout.
+ *
+ * An interrupt does not abort a blocked socket read, so the HTTP client the resolvers use should itself time out
+ * within the refresh timeout. The interrupt is a fallback for a refresh that is slow in any other way.
+ *
+ * A round of refreshes is started by calling {@link #scheduleRefreshes()} on a schedule. A country whose previous
+ * refresh is still running is skipped until the next round.
+ */
+public class EidasMetadataRefresher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EidasMetadataRefresher.class);
+
+    private final MetadataResolverRepository metadataResolverRepository;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService refreshExecutorService;
+    private final long maxJitterMillis;
+    private final long timeoutMillis;
+    private final MetricRegistry metricRegistry;
+    private final String metricPrefix;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    public EidasMetadataRefresher(
+        MetadataResolverRepository metadataResolverRepository,
+        ScheduledExecutorService scheduler,
+        ExecutorService refreshExecutorService,
+        long maxJitterMillis,
+        long timeoutMillis,
+        MetricRegistry metricRegistry,
+        String metricPrefix
+    ) {
+        this.metadataResolverRepository = metadataResolverRepository;
+        this.scheduler = scheduler;
+        this.refreshExecutorService = refreshExecutorService;
+        this.maxJitterMillis = maxJitterMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.metricRegistry = metricRegistry;
+        this.metricPrefix = metricPrefix;
+    }
+
+    /**
+     * Schedules a refresh of every country the repository currently has a resolver for.
+     */
+    public void scheduleRefreshes() {
+        for (String entityId : metadataResolverRepository.getResolverEntityIds()) {
+            long jitterMillis = maxJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(maxJitterMillis + 1) : 0;
+            scheduler.schedule(() -> startRefresh(entityId), jitterMillis, MILLISECONDS);
+        }
+    }
+
+    /**
+     * Refreshes one country's metadata on the calling thread, recording how long it took and whether it failed.
+     * Once it has finished, the country can be refreshed again by a later round.
+     */
+    public void refresh(String entityId) {
+        Timer.Context duration = metricRegistry.timer(name(metricPrefix, "refresh-duration", entityId)).time();
+        try {
+            Optional<MetadataResolver> metadataResolver = metadataResolverRepository.getMetadataResolver(entityId);
+            if (metadataResolver.isPresent() && metadataResolver.get() instanceof RefreshableMetadataResolver) {
+                ((RefreshableMetadataResolver) metadataResolver.get()).refresh();
+            }
+        } catch (ResolverException | RuntimeException e) {
+            metricRegistry.counter(name(metricPrefix, "refresh-failures", entityId)).inc();
+            LOG.warn(String.format("Failed to refresh the eIDAS metadata for %s", entityId), e);
+        } finally {
+            duration.stop();
+            refreshing.remove(entityId);
+        }
+    }
+
+    private void startRefresh(String entityId) {
+        if (!refreshing.add(entityId)) {
+            LOG.debug("Not refreshing the eIDAS metadata for {} because its previous refresh is still running", entityId);
+            return;
+        }
+        try {
+            refreshExecutorService.execute(() -> refreshWithTimeout(entityId));
+        } catch (RejectedExecutionException e) {
+            // The refresh will never run, so nothing else will let the country be refreshed again
+            refreshing.remove(entityId);
+        }
+    }
+
+    /**
+     * The timeout is started when the refresh starts rather than when it is queued, so a refresh is never
+     * interrupted before it has run, and only the refresh itself marks the country as no longer refreshing.
+     */
+    private void refreshWithTimeout(String entityId) {
+        Thread thread = Thread.currentThread();
+        AtomicBoolean finished = new AtomicBoolean(false);
+        ScheduledFuture<?> timeout = scheduler.schedule(() -> interruptUnlessFinished(entityId, thread, finished), timeoutMillis, MILLISECONDS);
+        try {
+            refresh(entityId);
+        } finally {
+            synchronized (finished) {
+                finished.set(true);
+            }
+            timeout.cancel(false);
+            // Do not let an interrupt meant for this refresh reach the next task run by the thread
+            Thread.interrupted();
+        }
+    }
+
+    private void interruptUnlessFinished(String entityId, Thread thread, AtomicBoolean finished) {
+        synchronized (finished) {
+            if (finished.get()) {
+                return;
+            }
+            thread.interrupt();
+        }
+        metricRegistry.counter(name(metricPrefix, "refresh-timeouts", entityId)).inc();
+        LOG.warn("Interrupted the refresh of the eIDAS metadata for {} after {}ms", entityId, timeoutMillis);
+    }
+}
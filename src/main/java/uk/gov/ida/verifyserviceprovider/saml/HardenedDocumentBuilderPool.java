@@ -0,0 +1,151 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.xml.LoggingErrorHandler;
+import net.shibboleth.utilities.java.support.xml.ParserPool;
+import net.shibboleth.utilities.java.support.xml.XMLParserException;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import uk.gov.ida.verifyserviceprovider.utils.Gauges;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * A bounded pool of namespace-aware {@link DocumentBuilder}s that have DTDs, external entities and
+ * XInclude disabled. Like OpenSAML's own parser pool, builders drop comments, join adjacent text and
+ * CDATA into one text node, and log parse errors rather than printing them to stderr.
+ *
+ * The factory is configured once, and builders are reset and reused, so parsing a response
+ * does not pay for factory lookup and parser configuration each time. If the pool is empty a new
+ * builder is created; if it is full a returned builder is discarded.
+ */
+public class HardenedDocumentBuilderPool implements ParserPool {
+
+    public static final int DEFAULT_MAX_POOL_SIZE = 32;
+
+    private static final ErrorHandler ERROR_HANDLER = new LoggingErrorHandler(LoggerFactory.getLogger(HardenedDocumentBuilderPool.class));
+
+    private final DocumentBuilderFactory documentBuilderFactory;
+    private final BlockingQueue<DocumentBuilder> pool;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public HardenedDocumentBuilderPool() {
+        this(DEFAULT_MAX_POOL_SIZE);
+    }
+
+    public HardenedDocumentBuilderPool(int maxPoolSize) {
+        this.documentBuilderFactory = createDocumentBuilderFactory();
+        this.pool = new ArrayBlockingQueue<>(maxPoolSize);
+    }
+
+    @Override
+    public DocumentBuilder getBuilder() throws XMLParserException {
+        DocumentBuilder builder = pool.poll();
+        if (builder != null) {
+            hits.increment();
+            return builder;
+        }
+        misses.increment();
+        try {
+            DocumentBuilder created = documentBuilderFactory.newDocumentBuilder();
+            created.setErrorHandler(ERROR_HANDLER);
+            return created;
+        } catch (ParserConfigurationException e) {
+            throw new XMLParserException("Unable to create a document builder", e);
+        }
+    }
+
+    @Override
+    public void returnBuilder(DocumentBuilder builder) {
+        if (builder == null) {
+            return;
+        }
+        builder.reset();
+        builder.setErrorHandler(ERROR_HANDLER);
+        pool.offer(builder);
+    }
+
+    @Override
+    public Document newDocument() throws XMLParserException {
+        DocumentBuilder builder = getBuilder();
+        try {
+            return builder.newDocument();
+        } finally {
+            returnBuilder(builder);
+        }
+    }
+
+    @Override
+    public Document parse(InputStream input) throws XMLParserException {
+        return parse(new InputSource(input));
+    }
+
+    @Override
+    public Document parse(Reader input) throws XMLParserException {
+        return parse(new InputSource(input));
+    }
+
+    private Document parse(InputSource inputSource) throws XMLParserException {
+        DocumentBuilder builder = getBuilder();
+        try {
+            return builder.parse(inputSource);
+        } catch (SAXException | IOException e) {
+            throw new XMLParserException("Unable to parse XML", e);
+        } finally {
+            returnBuilder(builder);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getIdleBuilders() {
+        return pool.size();
+    }
+
+    public void registerMetrics(MetricRegistry metricRegistry, String prefix) {
+        Gauges.replace(metricRegistry, name(prefix, "hits"), (Gauge<Long>) this::getHits);
+        Gauges.replace(metricRegistry, name(prefix, "misses"), (Gauge<Long>) this::getMisses);
+        Gauges.replace(metricRegistry, name(prefix, "idle"), (Gauge<Integer>) this::getIdleBuilders);
+    }
+
+    private static DocumentBuilderFactory createDocumentBuilderFactory() {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setIgnoringComments(true);
+        factory.setCoalescing(true);
+        factory.setExpandEntityReferences(false);
+        factory.setXIncludeAware(false);
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Unable to configure a hardened XML parser", e);
+        }
+        return factory;
+    }
+}
@@ -0,0 +1,133 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.joda.time.DateTime;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
+import org.opensaml.saml.criterion.ProtocolCriterion;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.CredentialResolver;
+import org.opensaml.security.criteria.UsageCriterion;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Resolves credentials from a {@link MetadataIndex} of the metadata resolver, which is compiled on a background
+ * executor after each refresh and published through a single volatile reference, so request threads neither
+ * take the metadata resolver's locks nor wait for the index to be compiled.
+ *
+ * Until the index of the latest refresh has been published, credentials are resolved by the fallback resolver,
+ * so they are never served from metadata older than the resolver's own. So are lookups the index cannot answer,
+ * either because it has expired or because it has no matching role, so the fallback decides what is trusted.
+ */
+public class IndexedMetadataCredentialResolver implements CredentialResolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedMetadataCredentialResolver.class);
+
+    private final CredentialResolver fallback;
+    private final Supplier<MetadataResolver> metadataResolver;
+    private final Supplier<DateTime> lastRefresh;
+    private final KeyInfoCredentialResolver keyInfoCredentialResolver;
+    private final Executor compileExecutor;
+    private final AtomicBoolean compiling = new AtomicBoolean(false);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter compilations;
+    private volatile MetadataIndex index = MetadataIndex.EMPTY;
+    private volatile DateTime failedRefresh;
+
+    public IndexedMetadataCredentialResolver(
+        CredentialResolver fallback,
+        Supplier<MetadataResolver> metadataResolver,
+        Supplier<DateTime> lastRefresh,
+        KeyInfoCredentialResolver keyInfoCredentialResolver,
+        Executor compileExecutor,
+        MetricRegistry metricRegistry,
+        String metricPrefix
+    ) {
+        this.fallback = fallback;
+        this.metadataResolver = metadataResolver;
+        this.lastRefresh = lastRefresh;
+        this.keyInfoCredentialResolver = keyInfoCredentialResolver;
+        this.compileExecutor = compileExecutor;
+        this.hits = metricRegistry.counter(name(metricPrefix, "hits"));
+        this.misses = metricRegistry.counter(name(metricPrefix, "misses"));
+        this.compilations = metricRegistry.counter(name(metricPrefix, "compilations"));
+    }
+
+    @Override
+    public Iterable<Credential> resolve(CriteriaSet criteriaSet) throws ResolverException {
+        EntityIdCriterion entityId = criteriaSet.get(EntityIdCriterion.class);
+        MetadataIndex current = currentIndex();
+        if (entityId != null && current != null) {
+            EntityRoleCriterion role = criteriaSet.get(EntityRoleCriterion.class);
+            ProtocolCriterion protocol = criteriaSet.get(ProtocolCriterion.class);
+            UsageCriterion usage = criteriaSet.get(UsageCriterion.class);
+            Optional<List<Credential>> credentials = current.getCredentials(
+                entityId.getEntityId(),
+                role == null ? null : role.getRole(),
+                protocol == null ? null : protocol.getProtocol(),
+                usage == null ? null : usage.getUsage()
+            );
+            if (credentials.isPresent()) {
+                hits.inc();
+                return credentials.get();
+            }
+        }
+        misses.inc();
+        return fallback.resolve(criteriaSet);
+    }
+
+    @Override
+    public Credential resolveSingle(CriteriaSet criteriaSet) throws ResolverException {
+        Iterator<Credential> credentials = resolve(criteriaSet).iterator();
+        return credentials.hasNext() ? credentials.next() : null;
+    }
+
+    /**
+     * @return the index of the metadata resolver's latest refresh, or null while that index is being compiled
+     */
+    private MetadataIndex currentIndex() {
+        MetadataIndex current = index;
+        DateTime refreshedAt = lastRefresh.get();
+        if (Objects.equals(current.getRefreshedAt(), refreshedAt)) {
+            return current;
+        }
+        if (!Objects.equals(failedRefresh, refreshedAt) && compiling.compareAndSet(false, true)) {
+            try {
+                compileExecutor.execute(() -> compile(refreshedAt));
+            } catch (RejectedExecutionException e) {
+                compiling.set(false);
+            }
+        }
+        return null;
+    }
+
+    private void compile(DateTime refreshedAt) {
+        try {
+            index = MetadataIndex.compile(metadataResolver.get(), refreshedAt, keyInfoCredentialResolver);
+            compilations.inc();
+        } catch (ResolverException | RuntimeException e) {
+            failedRefresh = refreshedAt;
+            LOG.warn("Failed to index metadata, credentials will be resolved from metadata until it next refreshes", e);
+        } finally {
+            compiling.set(false);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.ida.verifyserviceprovider.configuration.CryptoProviderConfiguration;
+
+import java.security.Provider;
+import java.security.Security;
+
+/**
+ * Registers and selects the JCA providers used for XML signatures and XML decryption.
+ *
+ * XML signatures, both signing AuthnRequests and verifying responses and assertions, are computed by Santuario,
+ * which takes its provider from a single process-wide setting, so one provider is used for both. That provider
+ * computes the signatures' digests as well as their RSA operations. Decryption providers are set on each
+ * OpenSAML decrypter instead, and are used to unwrap the key and decrypt the data.
+ *
+ * Providers are checked for the services they will be asked for when the service starts, rather than when the
+ * first request is signed or the first response is decrypted.
+ */
+public class JcaProviders {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JcaProviders.class);
+
+    private JcaProviders() {
+    }
+
+    public static void configure(CryptoProviderConfiguration configuration) {
+        configuration.getProviderClasses().forEach(JcaProviders::register);
+
+        String signatureProvider = configuration.getSignatureProvider();
+        if (signatureProvider != null) {
+            checkProvides(signatureProvider, "Signature", "SHA256withRSA");
+            checkProvides(signatureProvider, "MessageDigest", "SHA-256");
+            LOG.info(String.format("Using JCA provider %s for XML signatures", signatureProvider));
+        }
+        JCEMapper.setProviderId(signatureProvider);
+
+        String decryptionProvider = configuration.getDecryptionProvider();
+        if (decryptionProvider != null) {
+            checkProvides(decryptionProvider, "Cipher", "RSA");
+            checkProvides(decryptionProvider, "Cipher", "AES");
+            LOG.info(String.format("Using JCA provider %s for XML decryption", decryptionProvider));
+        }
+    }
+
+    private static void register(String providerClass) {
+        Provider provider;
+        try {
+            provider = (Provider) Class.forName(providerClass).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException(String.format("Could not create JCA provider %s", providerClass), e);
+        }
+        if (Security.getProvider(provider.getName()) == null) {
+            Security.addProvider(provider);
+        }
+    }
+
+    private static void checkProvides(String providerName, String type, String algorithm) {
+        Provider provider = Security.getProvider(providerName);
+        if (provider == null) {
+            throw new IllegalArgumentException(String.format("No JCA provider named %s is registered", providerName));
+        }
+        if (provider.getService(type, algorithm) == null) {
+            throw new IllegalArgumentException(String.format("JCA provider %s does not provide %s %s", providerName, type, algorithm));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCriterion;
+import org.opensaml.xmlsec.keyinfo.KeyInfoSupport;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.KeyException;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Resolves the key encryption key for an EncryptedKey from the public key or certificate in its KeyInfo,
+ * so that during key rotation only the matching private key is tried. If the KeyInfo does not identify one
+ * of our keys every key is returned, in configured order, as a plain static resolver would.
+ *
+ * Counts how many keys were routed to each key, and how many could not be routed, so it is clear when an
+ * old key is no longer in use.
+ */
+public class KeyAffinityDecryptionCredentialResolver implements KeyInfoCredentialResolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyAffinityDecryptionCredentialResolver.class);
+
+    private final Map<String, Credential> credentials;
+    private final Map<String, Counter> routedCounters = new LinkedHashMap<>();
+    private final Counter unroutedCounter;
+
+    /**
+     * @param credentials decryption credentials by a short name for the key, such as "primary", in the order they should be tried
+     */
+    public KeyAffinityDecryptionCredentialResolver(Map<String, Credential> credentials, MetricRegistry metricRegistry, String metricPrefix) {
+        this.credentials = new LinkedHashMap<>(credentials);
+        credentials.keySet().forEach(keyName -> routedCounters.put(keyName, metricRegistry.counter(name(metricPrefix, keyName))));
+        this.unroutedCounter = metricRegistry.counter(name(metricPrefix, "unrouted"));
+    }
+
+    @Override
+    public Iterable<Credential> resolve(CriteriaSet criteriaSet) {
+        List<PublicKey> presentedKeys = publicKeysFrom(criteriaSet);
+        for (Map.Entry<String, Credential> credential : credentials.entrySet()) {
+            if (isOneOf(credential.getValue().getPublicKey(), presentedKeys)) {
+                routedCounters.get(credential.getKey()).inc();
+                return Collections.singletonList(credential.getValue());
+            }
+        }
+        unroutedCounter.inc();
+        return new ArrayList<>(credentials.values());
+    }
+
+    @Override
+    public Credential resolveSingle(CriteriaSet criteriaSet) {
+        return resolve(criteriaSet).iterator().next();
+    }
+
+    private static List<PublicKey> publicKeysFrom(CriteriaSet criteriaSet) {
+        KeyInfoCriterion keyInfoCriterion = criteriaSet == null ? null : criteriaSet.get(KeyInfoCriterion.class);
+        KeyInfo keyInfo = keyInfoCriterion == null ? null : keyInfoCriterion.getKeyInfo();
+        if (keyInfo == null) {
+            return Collections.emptyList();
+        }
+
+        List<PublicKey> publicKeys = new ArrayList<>();
+        try {
+            for (X509Certificate certificate : KeyInfoSupport.getCertificates(keyInfo)) {
+                publicKeys.add(certificate.getPublicKey());
+            }
+            publicKeys.addAll(KeyInfoSupport.getPublicKeys(keyInfo));
+        } catch (CertificateException | KeyException e) {
+            LOG.debug("Unable to read keys from EncryptedKey KeyInfo, will try every decryption key", e);
+        }
+        return publicKeys;
+    }
+
+    private static boolean isOneOf(PublicKey publicKey, List<PublicKey> presentedKeys) {
+        return publicKey != null && presentedKeys.stream()
+            .anyMatch(presentedKey -> Arrays.equals(publicKey.getEncoded(), presentedKey.getEncoded()));
+    }
+}
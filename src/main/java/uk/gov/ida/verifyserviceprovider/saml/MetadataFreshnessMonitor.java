@@ -0,0 +1,131 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.joda.time.DateTime;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.saml.metadata.resolver.RefreshableMetadataResolver;
+import org.opensaml.saml.saml2.common.TimeBoundSAMLObject;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import uk.gov.ida.saml.metadata.MetadataResolverRepository;
+import uk.gov.ida.verifyserviceprovider.utils.Gauges;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Publishes, for each metadata source, how long ago its metadata was last refreshed and how long it has until the
+ * metadata expires, so there is warning before a source goes stale. The metadata is read by calling {@link #update()}
+ * on a schedule and the gauges only read what was recorded, so reporting metrics never touches a metadata resolver.
+ *
+ * eIDAS countries are read from the repository every time, so countries added later are picked up.
+ */
+public class MetadataFreshnessMonitor {
+
+    private final List<Source> sources;
+    private final Optional<MetadataResolverRepository> eidasMetadataResolverRepository;
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<String, DateTime> instants = new ConcurrentHashMap<>();
+    private final Set<String> registeredGauges = ConcurrentHashMap.newKeySet();
+
+    public MetadataFreshnessMonitor(
+        List<Source> sources,
+        Optional<MetadataResolverRepository> eidasMetadataResolverRepository,
+        MetricRegistry metricRegistry
+    ) {
+        this.sources = sources;
+        this.eidasMetadataResolverRepository = eidasMetadataResolverRepository;
+        this.metricRegistry = metricRegistry;
+    }
+
+    public void update() {
+        for (Source source : sources) {
+            record(
+                name(source.metricPrefix, "last-refresh-age-seconds"),
+                name(source.metricPrefix, "seconds-until-expiry"),
+                source.entityId,
+                source.metadataResolver.get()
+            );
+        }
+        eidasMetadataResolverRepository.ifPresent(repository -> {
+            for (String entityId : repository.getResolverEntityIds()) {
+                repository.getMetadataResolver(entityId).ifPresent(metadataResolver -> record(
+                    name("eidas-metadata", "last-refresh-age-seconds", entityId),
+                    name("eidas-metadata", "seconds-until-expiry", entityId),
+                    entityId,
+                    metadataResolver
+                ));
+            }
+        });
+    }
+
+    private void record(String lastRefreshAgeGauge, String secondsUntilExpiryGauge, String entityId, MetadataResolver metadataResolver) {
+        if (metadataResolver instanceof RefreshableMetadataResolver) {
+            recordInstant(lastRefreshAgeGauge, ((RefreshableMetadataResolver) metadataResolver).getLastRefresh(), true);
+        }
+        recordInstant(secondsUntilExpiryGauge, validUntil(metadataResolver, entityId), false);
+    }
+
+    private void recordInstant(String gaugeName, DateTime instant, boolean sinceInstant) {
+        if (instant == null) {
+            instants.remove(gaugeName);
+        } else {
+            instants.put(gaugeName, instant);
+        }
+        if (registeredGauges.add(gaugeName)) {
+            Gauges.replace(metricRegistry, gaugeName, (Gauge<Long>) () -> {
+                DateTime recorded = instants.get(gaugeName);
+                if (recorded == null) {
+                    return null;
+                }
+                long millis = sinceInstant ? System.currentTimeMillis() - recorded.getMillis() : recorded.getMillis() - System.currentTimeMillis();
+                return TimeUnit.MILLISECONDS.toSeconds(millis);
+            });
+        }
+    }
+
+    /**
+     * @return the earliest validUntil of the entity's descriptor and the descriptors containing it
+     */
+    private static DateTime validUntil(MetadataResolver metadataResolver, String entityId) {
+        EntityDescriptor entityDescriptor;
+        try {
+            entityDescriptor = metadataResolver.resolveSingle(new CriteriaSet(new EntityIdCriterion(entityId)));
+        } catch (ResolverException e) {
+            return null;
+        }
+        DateTime earliest = null;
+        for (XMLObject descriptor = entityDescriptor; descriptor != null; descriptor = descriptor.getParent()) {
+            if (descriptor instanceof TimeBoundSAMLObject) {
+                DateTime validUntil = ((TimeBoundSAMLObject) descriptor).getValidUntil();
+                if (validUntil != null && (earliest == null || validUntil.isBefore(earliest))) {
+                    earliest = validUntil;
+                }
+            }
+        }
+        return earliest;
+    }
+
+    public static class Source {
+        private final String metricPrefix;
+        private final String entityId;
+        private final Supplier<MetadataResolver> metadataResolver;
+
+        public Source(String metricPrefix, String entityId, Supplier<MetadataResolver> metadataResolver) {
+            this.metricPrefix = metricPrefix;
+            this.entityId = entityId;
+            this.metadataResolver = metadataResolver;
+        }
+    }
+}
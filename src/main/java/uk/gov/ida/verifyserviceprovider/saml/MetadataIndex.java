@@ -0,0 +1,198 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.joda.time.DateTime;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.metadata.IterableMetadataSource;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.saml.saml2.common.TimeBoundSAMLObject;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.KeyDescriptor;
+import org.opensaml.saml.saml2.metadata.RoleDescriptor;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCriterion;
+
+import javax.xml.namespace.QName;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * An immutable copy of the role descriptors and credentials of every entity in a metadata resolver, as they were
+ * after one refresh. Looking credentials up in the index takes no locks, unlike resolving them from metadata.
+ *
+ * Like a metadata credential resolver that requires valid metadata, the index leaves out descriptors that had
+ * expired when it was compiled, and answers nothing at all once the earliest validUntil it indexed has passed.
+ */
+public class MetadataIndex {
+
+    public static final MetadataIndex EMPTY = new MetadataIndex(null, ImmutableMap.of(), null);
+
+    private final DateTime refreshedAt;
+    private final Map<String, List<IndexedRole>> entities;
+    private final DateTime validUntil;
+
+    private MetadataIndex(DateTime refreshedAt, Map<String, List<IndexedRole>> entities, DateTime validUntil) {
+        this.refreshedAt = refreshedAt;
+        this.entities = entities;
+        this.validUntil = validUntil;
+    }
+
+    /**
+     * @param refreshedAt when the metadata resolver finished the refresh being indexed
+     */
+    public static MetadataIndex compile(MetadataResolver metadataResolver, DateTime refreshedAt, KeyInfoCredentialResolver keyInfoCredentialResolver) throws ResolverException {
+        DateTime now = DateTime.now();
+        DateTime earliestValidUntil = null;
+        Map<String, List<IndexedRole>> entities = new LinkedHashMap<>();
+        if (metadataResolver instanceof IterableMetadataSource) {
+            for (EntityDescriptor entityDescriptor : (IterableMetadataSource) metadataResolver) {
+                DateTime entityValidUntil = validUntilOf(entityDescriptor);
+                if (entities.containsKey(entityDescriptor.getEntityID()) || !isValidAt(entityValidUntil, now)) {
+                    continue;
+                }
+                earliestValidUntil = earliestOf(earliestValidUntil, entityValidUntil);
+                ImmutableList.Builder<IndexedRole> roles = ImmutableList.builder();
+                for (RoleDescriptor roleDescriptor : entityDescriptor.getRoleDescriptors()) {
+                    if (!isValidAt(roleDescriptor.getValidUntil(), now)) {
+                        continue;
+                    }
+                    earliestValidUntil = earliestOf(earliestValidUntil, roleDescriptor.getValidUntil());
+                    roles.add(new IndexedRole(roleDescriptor, keyInfoCredentialResolver));
+                }
+                entities.put(entityDescriptor.getEntityID(), roles.build());
+            }
+        }
+        return new MetadataIndex(refreshedAt, ImmutableMap.copyOf(entities), earliestValidUntil);
+    }
+
+    public DateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    /**
+     * @return the earliest validUntil of everything in the index, or null if nothing in it expires
+     */
+    public DateTime getValidUntil() {
+        return validUntil;
+    }
+
+    public boolean contains(String entityId) {
+        return !hasExpired() && entities.containsKey(entityId);
+    }
+
+    public Optional<RoleDescriptor> getRoleDescriptor(String entityId, QName role) {
+        if (hasExpired()) {
+            return Optional.empty();
+        }
+        return entities.getOrDefault(entityId, ImmutableList.of()).stream()
+            .filter(indexedRole -> indexedRole.hasRole(role))
+            .map(indexedRole -> indexedRole.roleDescriptor)
+            .findFirst();
+    }
+
+    /**
+     * Matches credentials the way a metadata credential resolver does: by role and protocol when they are given,
+     * and by usage, where a key without a use can be used for anything.
+     *
+     * @return the matching credentials, or nothing if the index has expired or has no matching role for the entity
+     */
+    public Optional<List<Credential>> getCredentials(String entityId, QName role, String protocol, UsageType usage) {
+        List<IndexedRole> roles = entities.get(entityId);
+        if (roles == null || hasExpired()) {
+            return Optional.empty();
+        }
+        boolean matched = false;
+        ImmutableList.Builder<Credential> credentials = ImmutableList.builder();
+        for (IndexedRole indexedRole : roles) {
+            if ((role == null || indexedRole.hasRole(role)) && (protocol == null || indexedRole.roleDescriptor.isSupportedProtocol(protocol))) {
+                matched = true;
+                credentials.addAll(indexedRole.credentialsFor(usage));
+            }
+        }
+        return matched ? Optional.of(credentials.build()) : Optional.empty();
+    }
+
+    private boolean hasExpired() {
+        return !isValidAt(validUntil, DateTime.now());
+    }
+
+    /**
+     * @return the earliest validUntil of the descriptor and the descriptors containing it
+     */
+    private static DateTime validUntilOf(EntityDescriptor entityDescriptor) {
+        DateTime earliest = null;
+        for (XMLObject descriptor = entityDescriptor; descriptor != null; descriptor = descriptor.getParent()) {
+            if (descriptor instanceof TimeBoundSAMLObject) {
+                earliest = earliestOf(earliest, ((TimeBoundSAMLObject) descriptor).getValidUntil());
+            }
+        }
+        return earliest;
+    }
+
+    private static DateTime earliestOf(DateTime earliest, DateTime validUntil) {
+        return validUntil != null && (earliest == null || validUntil.isBefore(earliest)) ? validUntil : earliest;
+    }
+
+    private static boolean isValidAt(DateTime validUntil, DateTime instant) {
+        return validUntil == null || validUntil.isAfter(instant);
+    }
+
+    private static class IndexedRole {
+        private final RoleDescriptor roleDescriptor;
+        private final List<Credential> forSigning;
+        private final List<Credential> forEncryption;
+        private final List<Credential> forAnyUse;
+
+        private IndexedRole(RoleDescriptor roleDescriptor, KeyInfoCredentialResolver keyInfoCredentialResolver) throws ResolverException {
+            this.roleDescriptor = roleDescriptor;
+            ImmutableList.Builder<Credential> signing = ImmutableList.builder();
+            ImmutableList.Builder<Credential> encryption = ImmutableList.builder();
+            ImmutableList.Builder<Credential> unspecified = ImmutableList.builder();
+            for (KeyDescriptor keyDescriptor : roleDescriptor.getKeyDescriptors()) {
+                if (keyDescriptor.getKeyInfo() == null) {
+                    continue;
+                }
+                Iterable<Credential> credentials = keyInfoCredentialResolver.resolve(new CriteriaSet(new KeyInfoCriterion(keyDescriptor.getKeyInfo())));
+                UsageType use = keyDescriptor.getUse() == null ? UsageType.UNSPECIFIED : keyDescriptor.getUse();
+                switch (use) {
+                    case SIGNING:
+                        signing.addAll(credentials);
+                        break;
+                    case ENCRYPTION:
+                        encryption.addAll(credentials);
+                        break;
+                    default:
+                        unspecified.addAll(credentials);
+                }
+            }
+            List<Credential> signingOnly = signing.build();
+            List<Credential> encryptionOnly = encryption.build();
+            List<Credential> withoutUse = unspecified.build();
+            this.forSigning = ImmutableList.<Credential>builder().addAll(signingOnly).addAll(withoutUse).build();
+            this.forEncryption = ImmutableList.<Credential>builder().addAll(encryptionOnly).addAll(withoutUse).build();
+            this.forAnyUse = ImmutableList.<Credential>builder().addAll(signingOnly).addAll(encryptionOnly).addAll(withoutUse).build();
+        }
+
+        private boolean hasRole(QName role) {
+            return role.equals(roleDescriptor.getElementQName()) || Objects.equals(role, roleDescriptor.getSchemaType());
+        }
+
+        private List<Credential> credentialsFor(UsageType usage) {
+            if (usage == UsageType.SIGNING) {
+                return forSigning;
+            }
+            if (usage == UsageType.ENCRYPTION) {
+                return forEncryption;
+            }
+            return forAnyUse;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import org.opensaml.saml.metadata.resolver.impl.AbstractReloadingMetadataResolver;
+
+import java.util.Date;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * A timer for metadata resolvers that are refreshed by something else, such as {@link EidasMetadataRefresher}.
+ * The refreshes the resolvers schedule for themselves are dropped, so each resolver is refreshed once per round
+ * rather than twice. Any other task is run as usual.
+ */
+public class MetadataRefreshSuppressingTimer extends Timer {
+
+    public MetadataRefreshSuppressingTimer(String name) {
+        super(name, true);
+    }
+
+    @Override
+    public void schedule(TimerTask task, long delay) {
+        if (!isMetadataResolverRefresh(task)) {
+            super.schedule(task, delay);
+        }
+    }
+
+    @Override
+    public void schedule(TimerTask task, Date time) {
+        if (!isMetadataResolverRefresh(task)) {
+            super.schedule(task, time);
+        }
+    }
+
+    @Override
+    public void schedule(TimerTask task, long delay, long period) {
+        if (!isMetadataResolverRefresh(task)) {
+            super.schedule(task, delay, period);
+        }
+    }
+
+    @Override
+    public void schedule(TimerTask task, Date firstTime, long period) {
+        if (!isMetadataResolverRefresh(task)) {
+            super.schedule(task, firstTime, period);
+        }
+    }
+
+    private static boolean isMetadataResolverRefresh(TimerTask task) {
+        Class<?> enclosingClass = task.getClass().getEnclosingClass();
+        return enclosingClass != null && AbstractReloadingMetadataResolver.class.isAssignableFrom(enclosingClass);
+    }
+}
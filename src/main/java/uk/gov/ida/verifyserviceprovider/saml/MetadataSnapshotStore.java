@@ -0,0 +1,47 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Keeps the last metadata document each source accepted as a file in a directory, one file per source.
+ * Snapshots are written to a temporary file and moved into place, so a reader never sees a partly written
+ * document even if the process stops mid-write.
+ */
+public class MetadataSnapshotStore {
+
+    private final Path directory;
+
+    public MetadataSnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public Optional<byte[]> read(String source) throws IOException {
+        try {
+            return Optional.of(Files.readAllBytes(snapshotOf(source)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    public void write(String source, byte[] metadata) throws IOException {
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, source, ".tmp");
+        try {
+            Files.write(temporary, metadata);
+            Files.move(temporary, snapshotOf(source), ATOMIC_MOVE, REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path snapshotOf(String source) {
+        return directory.resolve(source + ".xml");
+    }
+}
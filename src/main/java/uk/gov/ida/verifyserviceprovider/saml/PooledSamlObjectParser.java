@@ -0,0 +1,48 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import net.shibboleth.utilities.java.support.xml.ParserPool;
+import net.shibboleth.utilities.java.support.xml.XMLParserException;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.core.xml.io.Unmarshaller;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.w3c.dom.Element;
+import uk.gov.ida.saml.deserializers.parser.SamlObjectParser;
+
+import java.io.InputStream;
+import java.io.StringReader;
+
+/**
+ * A {@link SamlObjectParser} that takes its DOM parsers from a shared {@link ParserPool}
+ * rather than configuring a new one for every message.
+ */
+public class PooledSamlObjectParser extends SamlObjectParser {
+
+    private final ParserPool parserPool;
+
+    public PooledSamlObjectParser(ParserPool parserPool) {
+        this.parserPool = parserPool;
+    }
+
+    @Override
+    public <T extends XMLObject> T getSamlObject(String xmlString) throws UnmarshallingException, XMLParserException {
+        return unmarshall(parserPool.parse(new StringReader(xmlString)).getDocumentElement());
+    }
+
+    /**
+     * Parses the XML read from the given stream, so callers that decode a message incrementally
+     * do not have to build the whole document as a String first.
+     */
+    public <T extends XMLObject> T getSamlObject(InputStream xmlStream) throws UnmarshallingException, XMLParserException {
+        return unmarshall(parserPool.parse(xmlStream).getDocumentElement());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends XMLObject> T unmarshall(Element element) throws UnmarshallingException {
+        Unmarshaller unmarshaller = XMLObjectProviderRegistrySupport.getUnmarshallerFactory().getUnmarshaller(element);
+        if (unmarshaller == null) {
+            throw new UnmarshallingException("No unmarshaller registered for " + element.getLocalName());
+        }
+        return (T) unmarshaller.unmarshall(element);
+    }
+}
@@ -0,0 +1,211 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.metadata.resolver.impl.AbstractReloadingMetadataResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import uk.gov.ida.verifyserviceprovider.utils.Gauges;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Fetches metadata over HTTP, like the resolvers {@code MetadataResolverBundle} builds, and keeps the last
+ * document that got through the metadata filter in a {@link MetadataSnapshotStore}.
+ *
+ * The first refresh reads the snapshot instead of going to the network, so the resolver can be used as soon as
+ * it is initialised, and a network refresh is scheduled straight away on the background timer. A snapshot goes
+ * through the same metadata filter, and so the same signature validation, as a fetched document.
+ *
+ * Later refreshes send the ETag and Last-Modified of the last accepted document back as a conditional request,
+ * and a document with the same SHA-256 digest as the last accepted one is not parsed or validated again.
+ */
+public class SnapshotBackedMetadataResolver extends AbstractReloadingMetadataResolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotBackedMetadataResolver.class);
+
+    private final Timer refreshTimer;
+    private final Client client;
+    private final URI metadataUri;
+    private final MetadataSnapshotStore snapshotStore;
+    private final String source;
+    private final Counter appliedRefreshes;
+    private final Counter skippedRefreshes;
+    private final com.codahale.metrics.Timer refreshDuration;
+    private volatile int documentSize;
+
+    // Only read and written inside refresh(), which the superclass synchronizes
+    private boolean snapshotOffered = false;
+    private boolean loadedFromSnapshot = false;
+    private Validators fetched = Validators.NONE;
+    private Validators accepted = Validators.NONE;
+
+    public SnapshotBackedMetadataResolver(
+        Timer refreshTimer,
+        Client client,
+        URI metadataUri,
+        MetadataSnapshotStore snapshotStore,
+        String source,
+        MetricRegistry metricRegistry
+    ) {
+        super(refreshTimer);
+        this.refreshTimer = refreshTimer;
+        this.client = client;
+        this.metadataUri = metadataUri;
+        this.snapshotStore = snapshotStore;
+        this.source = source;
+        this.appliedRefreshes = metricRegistry.counter(name(source, "refreshes", "applied"));
+        this.skippedRefreshes = metricRegistry.counter(name(source, "refreshes", "skipped"));
+        this.refreshDuration = metricRegistry.timer(name(source, "refresh-duration"));
+        Gauges.replace(metricRegistry, name(source, "document-size-bytes"), (Gauge<Integer>) () -> documentSize);
+    }
+
+    @Override
+    public synchronized void refresh() throws ResolverException {
+        com.codahale.metrics.Timer.Context duration = refreshDuration.time();
+        try {
+            super.refresh();
+        } finally {
+            duration.stop();
+        }
+    }
+
+    @Override
+    protected String getMetadataIdentifier() {
+        return metadataUri.toString();
+    }
+
+    /**
+     * @return the metadata to process, or null when it has not changed since the last accepted document,
+     *         which the superclass treats as a refresh that leaves the current metadata in place
+     */
+    @Override
+    protected byte[] fetchMetadata() throws ResolverException {
+        loadedFromSnapshot = false;
+        if (!snapshotOffered) {
+            snapshotOffered = true;
+            Optional<byte[]> snapshot = readSnapshot();
+            if (snapshot.isPresent()) {
+                LOG.info("Loaded {} from its snapshot, refreshing from {} in the background", source, metadataUri);
+                loadedFromSnapshot = true;
+                fetched = new Validators(null, null, sha256(snapshot.get()));
+                refreshTimer.schedule(new BackgroundRefresh(), 0);
+                return snapshot.get();
+            }
+        }
+        return fetchFromNetwork();
+    }
+
+    @Override
+    protected void postProcessMetadata(byte[] metadataBytes, Document metadataDom, XMLObject originalMetadata, XMLObject filteredMetadata) throws ResolverException {
+        if (!loadedFromSnapshot) {
+            try {
+                snapshotStore.write(source, metadataBytes);
+            } catch (IOException e) {
+                LOG.warn(String.format("Could not write the %s snapshot", source), e);
+            }
+        }
+        super.postProcessMetadata(metadataBytes, metadataDom, originalMetadata, filteredMetadata);
+        documentSize = metadataBytes.length;
+        accepted = fetched;
+        appliedRefreshes.inc();
+    }
+
+    private Optional<byte[]> readSnapshot() {
+        try {
+            return snapshotStore.read(source);
+        } catch (IOException e) {
+            LOG.warn(String.format("Could not read the %s snapshot", source), e);
+            return Optional.empty();
+        }
+    }
+
+    private byte[] fetchFromNetwork() throws ResolverException {
+        Response response = null;
+        try {
+            Invocation.Builder request = client.target(metadataUri).request();
+            if (accepted.entityTag != null) {
+                request.header(HttpHeaders.IF_NONE_MATCH, accepted.entityTag);
+            }
+            if (accepted.lastModified != null) {
+                request.header(HttpHeaders.IF_MODIFIED_SINCE, accepted.lastModified);
+            }
+            response = request.get();
+            if (response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+                skippedRefreshes.inc();
+                return null;
+            }
+            if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                throw new ResolverException(String.format("Metadata request to %s returned status %d", metadataUri, response.getStatus()));
+            }
+            byte[] metadata = response.readEntity(byte[].class);
+            byte[] digest = sha256(metadata);
+            if (Arrays.equals(digest, accepted.digest)) {
+                skippedRefreshes.inc();
+                return null;
+            }
+            fetched = new Validators(response.getHeaderString(HttpHeaders.ETAG), response.getHeaderString(HttpHeaders.LAST_MODIFIED), digest);
+            return metadata;
+        } catch (ProcessingException e) {
+            throw new ResolverException(String.format("Could not fetch metadata from %s", metadataUri), e);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    private static byte[] sha256(byte[] metadata) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(metadata);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class BackgroundRefresh extends TimerTask {
+        @Override
+        public void run() {
+            try {
+                refresh();
+            } catch (ResolverException e) {
+                LOG.warn(String.format("Could not refresh %s after loading its snapshot", source), e);
+            }
+        }
+    }
+
+    /**
+     * What identifies a metadata document to the metadata host, and to us.
+     */
+    private static class Validators {
+        private static final Validators NONE = new Validators(null, null, null);
+
+        private final String entityTag;
+        private final String lastModified;
+        private final byte[] digest;
+
+        private Validators(String entityTag, String lastModified, byte[] digest) {
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+}
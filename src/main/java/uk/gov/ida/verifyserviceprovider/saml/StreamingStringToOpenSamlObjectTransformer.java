@@ -0,0 +1,151 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import net.shibboleth.utilities.java.support.xml.XMLParserException;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.slf4j.event.Level;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Turns a base64 encoded SAML message into an OpenSAML object without building the decoded XML as a String.
+ *
+ * The encoded characters are decoded as the parser reads them, and the size limit is enforced on the decoded
+ * bytes as they are read. Messages that are missing or are not base64 are handed to the buffered transformer, so
+ * they are rejected with exactly the same errors as before. Messages that cannot be parsed are rejected straight
+ * away with the error the buffered transformer would give, rather than being decoded and parsed a second time.
+ */
+public class StreamingStringToOpenSamlObjectTransformer<T extends XMLObject> implements Function<String, T> {
+
+    private final PooledSamlObjectParser samlObjectParser;
+    private final int maxDecodedLength;
+    private final Function<String, T> bufferedTransformer;
+
+    public StreamingStringToOpenSamlObjectTransformer(
+        PooledSamlObjectParser samlObjectParser,
+        int maxDecodedLength,
+        Function<String, T> bufferedTransformer
+    ) {
+        this.samlObjectParser = samlObjectParser;
+        this.maxDecodedLength = maxDecodedLength;
+        this.bufferedTransformer = bufferedTransformer;
+    }
+
+    @Override
+    public T apply(String input) {
+        if (input == null || !isBase64(input)) {
+            return bufferedTransformer.apply(input);
+        }
+
+        InputStream decoded = new LengthLimitedInputStream(Base64.getMimeDecoder().wrap(new AsciiInputStream(input)), maxDecodedLength);
+        try {
+            return samlObjectParser.getSamlObject(decoded);
+        } catch (XMLParserException e) {
+            if (isCausedByExceedingLimit(e)) {
+                throw new SamlResponseValidationException("SAML Response is too long.");
+            }
+            throw new SamlTransformationErrorException(e.getMessage(), e, Level.ERROR);
+        } catch (UnmarshallingException | ClassCastException e) {
+            throw new SamlTransformationErrorException(e.getMessage(), e, Level.ERROR);
+        }
+    }
+
+    private static boolean isBase64(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            boolean valid = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '+' || c == '/' || c == '=' || Character.isWhitespace(c);
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCausedByExceedingLimit(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LimitExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class AsciiInputStream extends InputStream {
+
+        private final String source;
+        private int position = 0;
+
+        private AsciiInputStream(String source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() {
+            return position < source.length() ? source.charAt(position++) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= source.length()) {
+                return -1;
+            }
+            int count = Math.min(length, source.length() - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) source.charAt(position++);
+            }
+            return count;
+        }
+    }
+
+    private static class LengthLimitedInputStream extends InputStream {
+
+        private final InputStream delegate;
+        private final int limit;
+        private int count = 0;
+
+        private LengthLimitedInputStream(InputStream delegate, int limit) {
+            this.delegate = delegate;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b != -1) {
+                countRead(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = delegate.read(buffer, offset, length);
+            if (read > 0) {
+                countRead(read);
+            }
+            return read;
+        }
+
+        private void countRead(int read) throws LimitExceededException {
+            count += read;
+            if (count > limit) {
+                throw new LimitExceededException();
+            }
+        }
+    }
+
+    private static class LimitExceededException extends IOException {
+        private LimitExceededException() {
+            super("Decoded SAML message exceeds the maximum length");
+        }
+    }
+}
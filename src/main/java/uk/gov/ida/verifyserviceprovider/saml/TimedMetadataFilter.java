@@ -0,0 +1,30 @@
+package uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.Timer;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.metadata.resolver.filter.FilterException;
+import org.opensaml.saml.metadata.resolver.filter.MetadataFilter;
+
+/**
+ * Times a metadata filter, such as the one that validates the metadata's signature.
+ */
+public class TimedMetadataFilter implements MetadataFilter {
+
+    private final MetadataFilter delegate;
+    private final Timer timer;
+
+    public TimedMetadataFilter(MetadataFilter delegate, Timer timer) {
+        this.delegate = delegate;
+        this.timer = timer;
+    }
+
+    @Override
+    public XMLObject filter(XMLObject metadata) throws FilterException {
+        Timer.Context time = timer.time();
+        try {
+            return delegate.filter(metadata);
+        } finally {
+            time.stop();
+        }
+    }
+}
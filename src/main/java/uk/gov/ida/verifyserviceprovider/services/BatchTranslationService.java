@@ -0,0 +1,106 @@
+package uk.gov.ida.verifyserviceprovider.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+import uk.gov.ida.verifyserviceprovider.dto.BatchTranslationResult;
+import uk.gov.ida.verifyserviceprovider.dto.TranslateSamlResponseBody;
+import uk.gov.ida.verifyserviceprovider.exceptions.InvalidEntityIdException;
+import uk.gov.ida.verifyserviceprovider.exceptions.InvalidRequestTokenException;
+import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+
+/**
+ * Translates a batch of responses in parallel on a shared executor, returning a result or an error
+ * for each item in the order they were given. A failure translating one item does not affect the others.
+ *
+ * If the executor has no room for every item the whole batch is rejected with a {@link RejectedExecutionException},
+ * after cancelling the items already submitted, so the caller can ask the client to try again later.
+ */
+public class BatchTranslationService<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchTranslationService.class);
+
+    private final ResponseService<T> responseService;
+    private final EntityIdService entityIdService;
+    private final ExecutorService executorService;
+    private final RequestTokenService requestTokenService;
+
+    public BatchTranslationService(ResponseService<T> responseService, EntityIdService entityIdService, ExecutorService executorService) {
+        this(responseService, entityIdService, executorService, RequestTokenService.disabled());
+    }
+
+    public BatchTranslationService(
+        ResponseService<T> responseService,
+        EntityIdService entityIdService,
+        ExecutorService executorService,
+        RequestTokenService requestTokenService
+    ) {
+        this.responseService = responseService;
+        this.entityIdService = entityIdService;
+        this.executorService = executorService;
+        this.requestTokenService = requestTokenService;
+    }
+
+    public List<BatchTranslationResult<T>> translate(List<TranslateSamlResponseBody> translateSamlResponseBodies) {
+        List<Future<BatchTranslationResult<T>>> futures = new ArrayList<>();
+        try {
+            for (TranslateSamlResponseBody body : translateSamlResponseBodies) {
+                futures.add(executorService.submit(() -> translate(body)));
+            }
+        } catch (RejectedExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+
+        List<BatchTranslationResult<T>> results = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            results.add(await(translateSamlResponseBodies.get(i).getRequestId(), futures.get(i)));
+        }
+        return results;
+    }
+
+    private BatchTranslationResult<T> translate(TranslateSamlResponseBody translateSamlResponseBody) {
+        String requestId = translateSamlResponseBody.getRequestId();
+        try {
+            String entityId = entityIdService.getEntityId(translateSamlResponseBody);
+            requestTokenService.verify(translateSamlResponseBody, entityId);
+            T translatedResponse = responseService.convertTranslatedResponseBody(
+                translateSamlResponseBody.getSamlResponse(),
+                requestId,
+                translateSamlResponseBody.getLevelOfAssurance(),
+                entityId
+            );
+            return BatchTranslationResult.success(requestId, translatedResponse);
+        } catch (SamlResponseValidationException | SamlTransformationErrorException | InvalidEntityIdException | InvalidRequestTokenException e) {
+            LOG.warn(String.format("Error translating saml response in batch for requestId: %s, got Message: %s", requestId, e.getMessage()));
+            return BatchTranslationResult.error(requestId, BAD_REQUEST.getStatusCode(), e.getMessage());
+        } catch (RuntimeException e) {
+            LOG.error(String.format("Unexpected error translating saml response in batch for requestId: %s", requestId), e);
+            return BatchTranslationResult.error(requestId, INTERNAL_SERVER_ERROR.getStatusCode(), "Unexpected error translating response");
+        }
+    }
+
+    private BatchTranslationResult<T> await(String requestId, Future<BatchTranslationResult<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return BatchTranslationResult.error(requestId, SERVICE_UNAVAILABLE.getStatusCode(), "Batch translation was interrupted");
+        } catch (ExecutionException e) {
+            LOG.error(String.format("Unexpected error translating saml response in batch for requestId: %s", requestId), e.getCause());
+            return BatchTranslationResult.error(requestId, INTERNAL_SERVER_ERROR.getStatusCode(), "Unexpected error translating response");
+        }
+    }
+}
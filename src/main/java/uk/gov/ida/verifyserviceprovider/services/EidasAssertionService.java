@@ -1,5 +1,6 @@
 package uk.gov.ida.verifyserviceprovider.services;
 
+import com.codahale.metrics.MetricRegistry;
 import org.opensaml.saml.saml2.core.Assertion;
 import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
 import uk.gov.ida.saml.core.transformers.AuthnContextFactory;
@@ -9,6 +10,7 @@ import uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance;
 import uk.gov.ida.verifyserviceprovider.dto.NonMatchingAttributes;
 import uk.gov.ida.verifyserviceprovider.dto.TranslatedNonMatchingResponseBody;
 import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
+import uk.gov.ida.verifyserviceprovider.factories.saml.CountrySignatureValidatorCache;
 import uk.gov.ida.verifyserviceprovider.factories.saml.SignatureValidatorFactory;
 import uk.gov.ida.verifyserviceprovider.mappers.MatchingDatasetToNonMatchingAttributesMapper;
 import uk.gov.ida.verifyserviceprovider.validators.ConditionsValidator;
@@ -27,7 +29,7 @@ public class EidasAssertionService extends AssertionServiceV2 {
     private final ConditionsValidator conditionsValidator;
     private final LevelOfAssuranceValidator levelOfAssuranceValidator;
     private final MetadataResolverRepository metadataResolverRepository;
-    private final SignatureValidatorFactory signatureValidatorFactory;
+    private final CountrySignatureValidatorCache signatureValidators;
 
 
     public EidasAssertionService(
@@ -39,12 +41,33 @@ public class EidasAssertionService extends AssertionServiceV2 {
             LevelOfAssuranceValidator levelOfAssuranceValidator,
             MetadataResolverRepository metadataResolverRepository,
             SignatureValidatorFactory signatureValidatorFactory) {
+        this(
+            subjectValidator,
+            matchingDatasetUnmarshaller,
+            mdsMapper,
+            instantValidator,
+            conditionsValidator,
+            levelOfAssuranceValidator,
+            metadataResolverRepository,
+            new CountrySignatureValidatorCache(metadataResolverRepository, signatureValidatorFactory, new MetricRegistry(), "signature-validator-cache")
+        );
+    }
+
+    public EidasAssertionService(
+            SubjectValidator subjectValidator,
+            MatchingDatasetUnmarshaller matchingDatasetUnmarshaller,
+            MatchingDatasetToNonMatchingAttributesMapper mdsMapper,
+            InstantValidator instantValidator,
+            ConditionsValidator conditionsValidator,
+            LevelOfAssuranceValidator levelOfAssuranceValidator,
+            MetadataResolverRepository metadataResolverRepository,
+            CountrySignatureValidatorCache signatureValidators) {
         super(subjectValidator, matchingDatasetUnmarshaller, mdsMapper);
         this.instantValidator = instantValidator;
         this.conditionsValidator = conditionsValidator;
         this.levelOfAssuranceValidator = levelOfAssuranceValidator;
         this.metadataResolverRepository = metadataResolverRepository;
-        this.signatureValidatorFactory = signatureValidatorFactory;
+        this.signatureValidators = signatureValidators;
     }
 
 
@@ -69,7 +92,7 @@ public class EidasAssertionService extends AssertionServiceV2 {
     }
 
     private void validateCountryAssertion(Assertion assertion, String expectedInResponseTo, String entityId) {
-        signatureValidatorFactory.getSignatureValidator(metadataResolverRepository.getSignatureTrustEngine(assertion.getIssuer().getValue()))
+        signatureValidators.getSignatureValidator(assertion.getIssuer().getValue())
                 .orElseThrow(() -> new SamlResponseValidationException("Unable to find metadata resolver for entity Id " + assertion.getIssuer().getValue()))
                 .validate(singletonList(assertion), IDPSSODescriptor.DEFAULT_ELEMENT_NAME);
         instantValidator.validate(assertion.getIssueInstant(), "Country Assertion IssueInstant");
@@ -16,6 +16,7 @@ import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationExcepti
 import uk.gov.ida.verifyserviceprovider.factories.saml.UserIdHashFactory;
 import uk.gov.ida.verifyserviceprovider.mappers.MatchingDatasetToNonMatchingAttributesMapper;
 import uk.gov.ida.verifyserviceprovider.services.AssertionClassifier.AssertionType;
+import uk.gov.ida.verifyserviceprovider.utils.Futures;
 import uk.gov.ida.verifyserviceprovider.validators.LevelOfAssuranceValidator;
 import uk.gov.ida.verifyserviceprovider.validators.SubjectValidator;
 import javax.xml.namespace.QName;
@@ -25,6 +26,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 import static java.util.Collections.singletonList;
 import static uk.gov.ida.saml.core.validation.errors.GenericHubProfileValidationSpecification.MISMATCHED_ISSUERS;
@@ -38,7 +40,12 @@ public class IdpAssertionService extends AssertionServiceV2 {
     private final AssertionClassifier assertionClassifierService;
     private final LevelOfAssuranceValidator levelOfAssuranceValidator;
     private UserIdHashFactory userIdHashFactory;
+    private final Executor validationExecutor;
 
+    /**
+     * @param validationExecutor validates the matching dataset assertion while the calling thread validates the authn
+     *                           assertion, unless the calling thread gets to it first
+     */
     public IdpAssertionService(
             SamlAssertionsSignatureValidator assertionsSignatureValidator,
             SubjectValidator subjectValidator,
@@ -47,9 +54,11 @@ public class IdpAssertionService extends AssertionServiceV2 {
             AssertionClassifier assertionClassifierService,
             MatchingDatasetToNonMatchingAttributesMapper mdsMapper,
             LevelOfAssuranceValidator levelOfAssuranceValidator,
-            UserIdHashFactory userIdHashFactory
+            UserIdHashFactory userIdHashFactory,
+            Executor validationExecutor
     ) {
         super(subjectValidator, matchingDatasetUnmarshaller, mdsMapper);
+        this.validationExecutor = validationExecutor;
         this.assertionsSignatureValidator = assertionsSignatureValidator;
         this.attributeStatementValidator = attributeStatementValidator;
         this.assertionClassifierService = assertionClassifierService;
@@ -60,8 +69,9 @@ public class IdpAssertionService extends AssertionServiceV2 {
 
     @Override
     public TranslatedNonMatchingResponseBody translateSuccessResponse(List<Assertion> assertions, String expectedInResponseTo, LevelOfAssurance expectedLevelOfAssurance, String entityId) {
-        Assertion authnAssertion = getAuthnAssertion(assertions);
-        Assertion mdsAssertion = getMatchingDatasetAssertion(assertions);
+        Map<AssertionType, List<Assertion>> assertionMap = classify(assertions);
+        Assertion authnAssertion = getAuthnAssertion(assertionMap);
+        Assertion mdsAssertion = getMatchingDatasetAssertion(assertionMap);
 
         LevelOfAssurance levelOfAssurance = extractLevelOfAssuranceFrom(authnAssertion);
 
@@ -100,8 +110,12 @@ public class IdpAssertionService extends AssertionServiceV2 {
 
     public void validate(Assertion authnAssertion, Assertion mdsAssertion, String requestId, LevelOfAssurance expectedLevelOfAssurance, LevelOfAssurance levelOfAssurance) {
 
-        validateIdpAssertion(authnAssertion, requestId, IDPSSODescriptor.DEFAULT_ELEMENT_NAME);
-        validateIdpAssertion(mdsAssertion, requestId, IDPSSODescriptor.DEFAULT_ELEMENT_NAME);
+        // Each decrypted assertion is rooted in its own DOM document, so their signatures can be verified at the same time
+        Futures.runAlongside(
+            () -> validateIdpAssertion(authnAssertion, requestId, IDPSSODescriptor.DEFAULT_ELEMENT_NAME),
+            () -> validateIdpAssertion(mdsAssertion, requestId, IDPSSODescriptor.DEFAULT_ELEMENT_NAME),
+            validationExecutor
+        );
 
         levelOfAssuranceValidator.validate(levelOfAssurance, expectedLevelOfAssurance);
 
@@ -144,10 +158,12 @@ public class IdpAssertionService extends AssertionServiceV2 {
     }
 
 
-    private Assertion getAuthnAssertion(Collection<Assertion> assertions) {
-        Map<AssertionType, List<Assertion>> assertionMap = assertions.stream()
+    private Map<AssertionType, List<Assertion>> classify(Collection<Assertion> assertions) {
+        return assertions.stream()
                 .collect(Collectors.groupingBy(assertionClassifierService::classifyAssertion));
+    }
 
+    private Assertion getAuthnAssertion(Map<AssertionType, List<Assertion>> assertionMap) {
         List<Assertion> authnAssertions = assertionMap.get(AssertionType.AUTHN_ASSERTION);
         if (authnAssertions == null || authnAssertions.size() != 1) {
             throw new SamlResponseValidationException("Exactly one authn statement is expected.");
@@ -156,10 +172,7 @@ public class IdpAssertionService extends AssertionServiceV2 {
         return authnAssertions.get(0);
     }
 
-    private Assertion getMatchingDatasetAssertion(Collection<Assertion> assertions) {
-        Map<AssertionType, List<Assertion>> assertionMap = assertions.stream()
-                .collect(Collectors.groupingBy(assertionClassifierService::classifyAssertion));
-
+    private Assertion getMatchingDatasetAssertion(Map<AssertionType, List<Assertion>> assertionMap) {
         List<Assertion> mdsAssertions = assertionMap.get(AssertionType.MDS_ASSERTION);
         if (mdsAssertions == null || mdsAssertions.size() != 1) {
             throw new SamlResponseValidationException("Exactly one matching dataset assertion is expected.");
@@ -51,12 +51,13 @@ public class MsaAssertionService implements AssertionService<TranslatedResponseB
         //  2. validate assertions
         Assertion assertion = assertions.get(0);
         assertionValidator.validate(assertion, expectedInResponseTo, entityId);
-        assertionsSignatureValidator.validate(assertions, IDPSSODescriptor.DEFAULT_ELEMENT_NAME);
-        //  3. validate levelOfAssurance
+        //  3. validate levelOfAssurance, before the more expensive signature check
         AuthnStatement authnStatement = assertion.getAuthnStatements().get(0);
         LevelOfAssurance levelOfAssurance = extractLevelOfAssurance(authnStatement);
         levelOfAssuranceValidator.validate(levelOfAssurance, expectedLevelOfAssurance);
-        //  4. translateAssertions
+        //  4. validate signatures
+        assertionsSignatureValidator.validate(assertions, IDPSSODescriptor.DEFAULT_ELEMENT_NAME);
+        //  5. translateAssertions
         String nameID = assertion.getSubject().getNameID().getValue();
         List<AttributeStatement> attributeStatements = assertion.getAttributeStatements();
         if (isUserAccountCreation(attributeStatements)) {
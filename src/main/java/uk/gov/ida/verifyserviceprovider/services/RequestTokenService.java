@@ -0,0 +1,112 @@
+package uk.gov.ida.verifyserviceprovider.services;
+
+import uk.gov.ida.verifyserviceprovider.dto.TranslateSamlResponseBody;
+import uk.gov.ida.verifyserviceprovider.exceptions.InvalidRequestTokenException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Binds each requestId to the entity ID it was generated for with an HMAC, so that a response can be checked
+ * against the request it claims to answer without the VSP remembering anything. Every node configured with the
+ * same secret accepts the tokens of every other node.
+ *
+ * When disabled, no tokens are issued and none are required.
+ */
+public class RequestTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MINIMUM_SECRET_BYTES = 32;
+
+    private final ThreadLocal<Mac> macs;
+
+    public static RequestTokenService disabled() {
+        return new RequestTokenService();
+    }
+
+    private RequestTokenService() {
+        this.macs = null;
+    }
+
+    public RequestTokenService(String base64Secret) {
+        byte[] secret = decodeSecret(base64Secret);
+        SecretKeySpec key = new SecretKeySpec(secret, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> createMac(key));
+        macs.get();
+    }
+
+    public boolean isEnabled() {
+        return macs != null;
+    }
+
+    /**
+     * @return the token for the request, or null if request tokens are disabled
+     */
+    public String createToken(String requestId, String entityId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac(requestId, entityId));
+    }
+
+    public void verify(TranslateSamlResponseBody translateSamlResponseBody, String entityId) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        String requestToken = translateSamlResponseBody.getRequestToken();
+        if (requestToken == null) {
+            throw new InvalidRequestTokenException(String.format("No requestToken was provided for requestId: %s", translateSamlResponseBody.getRequestId()));
+        }
+
+        byte[] expected = mac(translateSamlResponseBody.getRequestId(), entityId);
+        if (!MessageDigest.isEqual(expected, decodeToken(requestToken))) {
+            throw new InvalidRequestTokenException(String.format("The requestToken does not match requestId: %s", translateSamlResponseBody.getRequestId()));
+        }
+    }
+
+    private byte[] mac(String requestId, String entityId) {
+        Mac mac = macs.get();
+        mac.update(requestId.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return mac.doFinal(entityId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] decodeToken(String requestToken) {
+        try {
+            return Base64.getUrlDecoder().decode(requestToken);
+        } catch (IllegalArgumentException e) {
+            return new byte[0];
+        }
+    }
+
+    private static byte[] decodeSecret(String base64Secret) {
+        if (base64Secret == null) {
+            throw new IllegalArgumentException("requestTokens.secret must be set when request tokens are enabled");
+        }
+        byte[] secret;
+        try {
+            secret = Base64.getDecoder().decode(base64Secret);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("requestTokens.secret must be base64 encoded", e);
+        }
+        if (secret.length < MINIMUM_SECRET_BYTES) {
+            throw new IllegalArgumentException(String.format("requestTokens.secret must be at least %d bytes long", MINIMUM_SECRET_BYTES));
+        }
+        return secret;
+    }
+
+    private static Mac createMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not create " + ALGORITHM, e);
+        }
+    }
+}
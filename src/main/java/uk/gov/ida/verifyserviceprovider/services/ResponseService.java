@@ -1,39 +1,80 @@
 package uk.gov.ida.verifyserviceprovider.services;
 
+import org.joda.time.DateTime;
 import org.opensaml.saml.saml2.core.Assertion;
 import org.opensaml.saml.saml2.core.Response;
 import org.opensaml.saml.saml2.core.StatusCode;
+import org.opensaml.saml.saml2.core.SubjectConfirmation;
+import org.opensaml.saml.saml2.core.SubjectConfirmationData;
 import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
-import uk.gov.ida.saml.deserializers.StringToOpenSamlObjectTransformer;
 import uk.gov.ida.saml.security.AssertionDecrypter;
 import uk.gov.ida.saml.security.validators.ValidatedResponse;
 import uk.gov.ida.saml.security.validators.signature.SamlResponseSignatureValidator;
+import uk.gov.ida.verifyserviceprovider.cache.ReplayCache;
+import uk.gov.ida.verifyserviceprovider.cache.TranslationResultCache;
 import uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance;
 import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
+import uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics;
+import uk.gov.ida.verifyserviceprovider.utils.Futures;
 import uk.gov.ida.verifyserviceprovider.validators.InstantValidator;
+import uk.gov.ida.verifyserviceprovider.validators.ResponsePrecheckValidator;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import static java.util.Collections.emptyList;
+import static uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics.Stage.ASSERTION_TRANSLATION;
+import static uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics.Stage.DECRYPTION;
+import static uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics.Stage.INSTANT_VALIDATION;
+import static uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics.Stage.PARSE;
+import static uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics.Stage.PRECHECK;
+import static uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics.Stage.RESPONSE_SIGNATURE_VALIDATION;
 
 public class ResponseService<T> {
 
-    private final StringToOpenSamlObjectTransformer<Response> stringToOpenSamlObjectTransformer;
+    private final Function<String, Response> stringToOpenSamlObjectTransformer;
     private final AssertionDecrypter assertionDecrypter;
     private final AssertionService<T> assertionService;
     private final SamlResponseSignatureValidator responseSignatureValidator;
     private final InstantValidator instantValidator;
+    private final ResponsePrecheckValidator precheckValidator;
+    private final ResponseMetrics<T> metrics;
+    private final ReplayCache replayCache;
+    private final TranslationResultCache<T> resultCache;
+    private final Optional<Executor> speculativeDecryptionExecutor;
 
+    /**
+     * @param speculativeDecryptionExecutor if present, a successful response's assertions are decrypted on this
+     *                                      executor while its signature is verified, and discarded if the
+     *                                      signature is not valid
+     */
     public ResponseService(
-        StringToOpenSamlObjectTransformer<Response> stringToOpenSamlObjectTransformer,
+        Function<String, Response> stringToOpenSamlObjectTransformer,
         AssertionDecrypter assertionDecrypter,
         AssertionService<T> assertionService,
         SamlResponseSignatureValidator responseSignatureValidator,
-        InstantValidator instantValidator
+        InstantValidator instantValidator,
+        ResponsePrecheckValidator precheckValidator,
+        ResponseMetrics<T> metrics,
+        ReplayCache replayCache,
+        TranslationResultCache<T> resultCache,
+        Optional<Executor> speculativeDecryptionExecutor
     ) {
         this.stringToOpenSamlObjectTransformer = stringToOpenSamlObjectTransformer;
         this.assertionDecrypter = assertionDecrypter;
         this.assertionService = assertionService;
         this.responseSignatureValidator = responseSignatureValidator;
         this.instantValidator = instantValidator;
+        this.precheckValidator = precheckValidator;
+        this.metrics = metrics;
+        this.replayCache = replayCache;
+        this.resultCache = resultCache;
+        this.speculativeDecryptionExecutor = speculativeDecryptionExecutor;
     }
 
     public T convertTranslatedResponseBody(
@@ -42,9 +83,44 @@ public class ResponseService<T> {
         LevelOfAssurance expectedLevelOfAssurance,
         String entityId
     ) {
-        Response response = stringToOpenSamlObjectTransformer.apply(decodedSamlResponse);
+        return resultCache.get(decodedSamlResponse, expectedInResponseTo, expectedLevelOfAssurance, entityId,
+            () -> timedTranslate(decodedSamlResponse, expectedInResponseTo, expectedLevelOfAssurance, entityId));
+    }
+
+    private T timedTranslate(
+        String decodedSamlResponse,
+        String expectedInResponseTo,
+        LevelOfAssurance expectedLevelOfAssurance,
+        String entityId
+    ) {
+        long start = System.nanoTime();
+        T translatedResponse;
+        try {
+            translatedResponse = translate(decodedSamlResponse, expectedInResponseTo, expectedLevelOfAssurance, entityId);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(entityId, start);
+            throw e;
+        }
+        metrics.recordTranslation(entityId, translatedResponse, start);
+        return translatedResponse;
+    }
+
+    private T translate(
+        String decodedSamlResponse,
+        String expectedInResponseTo,
+        LevelOfAssurance expectedLevelOfAssurance,
+        String entityId
+    ) {
+        Response response = metrics.time(PARSE, entityId, () -> stringToOpenSamlObjectTransformer.apply(decodedSamlResponse));
+
+        rejectIfReplayed("Response", response.getID());
+
+        metrics.run(PRECHECK, entityId, () -> precheckValidator.validate(response, expectedInResponseTo));
 
-        ValidatedResponse validatedResponse = responseSignatureValidator.validate(response, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+        Optional<CompletableFuture<List<Assertion>>> speculativeAssertions = startSpeculativeDecryption(response);
+
+        ValidatedResponse validatedResponse = metrics.time(RESPONSE_SIGNATURE_VALIDATION, entityId,
+            () -> responseSignatureValidator.validate(response, SPSSODescriptor.DEFAULT_ELEMENT_NAME));
 
         if (!expectedInResponseTo.equals(validatedResponse.getInResponseTo())) {
             throw new SamlResponseValidationException(
@@ -52,19 +128,99 @@ public class ResponseService<T> {
             );
         }
 
-        instantValidator.validate(validatedResponse.getIssueInstant(), "Response IssueInstant");
+        metrics.run(INSTANT_VALIDATION, entityId, () -> instantValidator.validate(validatedResponse.getIssueInstant(), "Response IssueInstant"));
 
         StatusCode statusCode = validatedResponse.getStatus().getStatusCode();
 
         switch (statusCode.getValue()) {
             case StatusCode.RESPONDER:
-                return assertionService.translateNonSuccessResponse(statusCode);
+                T nonSuccessResponse = metrics.time(ASSERTION_TRANSLATION, entityId, () -> assertionService.translateNonSuccessResponse(statusCode));
+                recordOrReject("Response", response.getID(), replayExpiry(validatedResponse, emptyList()));
+                return nonSuccessResponse;
             case StatusCode.SUCCESS:
-                List<Assertion> assertions = assertionDecrypter.decryptAssertions(validatedResponse);
-                return assertionService.translateSuccessResponse(assertions, expectedInResponseTo, expectedLevelOfAssurance, entityId);
+                List<Assertion> assertions = metrics.time(DECRYPTION, entityId, () -> speculativeAssertions
+                    .map(Futures::join)
+                    .orElseGet(() -> assertionDecrypter.decryptAssertions(validatedResponse)));
+                for (Assertion assertion : assertions) {
+                    rejectIfReplayed("Assertion", assertion.getID());
+                }
+                T successResponse = metrics.time(ASSERTION_TRANSLATION, entityId,
+                    () -> assertionService.translateSuccessResponse(assertions, expectedInResponseTo, expectedLevelOfAssurance, entityId));
+                DateTime expiry = replayExpiry(validatedResponse, assertions);
+                recordOrReject("Response", response.getID(), expiry);
+                for (Assertion assertion : assertions) {
+                    recordOrReject("Assertion", assertion.getID(), expiry);
+                }
+                return successResponse;
             default:
                 throw new SamlResponseValidationException(String.format("Unknown SAML status: %s", statusCode.getValue()));
         }
     }
 
+    /**
+     * Only the response's own signature is trusted to say what it contains, so anything decrypted here is used
+     * only once that signature has been verified. If verification fails the decryption is left to finish and
+     * its result, or its error, is never looked at.
+     *
+     * Both steps only read the response's DOM, which unmarshalling has already fully expanded, and the decrypter
+     * puts each decrypted assertion in a new document.
+     */
+    private Optional<CompletableFuture<List<Assertion>>> startSpeculativeDecryption(Response response) {
+        if (!speculativeDecryptionExecutor.isPresent() || !hasSuccessStatus(response)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(CompletableFuture.supplyAsync(
+                () -> assertionDecrypter.decryptAssertions(new ValidatedResponse(response)),
+                speculativeDecryptionExecutor.get()
+            ));
+        } catch (RejectedExecutionException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static boolean hasSuccessStatus(Response response) {
+        return response.getStatus() != null
+            && response.getStatus().getStatusCode() != null
+            && StatusCode.SUCCESS.equals(response.getStatus().getStatusCode().getValue());
+    }
+
+    private void rejectIfReplayed(String type, String id) {
+        if (id != null && replayCache.hasSeen(id)) {
+            throw replayed(type, id);
+        }
+    }
+
+    private void recordOrReject(String type, String id, DateTime expiry) {
+        if (id != null && !replayCache.recordIfAbsent(id, expiry)) {
+            throw replayed(type, id);
+        }
+    }
+
+    private static SamlResponseValidationException replayed(String type, String id) {
+        return new SamlResponseValidationException(String.format("%s %s has already been processed", type, id));
+    }
+
+    /**
+     * An ID only needs remembering until the response would be rejected as too old, or its
+     * assertions' subject confirmations have expired, whichever is later.
+     */
+    private static DateTime replayExpiry(ValidatedResponse validatedResponse, List<Assertion> assertions) {
+        DateTime responseExpiry = validatedResponse.getIssueInstant().plus(InstantValidator.MAXIMUM_INSTANT_AGE);
+        return latestNotOnOrAfter(assertions)
+            .filter(notOnOrAfter -> notOnOrAfter.isAfter(responseExpiry))
+            .orElse(responseExpiry);
+    }
+
+    private static Optional<DateTime> latestNotOnOrAfter(List<Assertion> assertions) {
+        return assertions.stream()
+            .map(Assertion::getSubject)
+            .filter(Objects::nonNull)
+            .flatMap(subject -> subject.getSubjectConfirmations().stream())
+            .map(SubjectConfirmation::getSubjectConfirmationData)
+            .filter(Objects::nonNull)
+            .map(SubjectConfirmationData::getNotOnOrAfter)
+            .filter(Objects::nonNull)
+            .max(DateTime::compareTo);
+    }
 }
@@ -0,0 +1,126 @@
+package uk.gov.ida.verifyserviceprovider.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.lifecycle.Managed;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
+import uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance;
+import uk.gov.ida.verifyserviceprovider.dto.RequestResponseBody;
+import uk.gov.ida.verifyserviceprovider.dto.TranslateSamlResponseBody;
+import uk.gov.ida.verifyserviceprovider.dto.TranslatedResponseBody;
+import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.SyntheticResponseFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates and translates synthetic requests and responses when the service starts, so the XML parsers,
+ * signature and encryption providers, and JSON serializers are loaded and compiled before the first user
+ * arrives. None of the synthetic traffic reaches the hub, the replay cache or the application's metrics.
+ */
+public class WarmUpService implements Managed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WarmUpService.class);
+
+    private final AuthnRequestFactory authnRequestFactory;
+    private final SyntheticResponseFactory syntheticResponseFactory;
+    private final ResponseService<TranslatedResponseBody> responseService;
+    private final ObjectMapper objectMapper;
+    private final URI ssoLocation;
+    private final String entityId;
+    private final int iterations;
+    private final ExecutorService executorService;
+    private final XmlObjectToBase64EncodedStringTransformer<AuthnRequest> toBase64 = new XmlObjectToBase64EncodedStringTransformer<>();
+    private final AtomicInteger completedIterations = new AtomicInteger();
+    private volatile boolean finished = false;
+    private volatile String failure;
+
+    public WarmUpService(
+        AuthnRequestFactory authnRequestFactory,
+        SyntheticResponseFactory syntheticResponseFactory,
+        ResponseService<TranslatedResponseBody> responseService,
+        ObjectMapper objectMapper,
+        URI ssoLocation,
+        String entityId,
+        int iterations,
+        ExecutorService executorService
+    ) {
+        this.authnRequestFactory = authnRequestFactory;
+        this.syntheticResponseFactory = syntheticResponseFactory;
+        this.responseService = responseService;
+        this.objectMapper = objectMapper;
+        this.ssoLocation = ssoLocation;
+        this.entityId = entityId;
+        this.iterations = iterations;
+        this.executorService = executorService;
+    }
+
+    @Override
+    public void start() {
+        executorService.submit(this::warmUp);
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getCompletedIterations() {
+        return completedIterations.get();
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public Optional<String> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        try {
+            while (completedIterations.get() < iterations && !Thread.currentThread().isInterrupted()) {
+                generateAndTranslate();
+                completedIterations.incrementAndGet();
+            }
+            LOG.info(String.format("Warm-up completed %d iterations in %dms", completedIterations.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        } catch (IOException | RuntimeException e) {
+            failure = e.getMessage();
+            LOG.warn(String.format("Warm-up stopped after %d iterations", completedIterations.get()), e);
+        } finally {
+            finished = true;
+        }
+    }
+
+    private void generateAndTranslate() throws IOException {
+        AuthnRequest authnRequest = authnRequestFactory.build(LevelOfAssurance.LEVEL_2, entityId);
+        objectMapper.writeValueAsString(new RequestResponseBody(toBase64.apply(authnRequest), authnRequest.getID(), ssoLocation));
+
+        String translateRequest = objectMapper.writeValueAsString(new TranslateSamlResponseBody(
+            syntheticResponseFactory.createMatchingResponse(authnRequest.getID(), entityId),
+            authnRequest.getID(),
+            LevelOfAssurance.LEVEL_2,
+            entityId
+        ));
+        TranslateSamlResponseBody translateSamlResponseBody = objectMapper.readValue(translateRequest, TranslateSamlResponseBody.class);
+
+        TranslatedResponseBody translatedResponseBody = responseService.convertTranslatedResponseBody(
+            translateSamlResponseBody.getSamlResponse(),
+            translateSamlResponseBody.getRequestId(),
+            translateSamlResponseBody.getLevelOfAssurance(),
+            translateSamlResponseBody.getEntityId()
+        );
+        objectMapper.writeValueAsString(translatedResponseBody);
+    }
+}
@@ -0,0 +1,72 @@
+package uk.gov.ida.verifyserviceprovider.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * Waits for the future and rethrows the exception it failed with, rather than a CompletionException wrapping it,
+     * so callers see the same exceptions as if the work had been done on their own thread.
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the task on the executor while the calling thread runs the caller's task, and returns once both have
+     * finished. If the executor has no room for the task, or has not started it by the time the caller's task has
+     * finished, the calling thread runs it instead. Callers that are themselves running on the executor therefore
+     * never wait for a thread that may never become free.
+     *
+     * When the calling thread runs the task instead, the task is taken off a {@link ThreadPoolExecutor}'s queue, so
+     * it does not hold a place there that could cause real work to be rejected.
+     */
+    public static void runAlongside(Runnable callerTask, Runnable task, Executor executor) {
+        AtomicBoolean started = new AtomicBoolean(false);
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        Runnable queuedTask = () -> {
+            if (started.compareAndSet(false, true)) {
+                try {
+                    task.run();
+                    completion.complete(null);
+                } catch (Throwable e) {
+                    completion.completeExceptionally(e);
+                }
+            }
+        };
+        try {
+            executor.execute(queuedTask);
+        } catch (RejectedExecutionException e) {
+            // The task is run below, once the caller's task has finished
+        }
+
+        callerTask.run();
+
+        if (started.compareAndSet(false, true)) {
+            if (executor instanceof ThreadPoolExecutor) {
+                ((ThreadPoolExecutor) executor).remove(queuedTask);
+            }
+            task.run();
+        } else {
+            join(completion);
+        }
+    }
+}
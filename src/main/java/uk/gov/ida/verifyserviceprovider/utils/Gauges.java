@@ -0,0 +1,19 @@
+package uk.gov.ida.verifyserviceprovider.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+public class Gauges {
+
+    private Gauges() {
+    }
+
+    /**
+     * Registers the gauge under the name, replacing any gauge already registered there. The published gauge then
+     * always reads the most recently built instance, rather than one that may since have been discarded.
+     */
+    public static void replace(MetricRegistry metricRegistry, String name, Gauge<?> gauge) {
+        metricRegistry.remove(name);
+        metricRegistry.register(name, gauge);
+    }
+}
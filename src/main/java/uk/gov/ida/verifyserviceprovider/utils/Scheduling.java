@@ -0,0 +1,37 @@
+package uk.gov.ida.verifyserviceprovider.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class Scheduling {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Scheduling.class);
+
+    private Scheduling() {
+    }
+
+    /**
+     * Like {@link ScheduledExecutorService#scheduleWithFixedDelay}, except that a run which throws is logged and the
+     * task keeps being run. Otherwise one exception would silently cancel every later run.
+     */
+    public static ScheduledFuture<?> scheduleWithFixedDelayLoggingFailures(
+        ScheduledExecutorService scheduler,
+        Runnable task,
+        String description,
+        long initialDelay,
+        long delay,
+        TimeUnit unit
+    ) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOG.warn(String.format("Failed to %s", description), e);
+            }
+        }, initialDelay, delay, unit);
+    }
+}
@@ -11,7 +11,7 @@ import static org.joda.time.format.ISODateTimeFormat.dateHourMinuteSecond;
 
 public class InstantValidator {
 
-    private static final Duration MAXIMUM_INSTANT_AGE = Duration.standardMinutes(5);
+    public static final Duration MAXIMUM_INSTANT_AGE = Duration.standardMinutes(5);
     private final DateTimeComparator dateTimeComparator;
 
     public InstantValidator(DateTimeComparator dateTimeComparator) {
@@ -0,0 +1,53 @@
+package uk.gov.ida.verifyserviceprovider.validators;
+
+import com.google.common.collect.ImmutableSet;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.core.Status;
+import org.opensaml.saml.saml2.core.StatusCode;
+import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Rejects responses that could never be accepted before any signature is verified. Every check here
+ * costs next to nothing compared with verifying a signature, and is repeated on the verified response,
+ * so nothing is trusted because it passed these checks.
+ */
+public class ResponsePrecheckValidator {
+
+    private static final Set<String> KNOWN_STATUSES = ImmutableSet.of(StatusCode.SUCCESS, StatusCode.RESPONDER);
+
+    private final InstantValidator instantValidator;
+
+    public ResponsePrecheckValidator(InstantValidator instantValidator) {
+        this.instantValidator = instantValidator;
+    }
+
+    public static ResponsePrecheckValidator disabled() {
+        return new ResponsePrecheckValidator(null) {
+            @Override
+            public void validate(Response response, String expectedInResponseTo) {
+            }
+        };
+    }
+
+    public void validate(Response response, String expectedInResponseTo) {
+        if (!expectedInResponseTo.equals(response.getInResponseTo())) {
+            throw new SamlResponseValidationException(
+                String.format("Expected InResponseTo to be %s, but was %s", expectedInResponseTo, response.getInResponseTo())
+            );
+        }
+
+        if (response.getIssueInstant() != null) {
+            instantValidator.validate(response.getIssueInstant(), "Response IssueInstant");
+        }
+
+        Optional<String> status = Optional.ofNullable(response.getStatus())
+            .map(Status::getStatusCode)
+            .map(StatusCode::getValue);
+        if (status.isPresent() && !KNOWN_STATUSES.contains(status.get())) {
+            throw new SamlResponseValidationException(String.format("Unknown SAML status: %s", status.get()));
+        }
+    }
+}
@@ -5,7 +5,7 @@ import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationExcepti
 
 public class ResponseSizeValidator implements SizeValidator {
 
-    private static final int MAX_SAML_RESPONSE_LENGTH = 50000;
+    public static final int MAX_SAML_RESPONSE_LENGTH = 50000;
 
     @Override
     public void validate(String input) {
@@ -0,0 +1,201 @@
+package unit.uk.gov.ida.verifyserviceprovider.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Test;
+import uk.gov.ida.saml.core.domain.Gender;
+import uk.gov.ida.shared.utils.datetime.DateTimeFreezer;
+import uk.gov.ida.verifyserviceprovider.cache.EncryptedTranslationResultCache;
+import uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance;
+import uk.gov.ida.verifyserviceprovider.dto.NonMatchingAddress;
+import uk.gov.ida.verifyserviceprovider.dto.NonMatchingAttributes;
+import uk.gov.ida.verifyserviceprovider.dto.NonMatchingScenario;
+import uk.gov.ida.verifyserviceprovider.dto.NonMatchingVerifiableAttribute;
+import uk.gov.ida.verifyserviceprovider.dto.TranslatedNonMatchingResponseBody;
+import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
+import uk.gov.ida.verifyserviceprovider.utils.DefaultObjectMapper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class EncryptedTranslationResultCacheTest {
+
+    private static final String SAML_RESPONSE = "some-saml-response";
+    private static final String REQUEST_ID = "some-request-id";
+    private static final String ENTITY_ID = "some-entity-id";
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final EncryptedTranslationResultCache<TranslatedNonMatchingResponseBody> cache = new EncryptedTranslationResultCache<>(
+        TranslatedNonMatchingResponseBody.class,
+        Duration.standardSeconds(30),
+        10,
+        DefaultObjectMapper.OBJECT_MAPPER,
+        metricRegistry,
+        "result-cache"
+    );
+    private final TranslatedNonMatchingResponseBody translatedResponse = new TranslatedNonMatchingResponseBody(
+        NonMatchingScenario.IDENTITY_VERIFIED,
+        "some-pid",
+        LevelOfAssurance.LEVEL_2,
+        new NonMatchingAttributes(
+            new NonMatchingVerifiableAttribute<>("Jane", true, LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2010, 1, 1, 0, 0)),
+            null,
+            null,
+            new NonMatchingVerifiableAttribute<>(LocalDate.of(1980, 5, 24), true, null, null),
+            new NonMatchingVerifiableAttribute<>(Gender.FEMALE, false, null, null),
+            singletonList(new NonMatchingVerifiableAttribute<>(new NonMatchingAddress(singletonList("1 Some Street"), "AB1 2CD", null), true, null, null))
+        )
+    );
+
+    @After
+    public void tearDown() {
+        DateTimeFreezer.unfreezeTime();
+    }
+
+    @Test
+    public void shouldReturnTheCachedResultForAnIdenticalRequest() throws Exception {
+        CountingTranslation translation = new CountingTranslation(() -> translatedResponse);
+
+        TranslatedNonMatchingResponseBody first = cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation);
+        TranslatedNonMatchingResponseBody second = cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation);
+
+        assertThat(asJson(first)).isEqualTo(asJson(translatedResponse));
+        assertThat(asJson(second)).isEqualTo(asJson(translatedResponse));
+        assertThat(translation.count()).isEqualTo(1);
+        assertThat(metricRegistry.counter("result-cache.misses").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("result-cache.hits").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldTranslateAgainWhenAnyPartOfTheRequestDiffers() {
+        CountingTranslation translation = new CountingTranslation(() -> translatedResponse);
+
+        cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation);
+        cache.get("another-saml-response", REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation);
+        cache.get(SAML_RESPONSE, "another-request-id", LevelOfAssurance.LEVEL_2, ENTITY_ID, translation);
+        cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_1, ENTITY_ID, translation);
+        cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, null, translation);
+
+        assertThat(translation.count()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldTranslateAgainOnceTheCachedResultHasExpired() {
+        CountingTranslation translation = new CountingTranslation(() -> translatedResponse);
+        DateTimeFreezer.freezeTime();
+
+        cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation);
+        DateTimeFreezer.freezeTime(DateTime.now().plusSeconds(31));
+        cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation);
+
+        assertThat(translation.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotCacheFailedTranslations() {
+        CountingTranslation translation = new CountingTranslation(() -> {
+            throw new SamlResponseValidationException("Signature was not valid.");
+        });
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation))
+                .isInstanceOf(SamlResponseValidationException.class)
+                .hasMessage("Signature was not valid.");
+        }
+        assertThat(translation.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotCacheTranslationsThatFailWithAnError() {
+        CountingTranslation translation = new CountingTranslation(() -> {
+            throw new NoClassDefFoundError("Missing class");
+        });
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation))
+                .isInstanceOf(NoClassDefFoundError.class);
+        }
+        assertThat(translation.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldCoalesceIdenticalRequestsThatArriveWhileTheFirstIsInProgress() throws Exception {
+        CountDownLatch translationStarted = new CountDownLatch(1);
+        CountDownLatch releaseTranslation = new CountDownLatch(1);
+        CountingTranslation translation = new CountingTranslation(() -> {
+            translationStarted.countDown();
+            try {
+                releaseTranslation.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return translatedResponse;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<TranslatedNonMatchingResponseBody> first = executor.submit(() -> cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation));
+            translationStarted.await();
+            Future<TranslatedNonMatchingResponseBody> second = executor.submit(() -> cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation));
+            while (metricRegistry.counter("result-cache.coalesced").getCount() == 0) {
+                Thread.sleep(10);
+            }
+            releaseTranslation.countDown();
+
+            assertThat(asJson(first.get(5, TimeUnit.SECONDS))).isEqualTo(asJson(translatedResponse));
+            assertThat(asJson(second.get(5, TimeUnit.SECONDS))).isEqualTo(asJson(translatedResponse));
+            assertThat(translation.count()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldTranslateWithoutCachingWhenFullOfLiveEntries() {
+        CountingTranslation translation = new CountingTranslation(() -> translatedResponse);
+        for (int i = 0; i < 10; i++) {
+            cache.get(SAML_RESPONSE + i, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation);
+        }
+
+        cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation);
+        cache.get(SAML_RESPONSE, REQUEST_ID, LevelOfAssurance.LEVEL_2, ENTITY_ID, translation);
+
+        assertThat(translation.count()).isEqualTo(12);
+    }
+
+    private static String asJson(TranslatedNonMatchingResponseBody translatedResponse) throws JsonProcessingException {
+        return DefaultObjectMapper.OBJECT_MAPPER.writeValueAsString(translatedResponse);
+    }
+
+    private static class CountingTranslation implements Supplier<TranslatedNonMatchingResponseBody> {
+        private final AtomicInteger count = new AtomicInteger();
+        private final Supplier<TranslatedNonMatchingResponseBody> translation;
+
+        private CountingTranslation(Supplier<TranslatedNonMatchingResponseBody> translation) {
+            this.translation = translation;
+        }
+
+        @Override
+        public TranslatedNonMatchingResponseBody get() {
+            count.incrementAndGet();
+            return translation.get();
+        }
+
+        private int count() {
+            return count.get();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package unit.uk.gov.ida.verifyserviceprovider.cache;
+
+import org.joda.time.DateTime;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.gov.ida.verifyserviceprovider.cache.MappedReplayCache;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedReplayCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final DateTime inAnHour = DateTime.now().plusHours(1);
+
+    @Test
+    public void shouldRememberRecordedIdsUntilTheyExpire() {
+        MappedReplayCache replayCache = MappedReplayCache.inMemory(10);
+
+        assertThat(replayCache.recordIfAbsent("live-id", inAnHour)).isTrue();
+        assertThat(replayCache.recordIfAbsent("expired-id", DateTime.now().minusSeconds(1))).isTrue();
+
+        assertThat(replayCache.hasSeen("live-id")).isTrue();
+        assertThat(replayCache.hasSeen("expired-id")).isFalse();
+        assertThat(replayCache.hasSeen("unknown-id")).isFalse();
+    }
+
+    @Test
+    public void shouldNotRecordAnIdTwiceWhileItIsLive() {
+        MappedReplayCache replayCache = MappedReplayCache.inMemory(10);
+
+        assertThat(replayCache.recordIfAbsent("some-id", inAnHour)).isTrue();
+        assertThat(replayCache.recordIfAbsent("some-id", inAnHour)).isFalse();
+    }
+
+    @Test
+    public void shouldEvictTheEntryThatExpiresSoonestWhenFull() {
+        MappedReplayCache replayCache = MappedReplayCache.inMemory(2);
+
+        replayCache.recordIfAbsent("expires-soon", DateTime.now().plusMinutes(1));
+        replayCache.recordIfAbsent("expires-later", inAnHour);
+        replayCache.recordIfAbsent("newest", inAnHour);
+
+        assertThat(replayCache.hasSeen("expires-soon")).isFalse();
+        assertThat(replayCache.hasSeen("expires-later")).isTrue();
+        assertThat(replayCache.hasSeen("newest")).isTrue();
+    }
+
+    @Test
+    public void shouldKeepRecordedIdsAcrossRestarts() throws Exception {
+        Path file = temporaryFolder.getRoot().toPath().resolve("replay-cache");
+
+        MappedReplayCache replayCache = MappedReplayCache.mappedTo(file, 10);
+        replayCache.recordIfAbsent("some-id", inAnHour);
+        replayCache.stop();
+
+        MappedReplayCache restartedReplayCache = MappedReplayCache.mappedTo(file, 10);
+        assertThat(restartedReplayCache.hasSeen("some-id")).isTrue();
+        restartedReplayCache.stop();
+    }
+
+    @Test
+    public void shouldStartEmptyIfTheFileWasWrittenWithADifferentCapacity() throws Exception {
+        Path file = temporaryFolder.getRoot().toPath().resolve("replay-cache");
+
+        MappedReplayCache replayCache = MappedReplayCache.mappedTo(file, 10);
+        replayCache.recordIfAbsent("some-id", inAnHour);
+        replayCache.stop();
+
+        MappedReplayCache resizedReplayCache = MappedReplayCache.mappedTo(file, 20);
+        assertThat(resizedReplayCache.hasSeen("some-id")).isFalse();
+        resizedReplayCache.stop();
+    }
+}
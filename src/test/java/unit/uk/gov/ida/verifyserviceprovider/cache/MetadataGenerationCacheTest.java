@@ -0,0 +1,63 @@
+package unit.uk.gov.ida.verifyserviceprovider.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import uk.gov.ida.verifyserviceprovider.cache.MetadataGenerationCache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataGenerationCacheTest {
+
+    private final AtomicReference<DateTime> lastRefresh = new AtomicReference<>(DateTime.now());
+    private final AtomicInteger loads = new AtomicInteger();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final MetadataGenerationCache<String, String> cache = new MetadataGenerationCache<>(lastRefresh::get, metricRegistry, "cache");
+
+    @Test
+    public void shouldLoadEachKeyOnceBetweenRefreshes() {
+        assertThat(cache.get("key", this::load)).isEqualTo("value-1");
+        assertThat(cache.get("key", this::load)).isEqualTo("value-1");
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(metricRegistry.counter("cache.hits").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("cache.misses").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldLoadAgainOnceTheMetadataHasBeenRefreshed() {
+        cache.get("key", this::load);
+        lastRefresh.set(lastRefresh.get().plusMinutes(1));
+
+        assertThat(cache.get("key", this::load)).isEqualTo("value-2");
+        assertThat(metricRegistry.counter("cache.invalidations").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotRememberAnythingWhileTheMetadataHasNoLastRefresh() {
+        lastRefresh.set(null);
+
+        cache.get("key", this::load);
+        cache.get("key", this::load);
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(metricRegistry.counter("cache.hits").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotRememberNullValues() {
+        cache.get("key", key -> {
+            loads.incrementAndGet();
+            return null;
+        });
+
+        assertThat(cache.get("key", this::load)).isEqualTo("value-2");
+    }
+
+    private String load(String key) {
+        return "value-" + loads.incrementAndGet();
+    }
+}
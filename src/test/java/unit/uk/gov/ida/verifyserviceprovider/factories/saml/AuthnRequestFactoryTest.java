@@ -130,6 +130,26 @@ public class AuthnRequestFactoryTest {
         verify(manifestReader, times(1)).getAttributeValueFor(VerifyServiceProviderApplication.class, "Version");
     }
 
+    @Test
+    public void shouldOnlyReadTheVersionNumberFromTheManifestOnce() throws IOException {
+        when(manifestReader.getAttributeValueFor(VerifyServiceProviderApplication.class, "Version")).thenReturn("some-version");
+
+        factory.build(LevelOfAssurance.LEVEL_2, SERVICE_ENTITY_ID);
+        factory.build(LevelOfAssurance.LEVEL_1, SERVICE_ENTITY_ID);
+
+        verify(manifestReader, times(1)).getAttributeValueFor(VerifyServiceProviderApplication.class, "Version");
+    }
+
+    @Test
+    public void shouldGiveEachRequestItsOwnIdAndSignature() {
+        AuthnRequest first = factory.build(LevelOfAssurance.LEVEL_2, SERVICE_ENTITY_ID);
+        AuthnRequest second = factory.build(LevelOfAssurance.LEVEL_2, SERVICE_ENTITY_ID);
+
+        assertThat(second.getID()).isNotEqualTo(first.getID());
+        assertThat(second.getSignature()).isNotSameAs(first.getSignature());
+        assertThat(second.getSignatureReferenceID()).isEqualTo(second.getID());
+    }
+
     private BasicCredential createBasicCredential() {
         final PublicKey publicKey = new PublicKeyFactory(new X509CertificateFactory()).createPublicKey(HUB_TEST_PUBLIC_ENCRYPTION_CERT);
         PrivateKey privateKey = new PrivateKeyFactory().createPrivateKey(Base64.decodeBase64(HUB_TEST_PRIVATE_ENCRYPTION_KEY));
@@ -0,0 +1,66 @@
+package unit.uk.gov.ida.verifyserviceprovider.factories.saml;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
+import uk.gov.ida.saml.metadata.MetadataResolverRepository;
+import uk.gov.ida.saml.security.SamlAssertionsSignatureValidator;
+import uk.gov.ida.verifyserviceprovider.factories.saml.CountrySignatureValidatorCache;
+import uk.gov.ida.verifyserviceprovider.factories.saml.SignatureValidatorFactory;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.ida.saml.core.test.TestEntityIds.STUB_COUNTRY_ONE;
+
+public class CountrySignatureValidatorCacheTest {
+
+    private final MetadataResolverRepository metadataResolverRepository = mock(MetadataResolverRepository.class);
+    private final SignatureValidatorFactory signatureValidatorFactory = mock(SignatureValidatorFactory.class);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private CountrySignatureValidatorCache cache;
+
+    @Before
+    public void setUp() {
+        when(metadataResolverRepository.getSignatureTrustEngine(STUB_COUNTRY_ONE)).thenReturn(Optional.of(mock(ExplicitKeySignatureTrustEngine.class)));
+        when(signatureValidatorFactory.getSignatureValidator(any())).thenAnswer(invocation -> Optional.of(mock(SamlAssertionsSignatureValidator.class)));
+        cache = new CountrySignatureValidatorCache(metadataResolverRepository, signatureValidatorFactory, metricRegistry, "signature-validator-cache");
+    }
+
+    @Test
+    public void shouldBuildTheValidatorForACountryOnce() {
+        Optional<SamlAssertionsSignatureValidator> first = cache.getSignatureValidator(STUB_COUNTRY_ONE);
+        Optional<SamlAssertionsSignatureValidator> second = cache.getSignatureValidator(STUB_COUNTRY_ONE);
+
+        assertThat(second.get()).isSameAs(first.get());
+        verify(signatureValidatorFactory, times(1)).getSignatureValidator(any());
+        assertThat(metricRegistry.counter("signature-validator-cache.hits").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("signature-validator-cache.rebuilds").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRebuildTheValidatorWhenTheCountryHasBeenRefreshed() {
+        Optional<SamlAssertionsSignatureValidator> first = cache.getSignatureValidator(STUB_COUNTRY_ONE);
+        when(metadataResolverRepository.getSignatureTrustEngine(STUB_COUNTRY_ONE)).thenReturn(Optional.of(mock(ExplicitKeySignatureTrustEngine.class)));
+
+        Optional<SamlAssertionsSignatureValidator> second = cache.getSignatureValidator(STUB_COUNTRY_ONE);
+
+        assertThat(second.get()).isNotSameAs(first.get());
+        assertThat(metricRegistry.counter("signature-validator-cache.rebuilds").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReturnEmptyForACountryThatIsNoLongerTrusted() {
+        cache.getSignatureValidator(STUB_COUNTRY_ONE);
+        when(metadataResolverRepository.getSignatureTrustEngine(STUB_COUNTRY_ONE)).thenReturn(Optional.empty());
+
+        assertThat(cache.getSignatureValidator(STUB_COUNTRY_ONE)).isEmpty();
+    }
+}
@@ -0,0 +1,116 @@
+package unit.uk.gov.ida.verifyserviceprovider.factories.saml;
+
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.impl.AuthnRequestBuilder;
+import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.PreSignedAuthnRequestPool;
+
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PreSignedAuthnRequestPoolTest {
+
+    private static final String SERVICE_ENTITY_ID = "http://service-entity-id";
+
+    private final AuthnRequestFactory authnRequestFactory = mock(AuthnRequestFactory.class);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private PreSignedAuthnRequestPool pool;
+
+    @Before
+    public void setUp() {
+        IdaSamlBootstrap.bootstrap();
+        when(authnRequestFactory.build(anyString())).thenAnswer(invocation -> anAuthnRequestIssuedAt(DateTime.now()));
+        pool = new PreSignedAuthnRequestPool(
+            authnRequestFactory,
+            singletonList(SERVICE_ENTITY_ID),
+            2,
+            Duration.standardSeconds(60),
+            metricRegistry,
+            "authn-request-pool"
+        );
+    }
+
+    @Test
+    public void shouldFillOneQueueForEachServiceEntityId() {
+        pool.refill();
+
+        verify(authnRequestFactory, times(2)).build(SERVICE_ENTITY_ID);
+    }
+
+    @Test
+    public void shouldHandOutEachPreSignedRequestOnce() {
+        pool.refill();
+
+        AuthnRequest first = pool.take(SERVICE_ENTITY_ID);
+        AuthnRequest second = pool.take(SERVICE_ENTITY_ID);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(metricRegistry.counter("authn-request-pool.hits").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.counter("authn-request-pool.misses").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldBuildARequestWhenTheQueueIsEmpty() {
+        pool.refill();
+        pool.take(SERVICE_ENTITY_ID);
+        pool.take(SERVICE_ENTITY_ID);
+
+        assertThat(pool.take(SERVICE_ENTITY_ID)).isNotNull();
+
+        verify(authnRequestFactory, times(3)).build(SERVICE_ENTITY_ID);
+        assertThat(metricRegistry.counter("authn-request-pool.misses").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldBuildARequestForAnEntityWithoutAQueue() {
+        pool.take("http://another-service-entity-id");
+
+        verify(authnRequestFactory).build("http://another-service-entity-id");
+        assertThat(metricRegistry.counter("authn-request-pool.misses").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotHandOutRequestsOlderThanTheMaximumAge() {
+        when(authnRequestFactory.build(anyString())).thenAnswer(invocation -> anAuthnRequestIssuedAt(DateTime.now().minusMinutes(2)));
+        pool.refill();
+        when(authnRequestFactory.build(anyString())).thenAnswer(invocation -> anAuthnRequestIssuedAt(DateTime.now()));
+
+        AuthnRequest authnRequest = pool.take(SERVICE_ENTITY_ID);
+
+        assertThat(authnRequest.getIssueInstant()).isGreaterThan(DateTime.now().minusMinutes(1));
+        assertThat(metricRegistry.counter("authn-request-pool.expired").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.counter("authn-request-pool.misses").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReplaceExpiredRequestsWhenRefilling() {
+        when(authnRequestFactory.build(anyString())).thenAnswer(invocation -> anAuthnRequestIssuedAt(DateTime.now().minusMinutes(2)));
+        pool.refill();
+        when(authnRequestFactory.build(anyString())).thenAnswer(invocation -> anAuthnRequestIssuedAt(DateTime.now()));
+
+        pool.refill();
+        pool.take(SERVICE_ENTITY_ID);
+
+        assertThat(metricRegistry.counter("authn-request-pool.expired").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.counter("authn-request-pool.hits").getCount()).isEqualTo(1);
+    }
+
+    private static AuthnRequest anAuthnRequestIssuedAt(DateTime issueInstant) {
+        AuthnRequest authnRequest = new AuthnRequestBuilder().buildObject();
+        authnRequest.setIssueInstant(issueInstant);
+        return authnRequest;
+    }
+}
@@ -0,0 +1,83 @@
+package unit.uk.gov.ida.verifyserviceprovider.filters;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.ida.verifyserviceprovider.dto.TranslateSamlResponseBody;
+import uk.gov.ida.verifyserviceprovider.filters.RequestEntitySizeLimiter;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RequestEntitySizeLimiterTest {
+
+    private final RequestEntitySizeLimiter sizeLimiter = new RequestEntitySizeLimiter(10, 20);
+    private final ReaderInterceptorContext context = mock(ReaderInterceptorContext.class);
+    private final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+
+    private InputStream limitedStream;
+
+    @Before
+    public void setUp() throws Exception {
+        when(context.getHeaders()).thenReturn(headers);
+        doReturn(TranslateSamlResponseBody.class).when(context).getType();
+        doAnswer(invocation -> limitedStream = invocation.getArgument(0)).when(context).setInputStream(any());
+    }
+
+    @Test
+    public void shouldAllowBodiesWithinTheLimit() throws Exception {
+        when(context.getInputStream()).thenReturn(new ByteArrayInputStream("0123456789".getBytes()));
+
+        sizeLimiter.aroundReadFrom(context);
+
+        verify(context).proceed();
+        assertThat(limitedStream.read(new byte[20], 0, 20)).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldRejectBodiesThatDeclareALengthOverTheLimit() {
+        headers.putSingle(HttpHeaders.CONTENT_LENGTH, "11");
+
+        Throwable thrown = catchThrowable(() -> sizeLimiter.aroundReadFrom(context));
+
+        assertThat(thrown).isInstanceOf(WebApplicationException.class);
+        assertThat(((WebApplicationException) thrown).getResponse().getStatus()).isEqualTo(413);
+    }
+
+    @Test
+    public void shouldRejectBodiesOverTheLimitWhileTheyAreRead() throws Exception {
+        when(context.getInputStream()).thenReturn(new ByteArrayInputStream("0123456789A".getBytes()));
+        sizeLimiter.aroundReadFrom(context);
+
+        Throwable thrown = catchThrowable(() -> limitedStream.read(new byte[20], 0, 20));
+
+        assertThat(thrown).isInstanceOf(WebApplicationException.class);
+        assertThat(((WebApplicationException) thrown).getResponse().getStatus()).isEqualTo(413);
+    }
+
+    @Test
+    public void shouldAllowLargerBodiesForBatches() throws Exception {
+        doReturn(List.class).when(context).getType();
+        headers.putSingle(HttpHeaders.CONTENT_LENGTH, "20");
+        when(context.getInputStream()).thenReturn(new ByteArrayInputStream("0123456789ABCDEFGHIJ".getBytes()));
+
+        sizeLimiter.aroundReadFrom(context);
+
+        verify(context).proceed();
+        assertThat(limitedStream.read(new byte[30], 0, 30)).isEqualTo(20);
+    }
+}
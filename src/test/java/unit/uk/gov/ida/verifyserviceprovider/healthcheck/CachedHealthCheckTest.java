@@ -0,0 +1,40 @@
+package unit.uk.gov.ida.verifyserviceprovider.healthcheck;
+
+import com.codahale.metrics.health.HealthCheck;
+import com.codahale.metrics.health.HealthCheck.Result;
+import org.junit.Test;
+import uk.gov.ida.verifyserviceprovider.healthcheck.CachedHealthCheck;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachedHealthCheckTest {
+
+    private final HealthCheck delegate = mock(HealthCheck.class);
+    private final CachedHealthCheck healthCheck = new CachedHealthCheck(delegate);
+
+    @Test
+    public void shouldRunTheDelegateWhenItHasNeverBeenRun() {
+        when(delegate.execute()).thenReturn(Result.healthy());
+
+        assertThat(healthCheck.execute().isHealthy()).isTrue();
+        verify(delegate, times(1)).execute();
+    }
+
+    @Test
+    public void shouldAnswerWithTheLastResultUntilRefreshed() {
+        when(delegate.execute()).thenReturn(Result.healthy(), Result.unhealthy("Metadata unavailable"));
+        healthCheck.refresh();
+
+        assertThat(healthCheck.execute().isHealthy()).isTrue();
+        assertThat(healthCheck.execute().isHealthy()).isTrue();
+
+        healthCheck.refresh();
+
+        assertThat(healthCheck.execute().getMessage()).isEqualTo("Metadata unavailable");
+        verify(delegate, times(2)).execute();
+    }
+}
@@ -0,0 +1,52 @@
+package unit.uk.gov.ida.verifyserviceprovider.healthcheck;
+
+import com.codahale.metrics.health.HealthCheck.Result;
+import org.junit.Test;
+import uk.gov.ida.verifyserviceprovider.healthcheck.WarmUpHealthCheck;
+import uk.gov.ida.verifyserviceprovider.services.WarmUpService;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WarmUpHealthCheckTest {
+
+    private final WarmUpService warmUpService = mock(WarmUpService.class);
+    private final WarmUpHealthCheck healthCheck = new WarmUpHealthCheck(warmUpService);
+
+    @Test
+    public void shouldBeUnhealthyWhileWarmingUp() {
+        when(warmUpService.isFinished()).thenReturn(false);
+        when(warmUpService.getCompletedIterations()).thenReturn(3);
+        when(warmUpService.getIterations()).thenReturn(50);
+
+        Result result = healthCheck.execute();
+
+        assertThat(result.isHealthy()).isFalse();
+        assertThat(result.getMessage()).isEqualTo("Warming up. 3 of 50 iterations complete.");
+    }
+
+    @Test
+    public void shouldBeHealthyOnceWarmedUp() {
+        when(warmUpService.isFinished()).thenReturn(true);
+        when(warmUpService.getFailure()).thenReturn(Optional.empty());
+
+        Result result = healthCheck.execute();
+
+        assertThat(result.isHealthy()).isTrue();
+        assertThat(result.getMessage()).isEqualTo("Warm-up complete.");
+    }
+
+    @Test
+    public void shouldBeHealthyWhenTheWarmUpFailed() {
+        when(warmUpService.isFinished()).thenReturn(true);
+        when(warmUpService.getFailure()).thenReturn(Optional.of("something went wrong"));
+
+        Result result = healthCheck.execute();
+
+        assertThat(result.isHealthy()).isTrue();
+        assertThat(result.getMessage()).isEqualTo("Warm-up stopped early: something went wrong");
+    }
+}
@@ -0,0 +1,56 @@
+package unit.uk.gov.ida.verifyserviceprovider.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.ida.verifyserviceprovider.dto.Scenario;
+import uk.gov.ida.verifyserviceprovider.dto.TranslatedResponseBody;
+import uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics.Stage.DECRYPTION;
+import static uk.gov.ida.verifyserviceprovider.metrics.ResponseMetrics.Stage.PARSE;
+
+public class ResponseMetricsTest {
+
+    private static final String ENTITY_ID = "http://some-entity-id";
+
+    private MetricRegistry metricRegistry;
+    private ResponseMetrics<TranslatedResponseBody> responseMetrics;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        responseMetrics = new ResponseMetrics<>(metricRegistry, "translate-response", TranslatedResponseBody::getScenario);
+    }
+
+    @Test
+    public void shouldTimeStagesPerEndpointAndEntityId() {
+        String result = responseMetrics.time(PARSE, ENTITY_ID, () -> "parsed");
+
+        assertThat(result).isEqualTo("parsed");
+        assertThat(metricRegistry.getTimers()).containsKey("translate-response.stage.parse.entityId." + ENTITY_ID);
+        assertThat(metricRegistry.timer("translate-response.stage.parse.entityId." + ENTITY_ID).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldTimeStagesThatThrow() {
+        assertThatThrownBy(() -> responseMetrics.run(DECRYPTION, ENTITY_ID, () -> {
+            throw new RuntimeException("boom");
+        })).hasMessage("boom");
+
+        assertThat(responseMetrics.stageTimer(DECRYPTION, ENTITY_ID).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRecordTranslationsByScenario() {
+        TranslatedResponseBody translatedResponse = new TranslatedResponseBody(Scenario.NO_MATCH, null, null, null);
+
+        responseMetrics.recordTranslation(ENTITY_ID, translatedResponse, System.nanoTime());
+        responseMetrics.recordFailure(ENTITY_ID, System.nanoTime());
+
+        assertThat(metricRegistry.timer("translate-response.total.entityId." + ENTITY_ID + ".scenario.NO_MATCH").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.timer("translate-response.total.entityId." + ENTITY_ID + ".scenario.ERROR").getCount()).isEqualTo(1);
+    }
+}
@@ -18,8 +18,10 @@ import uk.gov.ida.verifyserviceprovider.exceptions.InvalidEntityIdExceptionMappe
 import uk.gov.ida.verifyserviceprovider.exceptions.JerseyViolationExceptionMapper;
 import uk.gov.ida.verifyserviceprovider.exceptions.JsonProcessingExceptionMapper;
 import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestFactory;
+import uk.gov.ida.verifyserviceprovider.factories.saml.AuthnRequestPool;
 import uk.gov.ida.verifyserviceprovider.resources.GenerateAuthnRequestResource;
 import uk.gov.ida.verifyserviceprovider.services.EntityIdService;
+import uk.gov.ida.verifyserviceprovider.services.RequestTokenService;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.MediaType;
@@ -30,6 +32,7 @@ import java.util.Base64;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
@@ -51,7 +54,7 @@ public class GenerateAuthnRequestResourceTest {
         .addProvider(JerseyViolationExceptionMapper.class)
         .addProvider(JsonProcessingExceptionMapper.class)
         .addProvider(InvalidEntityIdExceptionMapper.class)
-        .addResource(new GenerateAuthnRequestResource(authnRequestFactory, HUB_SSO_LOCATION, entityIdService))
+        .addResource(new GenerateAuthnRequestResource(AuthnRequestPool.disabled(authnRequestFactory), HUB_SSO_LOCATION, entityIdService, RequestTokenService.disabled()))
         .build();
 
     @Before
@@ -73,7 +76,7 @@ public class GenerateAuthnRequestResourceTest {
 
     @Test
     public void returnsAnOKResponse() {
-        when(authnRequestFactory.build(any(), any())).thenReturn(authnRequest);
+        when(authnRequestFactory.build(anyString())).thenReturn(authnRequest);
         RequestGenerationBody requestGenerationBody = new RequestGenerationBody(LevelOfAssurance.LEVEL_2, null);
 
         Response response = resources.target("/generate-request").request().post(Entity.entity(requestGenerationBody, MediaType.APPLICATION_JSON_TYPE));
@@ -82,7 +85,7 @@ public class GenerateAuthnRequestResourceTest {
 
     @Test
     public void responseContainsExpectedFields() {
-        when(authnRequestFactory.build(any(), eq(defaultEntityId))).thenReturn(authnRequest);
+        when(authnRequestFactory.build(eq(defaultEntityId))).thenReturn(authnRequest);
         RequestResponseBody requestResponseBody = generateRequest();
         assertThat(requestResponseBody.getSamlRequest()).isNotEmpty();
         assertThat(requestResponseBody.getRequestId()).isNotEmpty();
@@ -91,14 +94,14 @@ public class GenerateAuthnRequestResourceTest {
 
     @Test
     public void ssoLocationIsSameAsConfiguration() {
-        when(authnRequestFactory.build(any(), eq(defaultEntityId))).thenReturn(authnRequest);
+        when(authnRequestFactory.build(eq(defaultEntityId))).thenReturn(authnRequest);
         RequestResponseBody requestResponseBody = generateRequest();
         assertThat(requestResponseBody.getSsoLocation()).isEqualTo(HUB_SSO_LOCATION);
     }
 
     @Test
     public void samlRequestIsBase64EncodedAuthnRequest() {
-        when(authnRequestFactory.build(any(), eq(defaultEntityId))).thenReturn(authnRequest);
+        when(authnRequestFactory.build(eq(defaultEntityId))).thenReturn(authnRequest);
         RequestResponseBody requestResponseBody = generateRequest();
         try {
             Base64.getDecoder().decode(requestResponseBody.getSamlRequest());
@@ -133,7 +136,7 @@ public class GenerateAuthnRequestResourceTest {
 
     @Test
     public void returns500IfARuntimeExceptionIsThrown() {
-        when(authnRequestFactory.build(any(), any())).thenThrow(RuntimeException.class);
+        when(authnRequestFactory.build(anyString())).thenThrow(RuntimeException.class);
 
         RequestGenerationBody requestGenerationBody = new RequestGenerationBody(LevelOfAssurance.LEVEL_2, null);
         Response response = resources.target("/generate-request").request().post(Entity.entity(requestGenerationBody, MediaType.APPLICATION_JSON_TYPE));
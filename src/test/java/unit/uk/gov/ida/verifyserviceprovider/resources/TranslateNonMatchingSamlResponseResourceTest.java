@@ -14,6 +14,7 @@ import uk.gov.ida.verifyserviceprovider.dto.TranslatedNonMatchingResponseBody;
 import uk.gov.ida.verifyserviceprovider.exceptions.InvalidEntityIdExceptionMapper;
 import uk.gov.ida.verifyserviceprovider.exceptions.JerseyViolationExceptionMapper;
 import uk.gov.ida.verifyserviceprovider.exceptions.JsonProcessingExceptionMapper;
+import uk.gov.ida.verifyserviceprovider.resources.AsyncResponseExecutor;
 import uk.gov.ida.verifyserviceprovider.resources.TranslateNonMatchingSamlResponseResource;
 import uk.gov.ida.verifyserviceprovider.services.EntityIdService;
 import uk.gov.ida.verifyserviceprovider.services.ResponseService;
@@ -44,7 +45,7 @@ public class TranslateNonMatchingSamlResponseResourceTest {
             .addProvider(JerseyViolationExceptionMapper.class)
             .addProvider(JsonProcessingExceptionMapper.class)
             .addProvider(InvalidEntityIdExceptionMapper.class)
-            .addResource(new TranslateNonMatchingSamlResponseResource(responseService, entityIdService))
+            .addResource(new TranslateNonMatchingSamlResponseResource(responseService, entityIdService, new AsyncResponseExecutor(Runnable::run, 1)))
             .build();
 
     @Before
@@ -17,24 +17,31 @@ import uk.gov.ida.verifyserviceprovider.dto.Scenario;
 import uk.gov.ida.verifyserviceprovider.dto.TranslateSamlResponseBody;
 import uk.gov.ida.verifyserviceprovider.dto.TranslatedResponseBody;
 import uk.gov.ida.verifyserviceprovider.exceptions.InvalidEntityIdExceptionMapper;
+import uk.gov.ida.verifyserviceprovider.exceptions.InvalidRequestTokenExceptionMapper;
 import uk.gov.ida.verifyserviceprovider.exceptions.JerseyViolationExceptionMapper;
 import uk.gov.ida.verifyserviceprovider.exceptions.JsonProcessingExceptionMapper;
 import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
+import uk.gov.ida.verifyserviceprovider.resources.AsyncResponseExecutor;
 import uk.gov.ida.verifyserviceprovider.resources.TranslateSamlResponseResource;
 import uk.gov.ida.verifyserviceprovider.services.EntityIdService;
+import uk.gov.ida.verifyserviceprovider.services.RequestTokenService;
 import uk.gov.ida.verifyserviceprovider.services.ResponseService;
 
 import javax.ws.rs.core.Response;
 import java.util.Arrays;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 import static javax.ws.rs.client.Entity.json;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -47,13 +54,32 @@ public class TranslateSamlResponseResourceTest {
     private static ResponseService responseService = mock(ResponseService.class);
     private static EntityIdService entityIdService = mock(EntityIdService.class);
     private static final String defaultEntityId = "http://default-entity-id";
+    private static final String REQUEST_TOKEN_SECRET = "c2VjcmV0LXVzZWQtdG8tc2lnbi1yZXF1ZXN0LXRva2Vucy1pbi10ZXN0cw==";
 
     @ClassRule
     public static final ResourceTestRule resources = ResourceTestRule.builder()
         .addProvider(JerseyViolationExceptionMapper.class)
         .addProvider(JsonProcessingExceptionMapper.class)
         .addProvider(InvalidEntityIdExceptionMapper.class)
-        .addResource(new TranslateSamlResponseResource(responseService, entityIdService))
+        .addResource(new TranslateSamlResponseResource(responseService, entityIdService, new AsyncResponseExecutor(Runnable::run, 1)))
+        .build();
+
+    @ClassRule
+    public static final ResourceTestRule busyResources = ResourceTestRule.builder()
+        .addResource(new TranslateSamlResponseResource(responseService, entityIdService, new AsyncResponseExecutor(command -> {
+            throw new RejectedExecutionException();
+        }, 5)))
+        .build();
+
+    @ClassRule
+    public static final ResourceTestRule tokenResources = ResourceTestRule.builder()
+        .addProvider(InvalidRequestTokenExceptionMapper.class)
+        .addResource(new TranslateSamlResponseResource(
+            responseService,
+            entityIdService,
+            new AsyncResponseExecutor(Runnable::run, 1),
+            new RequestTokenService(REQUEST_TOKEN_SECRET)
+        ))
         .build();
 
     @Before
@@ -86,6 +112,40 @@ public class TranslateSamlResponseResourceTest {
         assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
     }
 
+    @Test
+    public void shouldRejectAForgedRequestTokenBeforeTranslatingTheResponse() throws Exception {
+        JSONObject translateResponseRequest = new JSONObject().put("samlResponse", "some-saml-response")
+            .put("requestId", "some-request-id")
+            .put("levelOfAssurance", LEVEL_2.name())
+            .put("requestToken", new RequestTokenService(REQUEST_TOKEN_SECRET).createToken("another-request-id", defaultEntityId));
+
+        Response response = tokenResources.client()
+            .target("/translate-response")
+            .request()
+            .post(json(translateResponseRequest.toString()));
+
+        assertThat(response.getStatus()).isEqualTo(BAD_REQUEST.getStatusCode());
+        verify(responseService, never()).convertTranslatedResponseBody(any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldTranslateTheResponseWhenTheRequestTokenMatches() throws Exception {
+        JSONObject translateResponseRequest = new JSONObject().put("samlResponse", "some-saml-response")
+            .put("requestId", "some-request-id")
+            .put("levelOfAssurance", LEVEL_2.name())
+            .put("requestToken", new RequestTokenService(REQUEST_TOKEN_SECRET).createToken("some-request-id", defaultEntityId));
+
+        when(responseService.convertTranslatedResponseBody(any(), eq("some-request-id"), eq(LEVEL_2), eq(defaultEntityId)))
+            .thenReturn(new TranslatedResponseBody(Scenario.SUCCESS_MATCH, "some-request-id", LEVEL_2, null));
+
+        Response response = tokenResources.client()
+            .target("/translate-response")
+            .request()
+            .post(json(translateResponseRequest.toString()));
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    }
+
     @Test
     public void shouldReturn400WhenSamlValidationExceptionThrown() throws Exception {
         JSONObject translateResponseRequest = new JSONObject().put("samlResponse", "some-saml-response")
@@ -145,4 +205,38 @@ public class TranslateSamlResponseResourceTest {
         assertThat(actualErrors).isEqualTo(expectedErrors);
     }
 
+    @Test
+    public void shouldReturn503WithRetryAfterWhenThereIsNoCapacityToTranslate() throws Exception {
+        JSONObject translateResponseRequest = new JSONObject().put("samlResponse", "some-saml-response")
+            .put("requestId", "some-request-id")
+            .put("levelOfAssurance", LEVEL_2.name());
+
+        Response response = busyResources.client()
+            .target("/translate-response")
+            .request()
+            .post(json(translateResponseRequest.toString()));
+
+        assertThat(response.getStatus()).isEqualTo(SERVICE_UNAVAILABLE.getStatusCode());
+        assertThat(response.getHeaderString("Retry-After")).isEqualTo("5");
+        assertThat(response.readEntity(ErrorMessage.class).getCode()).isEqualTo(SERVICE_UNAVAILABLE.getStatusCode());
+        verify(responseService, never()).convertTranslatedResponseBody(any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldReturn500WhenTranslationFailsWithAnError() throws Exception {
+        JSONObject translateResponseRequest = new JSONObject().put("samlResponse", "some-saml-response")
+            .put("requestId", "some-request-id")
+            .put("levelOfAssurance", LEVEL_2.name());
+
+        when(responseService.convertTranslatedResponseBody(any(), eq("some-request-id"), eq(LEVEL_2), eq(defaultEntityId)))
+            .thenThrow(new StackOverflowError());
+
+        Response response = resources.client()
+            .target("/translate-response")
+            .request()
+            .post(json(translateResponseRequest.toString()));
+
+        assertThat(response.getStatus()).isEqualTo(INTERNAL_SERVER_ERROR.getStatusCode());
+        assertThat(response.readEntity(ErrorMessage.class).getCode()).isEqualTo(INTERNAL_SERVER_ERROR.getStatusCode());
+    }
 }
@@ -0,0 +1,69 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensaml.security.credential.BasicCredential;
+import org.opensaml.security.credential.Credential;
+import uk.gov.ida.saml.security.EncryptionCredentialResolver;
+import uk.gov.ida.verifyserviceprovider.saml.CachingEncryptionCredentialResolver;
+
+import java.security.KeyPairGenerator;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingEncryptionCredentialResolverTest {
+
+    private static final String HUB_ENTITY_ID = "hub";
+
+    private final EncryptionCredentialResolver metadataEncryptionCredentialResolver = mock(EncryptionCredentialResolver.class);
+    private final AtomicReference<DateTime> lastRefresh = new AtomicReference<>(DateTime.now());
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private Credential credential;
+    private CachingEncryptionCredentialResolver resolver;
+
+    @Before
+    public void setUp() throws Exception {
+        credential = new BasicCredential(KeyPairGenerator.getInstance("RSA").generateKeyPair().getPublic());
+        when(metadataEncryptionCredentialResolver.getEncryptingCredential(HUB_ENTITY_ID)).thenReturn(credential);
+        resolver = new CachingEncryptionCredentialResolver(metadataEncryptionCredentialResolver, lastRefresh::get, metricRegistry, "encryption-credential-cache");
+    }
+
+    @Test
+    public void shouldResolveTheCredentialOnceBetweenRefreshes() {
+        assertThat(resolver.getEncryptingCredential(HUB_ENTITY_ID)).isEqualTo(credential);
+        assertThat(resolver.getEncryptingCredential(HUB_ENTITY_ID)).isEqualTo(credential);
+
+        verify(metadataEncryptionCredentialResolver, times(1)).getEncryptingCredential(HUB_ENTITY_ID);
+        assertThat(metricRegistry.counter("encryption-credential-cache.hits").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("encryption-credential-cache.misses").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldResolveAgainOnceTheMetadataHasBeenRefreshed() {
+        resolver.getEncryptingCredential(HUB_ENTITY_ID);
+        lastRefresh.set(lastRefresh.get().plusMinutes(1));
+        resolver.getEncryptingCredential(HUB_ENTITY_ID);
+
+        verify(metadataEncryptionCredentialResolver, times(2)).getEncryptingCredential(HUB_ENTITY_ID);
+        assertThat(metricRegistry.counter("encryption-credential-cache.invalidations").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldPublishTheFingerprintOfTheCredentialInUse() {
+        Gauge<?> fingerprint = metricRegistry.getGauges().get("encryption-credential-cache.certificate-fingerprint");
+        assertThat(fingerprint.getValue()).isNull();
+
+        resolver.getEncryptingCredential(HUB_ENTITY_ID);
+
+        assertThat((String) fingerprint.getValue()).hasSize(64);
+    }
+}
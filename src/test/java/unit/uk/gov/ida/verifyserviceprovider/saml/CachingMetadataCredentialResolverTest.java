@@ -0,0 +1,85 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.CredentialResolver;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.security.criteria.UsageCriterion;
+import uk.gov.ida.verifyserviceprovider.saml.CachingMetadataCredentialResolver;
+
+import javax.xml.namespace.QName;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingMetadataCredentialResolverTest {
+
+    private final CredentialResolver metadataCredentialResolver = mock(CredentialResolver.class);
+    private final Credential credential = mock(Credential.class);
+    private final AtomicReference<DateTime> lastRefresh = new AtomicReference<>(DateTime.now());
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private CachingMetadataCredentialResolver resolver;
+
+    @Before
+    public void setUp() throws Exception {
+        when(metadataCredentialResolver.resolve(any())).thenReturn(singletonList(credential));
+        resolver = new CachingMetadataCredentialResolver(metadataCredentialResolver, lastRefresh::get, metricRegistry, "credential-cache");
+    }
+
+    @Test
+    public void shouldResolveEachEntityAndRoleOnceBetweenRefreshes() throws Exception {
+        assertThat(resolver.resolve(criteriaFor("hub", SPSSODescriptor.DEFAULT_ELEMENT_NAME))).containsExactly(credential);
+        assertThat(resolver.resolve(criteriaFor("hub", SPSSODescriptor.DEFAULT_ELEMENT_NAME))).containsExactly(credential);
+        assertThat(resolver.resolveSingle(criteriaFor("hub", SPSSODescriptor.DEFAULT_ELEMENT_NAME))).isEqualTo(credential);
+        resolver.resolve(criteriaFor("hub", IDPSSODescriptor.DEFAULT_ELEMENT_NAME));
+        resolver.resolve(criteriaFor("msa", SPSSODescriptor.DEFAULT_ELEMENT_NAME));
+
+        verify(metadataCredentialResolver, times(3)).resolve(any());
+        assertThat(metricRegistry.counter("credential-cache.hits").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.counter("credential-cache.misses").getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldResolveAgainOnceTheMetadataHasBeenRefreshed() throws Exception {
+        resolver.resolve(criteriaFor("hub", SPSSODescriptor.DEFAULT_ELEMENT_NAME));
+        lastRefresh.set(lastRefresh.get().plusMinutes(1));
+        resolver.resolve(criteriaFor("hub", SPSSODescriptor.DEFAULT_ELEMENT_NAME));
+
+        verify(metadataCredentialResolver, times(2)).resolve(any());
+        assertThat(metricRegistry.counter("credential-cache.invalidations").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotRememberEntitiesWithNoCredentials() throws Exception {
+        when(metadataCredentialResolver.resolve(any())).thenReturn(emptyList());
+
+        assertThat(resolver.resolve(criteriaFor("unknown", SPSSODescriptor.DEFAULT_ELEMENT_NAME))).isEmpty();
+        assertThat(resolver.resolveSingle(criteriaFor("unknown", SPSSODescriptor.DEFAULT_ELEMENT_NAME))).isNull();
+
+        verify(metadataCredentialResolver, times(2)).resolve(any());
+    }
+
+    private static CriteriaSet criteriaFor(String entityId, QName role) {
+        return new CriteriaSet(
+            new EntityIdCriterion(entityId),
+            new EntityRoleCriterion(role),
+            new UsageCriterion(UsageType.SIGNING)
+        );
+    }
+}
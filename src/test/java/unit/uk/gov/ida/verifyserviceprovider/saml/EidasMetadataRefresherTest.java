@@ -0,0 +1,131 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.saml.metadata.resolver.RefreshableMetadataResolver;
+import uk.gov.ida.saml.metadata.MetadataResolverRepository;
+import uk.gov.ida.verifyserviceprovider.saml.EidasMetadataRefresher;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EidasMetadataRefresherTest {
+
+    private static final String COUNTRY = "http://country-entity-id";
+    private static final String ANOTHER_COUNTRY = "http://another-country-entity-id";
+
+    private final MetadataResolverRepository metadataResolverRepository = mock(MetadataResolverRepository.class);
+    private final RefreshableMetadataResolver countryMetadataResolver = mock(RefreshableMetadataResolver.class);
+    private final RefreshableMetadataResolver anotherCountryMetadataResolver = mock(RefreshableMetadataResolver.class);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService refreshExecutorService;
+    private EidasMetadataRefresher refresher;
+
+    @Before
+    public void setUp() {
+        when(metadataResolverRepository.getResolverEntityIds()).thenReturn(Arrays.asList(COUNTRY, ANOTHER_COUNTRY));
+        when(metadataResolverRepository.getMetadataResolver(COUNTRY)).thenReturn(Optional.<MetadataResolver>of(countryMetadataResolver));
+        when(metadataResolverRepository.getMetadataResolver(ANOTHER_COUNTRY)).thenReturn(Optional.<MetadataResolver>of(anotherCountryMetadataResolver));
+        scheduler = Executors.newScheduledThreadPool(1);
+        refreshExecutorService = Executors.newFixedThreadPool(2);
+        refresher = new EidasMetadataRefresher(
+            metadataResolverRepository,
+            scheduler,
+            refreshExecutorService,
+            10,
+            30_000,
+            metricRegistry,
+            "eidas-metadata"
+        );
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        refreshExecutorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldRefreshEveryCountry() throws Exception {
+        refresher.scheduleRefreshes();
+
+        verify(countryMetadataResolver, timeout(1000)).refresh();
+        verify(anotherCountryMetadataResolver, timeout(1000)).refresh();
+    }
+
+    @Test
+    public void shouldTimeEachCountrysRefresh() {
+        refresher.refresh(COUNTRY);
+
+        assertThat(metricRegistry.timer("eidas-metadata.refresh-duration." + COUNTRY).getCount()).isEqualTo(1);
+        assertThat(metricRegistry.timer("eidas-metadata.refresh-duration." + ANOTHER_COUNTRY).getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCountFailedRefreshesForEachCountry() throws Exception {
+        doThrow(new ResolverException("unavailable")).when(countryMetadataResolver).refresh();
+
+        refresher.refresh(COUNTRY);
+        refresher.refresh(ANOTHER_COUNTRY);
+
+        assertThat(metricRegistry.counter("eidas-metadata.refresh-failures." + COUNTRY).getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("eidas-metadata.refresh-failures." + ANOTHER_COUNTRY).getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldInterruptARefreshThatTakesLongerThanTheTimeoutAndRefreshItAgainNextRound() throws Exception {
+        when(metadataResolverRepository.getResolverEntityIds()).thenReturn(Arrays.asList(COUNTRY));
+        doAnswer(invocation -> {
+            try {
+                TimeUnit.SECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                throw new ResolverException("interrupted");
+            }
+            return null;
+        }).when(countryMetadataResolver).refresh();
+        EidasMetadataRefresher impatientRefresher = new EidasMetadataRefresher(
+            metadataResolverRepository,
+            scheduler,
+            refreshExecutorService,
+            0,
+            100,
+            metricRegistry,
+            "eidas-metadata"
+        );
+
+        impatientRefresher.scheduleRefreshes();
+        verify(countryMetadataResolver, timeout(5000)).refresh();
+        waitForFailures(COUNTRY, 1);
+        // Give the interrupted refresh time to reach its finally block
+        Thread.sleep(100);
+        impatientRefresher.scheduleRefreshes();
+
+        verify(countryMetadataResolver, timeout(5000).times(2)).refresh();
+        assertThat(metricRegistry.counter("eidas-metadata.refresh-timeouts." + COUNTRY).getCount()).isGreaterThanOrEqualTo(1);
+    }
+
+    private void waitForFailures(String entityId, long failures) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (metricRegistry.counter("eidas-metadata.refresh-failures." + entityId).getCount() < failures && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
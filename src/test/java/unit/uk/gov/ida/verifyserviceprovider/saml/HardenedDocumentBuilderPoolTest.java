@@ -0,0 +1,103 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.xml.XMLParserException;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import uk.gov.ida.verifyserviceprovider.saml.HardenedDocumentBuilderPool;
+
+import javax.xml.parsers.DocumentBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HardenedDocumentBuilderPoolTest {
+
+    private final HardenedDocumentBuilderPool pool = new HardenedDocumentBuilderPool(1);
+
+    @Test
+    public void shouldReuseReturnedBuilders() throws Exception {
+        DocumentBuilder builder = pool.getBuilder();
+        pool.returnBuilder(builder);
+
+        assertThat(pool.getBuilder()).isSameAs(builder);
+        assertThat(pool.getMisses()).isEqualTo(1);
+        assertThat(pool.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDiscardBuildersWhenPoolIsFull() throws Exception {
+        DocumentBuilder first = pool.getBuilder();
+        DocumentBuilder second = pool.getBuilder();
+        pool.returnBuilder(first);
+        pool.returnBuilder(second);
+
+        assertThat(pool.getIdleBuilders()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldParseNamespaceAwareDocuments() throws Exception {
+        Document document = pool.parse(new StringReader("<saml2p:Response xmlns:saml2p=\"urn:oasis:names:tc:SAML:2.0:protocol\"/>"));
+
+        assertThat(document.getDocumentElement().getLocalName()).isEqualTo("Response");
+        assertThat(document.getDocumentElement().getNamespaceURI()).isEqualTo("urn:oasis:names:tc:SAML:2.0:protocol");
+    }
+
+    @Test
+    public void shouldDropCommentsAndJoinTextLikeOpenSamlsParserPool() throws Exception {
+        Document document = pool.parse(new StringReader("<foo>one<!-- comment -->two<![CDATA[three]]></foo>"));
+
+        assertThat(document.getDocumentElement().getChildNodes().getLength()).isEqualTo(1);
+        assertThat(document.getDocumentElement().getTextContent()).isEqualTo("onetwothree");
+    }
+
+    @Test
+    public void shouldNotPrintParseErrorsToStandardError() throws Exception {
+        pool.returnBuilder(pool.getBuilder());
+        ByteArrayOutputStream standardError = new ByteArrayOutputStream();
+        PrintStream originalStandardError = System.err;
+        System.setErr(new PrintStream(standardError));
+        try {
+            for (int i = 0; i < 2; i++) {
+                assertThatThrownBy(() -> pool.parse(new StringReader("<foo>"))).isInstanceOf(XMLParserException.class);
+            }
+        } finally {
+            System.setErr(originalStandardError);
+        }
+
+        assertThat(standardError.size()).isZero();
+    }
+
+    @Test
+    public void shouldRejectDocumentsWithADoctype() {
+        String xxe = "<?xml version=\"1.0\"?><!DOCTYPE foo [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]><foo>&xxe;</foo>";
+
+        assertThatThrownBy(() -> pool.parse(new StringReader(xxe))).isInstanceOf(XMLParserException.class);
+    }
+
+    @Test
+    public void shouldPublishPoolMetrics() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        pool.registerMetrics(metricRegistry, "saml-parser-pool");
+
+        pool.returnBuilder(pool.getBuilder());
+
+        assertThat(metricRegistry.getGauges().get("saml-parser-pool.misses").getValue()).isEqualTo(1L);
+        assertThat(metricRegistry.getGauges().get("saml-parser-pool.idle").getValue()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldPublishTheMetricsOfTheMostRecentlyRegisteredPool() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        pool.registerMetrics(metricRegistry, "saml-parser-pool");
+        HardenedDocumentBuilderPool replacement = new HardenedDocumentBuilderPool(1);
+        replacement.registerMetrics(metricRegistry, "saml-parser-pool");
+
+        replacement.returnBuilder(replacement.getBuilder());
+
+        assertThat(metricRegistry.getGauges().get("saml-parser-pool.misses").getValue()).isEqualTo(1L);
+    }
+}
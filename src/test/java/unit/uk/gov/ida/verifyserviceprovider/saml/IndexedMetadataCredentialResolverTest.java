@@ -0,0 +1,112 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import org.opensaml.security.credential.CredentialResolver;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.security.criteria.UsageCriterion;
+import org.opensaml.xmlsec.config.DefaultSecurityConfigurationBootstrap;
+import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.saml.metadata.test.factories.metadata.MetadataFactory;
+import uk.gov.ida.verifyserviceprovider.saml.IndexedMetadataCredentialResolver;
+import uk.gov.ida.verifyserviceprovider.saml.MetadataSnapshotStore;
+import uk.gov.ida.verifyserviceprovider.saml.SnapshotBackedMetadataResolver;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import java.net.URI;
+import java.util.Timer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.ida.saml.core.test.TestEntityIds.HUB_ENTITY_ID;
+
+public class IndexedMetadataCredentialResolverTest {
+
+    private static final URI METADATA_URI = URI.create("http://hub-metadata");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final CredentialResolver fallback = mock(CredentialResolver.class);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private IndexedMetadataCredentialResolver credentialResolver;
+
+    @Before
+    public void setUp() throws Exception {
+        IdaSamlBootstrap.bootstrap();
+        when(fallback.resolve(any())).thenReturn(emptyList());
+
+        MetadataSnapshotStore snapshotStore = new MetadataSnapshotStore(temporaryFolder.getRoot().toPath());
+        snapshotStore.write("hub-metadata", new MetadataFactory().defaultMetadata().getBytes(UTF_8));
+        Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+        when(client.target(METADATA_URI).request().get()).thenThrow(new ProcessingException("unavailable"));
+        SnapshotBackedMetadataResolver metadataResolver = new SnapshotBackedMetadataResolver(
+            mock(Timer.class), client, METADATA_URI, snapshotStore, "hub-metadata", new MetricRegistry()
+        );
+        metadataResolver.setId("hub-metadata");
+        metadataResolver.setParserPool(XMLObjectProviderRegistrySupport.getParserPool());
+        metadataResolver.initialize();
+
+        credentialResolver = new IndexedMetadataCredentialResolver(
+            fallback,
+            () -> metadataResolver,
+            metadataResolver::getLastRefresh,
+            DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver(),
+            Runnable::run,
+            metricRegistry,
+            "metadata-index"
+        );
+    }
+
+    @Test
+    public void shouldResolveFromTheFallbackUntilTheIndexIsPublished() throws Exception {
+        credentialResolver.resolve(hubSigningCredentials());
+
+        verify(fallback).resolve(any());
+        assertThat(metricRegistry.counter("metadata-index.misses").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("metadata-index.compilations").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldResolveCredentialsFromThePublishedIndex() throws Exception {
+        credentialResolver.resolve(hubSigningCredentials());
+
+        assertThat(credentialResolver.resolve(hubSigningCredentials())).isNotEmpty();
+        verify(fallback, times(1)).resolve(any());
+        assertThat(metricRegistry.counter("metadata-index.hits").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldResolveEntitiesMissingFromTheIndexFromTheFallback() throws Exception {
+        credentialResolver.resolve(hubSigningCredentials());
+
+        credentialResolver.resolve(new CriteriaSet(new EntityIdCriterion("http://unknown-entity-id")));
+
+        verify(fallback, times(2)).resolve(any());
+    }
+
+    private static CriteriaSet hubSigningCredentials() {
+        return new CriteriaSet(
+            new EntityIdCriterion(HUB_ENTITY_ID),
+            new EntityRoleCriterion(SPSSODescriptor.DEFAULT_ELEMENT_NAME),
+            new UsageCriterion(UsageType.SIGNING)
+        );
+    }
+}
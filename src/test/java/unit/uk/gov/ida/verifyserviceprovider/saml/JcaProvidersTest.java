@@ -0,0 +1,78 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.gov.ida.verifyserviceprovider.configuration.CryptoProviderConfiguration;
+import uk.gov.ida.verifyserviceprovider.saml.JcaProviders;
+
+import java.security.Provider;
+import java.security.Security;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JcaProvidersTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @After
+    public void tearDown() {
+        JCEMapper.setProviderId(null);
+        Security.removeProvider(TestProvider.NAME);
+    }
+
+    @Test
+    public void shouldUseTheDefaultProvidersWhenNoneAreConfigured() {
+        JcaProviders.configure(new CryptoProviderConfiguration());
+
+        assertThat(JCEMapper.getProviderId()).isNull();
+    }
+
+    @Test
+    public void shouldRegisterAndSelectAProviderFromTheClasspath() {
+        JcaProviders.configure(new CryptoProviderConfiguration(singletonList(TestProvider.class.getName()), TestProvider.NAME, "SunJCE"));
+
+        assertThat(Security.getProvider(TestProvider.NAME)).isNotNull();
+        assertThat(JCEMapper.getProviderId()).isEqualTo(TestProvider.NAME);
+    }
+
+    @Test
+    public void shouldRejectAProviderThatIsNotRegistered() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("No JCA provider named NotAProvider is registered");
+
+        JcaProviders.configure(new CryptoProviderConfiguration(emptyList(), null, "NotAProvider"));
+    }
+
+    @Test
+    public void shouldRejectASignatureProviderThatCannotComputeDigests() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("JCA provider SunRsaSign does not provide MessageDigest SHA-256");
+
+        JcaProviders.configure(new CryptoProviderConfiguration(emptyList(), "SunRsaSign", null));
+    }
+
+    @Test
+    public void shouldRejectAProviderClassThatCannotBeCreated() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Could not create JCA provider com.example.NotAProvider");
+
+        JcaProviders.configure(new CryptoProviderConfiguration(singletonList("com.example.NotAProvider"), null, null));
+    }
+
+    public static class TestProvider extends Provider {
+
+        static final String NAME = "VspTestProvider";
+
+        public TestProvider() {
+            super(NAME, 1.0, "Advertises the services XML signatures need, without implementing them");
+            put("Signature.SHA256withRSA", "example.SHA256withRSA");
+            put("MessageDigest.SHA-256", "example.SHA256");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.x509.BasicX509Credential;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCriterion;
+import org.opensaml.xmlsec.keyinfo.impl.X509KeyInfoGeneratorFactory;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.saml.core.test.TestCredentialFactory;
+import uk.gov.ida.verifyserviceprovider.saml.KeyAffinityDecryptionCredentialResolver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.gov.ida.saml.core.test.TestCertificateStrings.HUB_TEST_PRIVATE_ENCRYPTION_KEY;
+import static uk.gov.ida.saml.core.test.TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT;
+import static uk.gov.ida.saml.core.test.TestCertificateStrings.TEST_RP_PRIVATE_ENCRYPTION_KEY;
+import static uk.gov.ida.saml.core.test.TestCertificateStrings.TEST_RP_PUBLIC_ENCRYPTION_CERT;
+
+public class KeyAffinityDecryptionCredentialResolverTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private BasicX509Credential primaryCredential;
+    private BasicX509Credential secondaryCredential;
+    private KeyAffinityDecryptionCredentialResolver resolver;
+
+    @Before
+    public void setUp() {
+        IdaSamlBootstrap.bootstrap();
+        primaryCredential = (BasicX509Credential) new TestCredentialFactory(TEST_RP_PUBLIC_ENCRYPTION_CERT, TEST_RP_PRIVATE_ENCRYPTION_KEY).getEncryptingCredential();
+        secondaryCredential = (BasicX509Credential) new TestCredentialFactory(HUB_TEST_PUBLIC_ENCRYPTION_CERT, HUB_TEST_PRIVATE_ENCRYPTION_KEY).getEncryptingCredential();
+
+        Map<String, Credential> credentials = new LinkedHashMap<>();
+        credentials.put("primary", primaryCredential);
+        credentials.put("secondary", secondaryCredential);
+        resolver = new KeyAffinityDecryptionCredentialResolver(credentials, metricRegistry, "decryption-key");
+    }
+
+    @Test
+    public void shouldOnlyReturnTheKeyIdentifiedByTheKeyInfo() throws Exception {
+        Iterable<Credential> credentials = resolver.resolve(new CriteriaSet(new KeyInfoCriterion(keyInfoFor(secondaryCredential))));
+
+        assertThat(credentials).containsExactly(secondaryCredential);
+        assertThat(metricRegistry.counter("decryption-key.secondary").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("decryption-key.primary").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReturnEveryKeyInOrderWhenThereIsNoKeyInfo() {
+        Iterable<Credential> credentials = resolver.resolve(new CriteriaSet());
+
+        assertThat(credentials).containsExactly(primaryCredential, secondaryCredential);
+        assertThat(metricRegistry.counter("decryption-key.unrouted").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReturnEveryKeyInOrderWhenTheKeyInfoIsForAnUnknownKey() throws Exception {
+        BasicX509Credential unknownCredential = (BasicX509Credential) new TestCredentialFactory(HUB_TEST_PUBLIC_ENCRYPTION_CERT, HUB_TEST_PRIVATE_ENCRYPTION_KEY).getEncryptingCredential();
+        Map<String, Credential> primaryOnly = new LinkedHashMap<>();
+        primaryOnly.put("primary", primaryCredential);
+        KeyAffinityDecryptionCredentialResolver primaryOnlyResolver = new KeyAffinityDecryptionCredentialResolver(primaryOnly, metricRegistry, "decryption-key");
+
+        Iterable<Credential> credentials = primaryOnlyResolver.resolve(new CriteriaSet(new KeyInfoCriterion(keyInfoFor(unknownCredential))));
+
+        assertThat(credentials).containsExactly(primaryCredential);
+        assertThat(metricRegistry.counter("decryption-key.unrouted").getCount()).isEqualTo(1);
+    }
+
+    private static KeyInfo keyInfoFor(Credential credential) throws Exception {
+        X509KeyInfoGeneratorFactory keyInfoGeneratorFactory = new X509KeyInfoGeneratorFactory();
+        keyInfoGeneratorFactory.setEmitEntityCertificate(true);
+        return keyInfoGeneratorFactory.newInstance().generate(credential);
+    }
+}
@@ -0,0 +1,68 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensaml.saml.metadata.resolver.RefreshableMetadataResolver;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import uk.gov.ida.verifyserviceprovider.saml.MetadataFreshnessMonitor;
+
+import java.util.Optional;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MetadataFreshnessMonitorTest {
+
+    private static final String HUB_ENTITY_ID = "http://hub-entity-id";
+
+    private final RefreshableMetadataResolver metadataResolver = mock(RefreshableMetadataResolver.class);
+    private final EntityDescriptor entityDescriptor = mock(EntityDescriptor.class);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private MetadataFreshnessMonitor monitor;
+
+    @Before
+    public void setUp() throws Exception {
+        when(metadataResolver.resolveSingle(any())).thenReturn(entityDescriptor);
+        monitor = new MetadataFreshnessMonitor(
+            singletonList(new MetadataFreshnessMonitor.Source("hub-metadata", HUB_ENTITY_ID, () -> metadataResolver)),
+            Optional.empty(),
+            metricRegistry
+        );
+    }
+
+    @Test
+    public void shouldPublishTheAgeOfTheLastRefresh() {
+        when(metadataResolver.getLastRefresh()).thenReturn(DateTime.now().minusMinutes(5));
+
+        monitor.update();
+
+        assertThat(gaugeValue("hub-metadata.last-refresh-age-seconds")).isBetween(299L, 301L);
+    }
+
+    @Test
+    public void shouldPublishTheTimeUntilTheMetadataExpires() {
+        when(entityDescriptor.getValidUntil()).thenReturn(DateTime.now().plusHours(1));
+
+        monitor.update();
+
+        assertThat(gaugeValue("hub-metadata.seconds-until-expiry")).isBetween(3598L, 3600L);
+    }
+
+    @Test
+    public void shouldPublishNothingForMetadataWithoutAnExpiry() {
+        monitor.update();
+
+        assertThat(gaugeValue("hub-metadata.seconds-until-expiry")).isNull();
+    }
+
+    private Long gaugeValue(String name) {
+        return (Long) ((Gauge<?>) metricRegistry.getGauges().get(name)).getValue();
+    }
+}
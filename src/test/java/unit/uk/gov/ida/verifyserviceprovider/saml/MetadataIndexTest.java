@@ -0,0 +1,102 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensaml.saml.metadata.IterableMetadataSource;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
+import org.opensaml.saml.saml2.metadata.KeyDescriptor;
+import org.opensaml.saml.saml2.metadata.RoleDescriptor;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import uk.gov.ida.shared.utils.datetime.DateTimeFreezer;
+import uk.gov.ida.verifyserviceprovider.saml.MetadataIndex;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class MetadataIndexTest {
+
+    private static final String ENTITY_ID = "http://hub-entity-id";
+
+    private final MetadataResolver metadataResolver = mock(MetadataResolver.class, withSettings().extraInterfaces(IterableMetadataSource.class));
+    private final KeyInfoCredentialResolver keyInfoCredentialResolver = mock(KeyInfoCredentialResolver.class);
+    private final Credential credential = mock(Credential.class);
+    private final EntityDescriptor entityDescriptor = mock(EntityDescriptor.class);
+    private final RoleDescriptor roleDescriptor = mock(SPSSODescriptor.class);
+
+    @Before
+    public void setUp() throws Exception {
+        KeyDescriptor keyDescriptor = mock(KeyDescriptor.class);
+        when(keyDescriptor.getKeyInfo()).thenReturn(mock(KeyInfo.class));
+        when(keyDescriptor.getUse()).thenReturn(UsageType.SIGNING);
+        when(keyInfoCredentialResolver.resolve(any())).thenReturn(singletonList(credential));
+        when(roleDescriptor.getElementQName()).thenReturn(SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+        when(roleDescriptor.getKeyDescriptors()).thenReturn(singletonList(keyDescriptor));
+        when(entityDescriptor.getEntityID()).thenReturn(ENTITY_ID);
+        when(entityDescriptor.getRoleDescriptors()).thenReturn(singletonList(roleDescriptor));
+        when(((IterableMetadataSource) metadataResolver).iterator()).thenAnswer(invocation -> singletonList(entityDescriptor).iterator());
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeFreezer.unfreezeTime();
+    }
+
+    @Test
+    public void shouldIndexTheCredentialsOfValidMetadata() throws Exception {
+        when(entityDescriptor.getValidUntil()).thenReturn(DateTime.now().plusHours(1));
+
+        MetadataIndex index = MetadataIndex.compile(metadataResolver, DateTime.now(), keyInfoCredentialResolver);
+
+        assertThat(index.getCredentials(ENTITY_ID, SPSSODescriptor.DEFAULT_ELEMENT_NAME, null, UsageType.SIGNING).get()).containsExactly(credential);
+    }
+
+    @Test
+    public void shouldLeaveOutEntitiesThatHadExpiredWhenCompiled() throws Exception {
+        when(entityDescriptor.getValidUntil()).thenReturn(DateTime.now().minusMinutes(1));
+
+        MetadataIndex index = MetadataIndex.compile(metadataResolver, DateTime.now(), keyInfoCredentialResolver);
+
+        assertThat(index.contains(ENTITY_ID)).isFalse();
+        assertThat(index.getCredentials(ENTITY_ID, SPSSODescriptor.DEFAULT_ELEMENT_NAME, null, UsageType.SIGNING)).isEmpty();
+    }
+
+    @Test
+    public void shouldLeaveOutRolesThatHadExpiredWhenCompiled() throws Exception {
+        when(roleDescriptor.getValidUntil()).thenReturn(DateTime.now().minusMinutes(1));
+
+        MetadataIndex index = MetadataIndex.compile(metadataResolver, DateTime.now(), keyInfoCredentialResolver);
+
+        assertThat(index.getCredentials(ENTITY_ID, SPSSODescriptor.DEFAULT_ELEMENT_NAME, null, UsageType.SIGNING)).isEmpty();
+    }
+
+    @Test
+    public void shouldAnswerNothingOnceTheIndexedMetadataHasExpired() throws Exception {
+        DateTime validUntil = DateTime.now().plusHours(1);
+        when(entityDescriptor.getValidUntil()).thenReturn(validUntil);
+        MetadataIndex index = MetadataIndex.compile(metadataResolver, DateTime.now(), keyInfoCredentialResolver);
+
+        DateTimeFreezer.freezeTime(validUntil.plusSeconds(1));
+
+        assertThat(index.getValidUntil()).isEqualTo(validUntil);
+        assertThat(index.getCredentials(ENTITY_ID, SPSSODescriptor.DEFAULT_ELEMENT_NAME, null, UsageType.SIGNING)).isEmpty();
+    }
+
+    @Test
+    public void shouldAnswerNothingForARoleTheEntityDoesNotHave() throws Exception {
+        MetadataIndex index = MetadataIndex.compile(metadataResolver, DateTime.now(), keyInfoCredentialResolver);
+
+        assertThat(index.getCredentials(ENTITY_ID, IDPSSODescriptor.DEFAULT_ELEMENT_NAME, null, UsageType.SIGNING)).isEmpty();
+    }
+}
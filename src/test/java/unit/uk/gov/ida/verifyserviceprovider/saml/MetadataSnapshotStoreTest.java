@@ -0,0 +1,48 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.gov.ida.verifyserviceprovider.saml.MetadataSnapshotStore;
+
+import java.io.File;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataSnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MetadataSnapshotStore snapshotStore;
+
+    @Before
+    public void setUp() {
+        snapshotStore = new MetadataSnapshotStore(temporaryFolder.getRoot().toPath().resolve("snapshots"));
+    }
+
+    @Test
+    public void shouldReadNothingForASourceWithoutASnapshot() throws Exception {
+        assertThat(snapshotStore.read("hub-metadata")).isEmpty();
+    }
+
+    @Test
+    public void shouldReadBackTheLatestSnapshotOfEachSource() throws Exception {
+        snapshotStore.write("hub-metadata", "first".getBytes(UTF_8));
+        snapshotStore.write("hub-metadata", "second".getBytes(UTF_8));
+        snapshotStore.write("msa-metadata", "msa".getBytes(UTF_8));
+
+        assertThat(snapshotStore.read("hub-metadata").get()).isEqualTo("second".getBytes(UTF_8));
+        assertThat(snapshotStore.read("msa-metadata").get()).isEqualTo("msa".getBytes(UTF_8));
+    }
+
+    @Test
+    public void shouldNotLeaveTemporaryFilesBehind() throws Exception {
+        snapshotStore.write("hub-metadata", "metadata".getBytes(UTF_8));
+
+        File[] files = new File(temporaryFolder.getRoot(), "snapshots").listFiles();
+        assertThat(files).extracting(File::getName).containsExactly("hub-metadata.xml");
+    }
+}
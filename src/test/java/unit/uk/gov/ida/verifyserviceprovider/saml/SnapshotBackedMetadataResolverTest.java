@@ -0,0 +1,127 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import com.codahale.metrics.MetricRegistry;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.saml.metadata.test.factories.metadata.MetadataFactory;
+import uk.gov.ida.verifyserviceprovider.saml.MetadataSnapshotStore;
+import uk.gov.ida.verifyserviceprovider.saml.SnapshotBackedMetadataResolver;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.ida.saml.core.test.TestEntityIds.HUB_ENTITY_ID;
+
+public class SnapshotBackedMetadataResolverTest {
+
+    private static final URI METADATA_URI = URI.create("http://hub-metadata");
+    private static final String SOURCE = "hub-metadata";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Timer refreshTimer = mock(Timer.class);
+    private final Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+    private final byte[] metadata = new MetadataFactory().defaultMetadata().getBytes(UTF_8);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private MetadataSnapshotStore snapshotStore;
+
+    @Before
+    public void setUp() {
+        IdaSamlBootstrap.bootstrap();
+        snapshotStore = new MetadataSnapshotStore(temporaryFolder.getRoot().toPath());
+    }
+
+    @Test
+    public void shouldServeTheSnapshotWhenTheMetadataHostIsUnavailable() throws Exception {
+        snapshotStore.write(SOURCE, metadata);
+        when(client.target(METADATA_URI).request().get()).thenThrow(new ProcessingException("unavailable"));
+
+        SnapshotBackedMetadataResolver metadataResolver = anInitialisedMetadataResolver();
+
+        assertThat(metadataResolver.resolveSingle(new CriteriaSet(new EntityIdCriterion(HUB_ENTITY_ID)))).isNotNull();
+        verify(refreshTimer).schedule(any(TimerTask.class), eq(0L));
+    }
+
+    @Test
+    public void shouldSnapshotMetadataFetchedFromTheNetwork() throws Exception {
+        Response response = anOkResponse();
+        when(client.target(METADATA_URI).request().get()).thenReturn(response);
+
+        SnapshotBackedMetadataResolver metadataResolver = anInitialisedMetadataResolver();
+
+        assertThat(metadataResolver.resolveSingle(new CriteriaSet(new EntityIdCriterion(HUB_ENTITY_ID)))).isNotNull();
+        assertThat(snapshotStore.read(SOURCE).get()).isEqualTo(metadata);
+        verify(refreshTimer, never()).schedule(any(TimerTask.class), eq(0L));
+    }
+
+    @Test
+    public void shouldSendAConditionalRequestAndKeepTheMetadataWhenItIsNotModified() throws Exception {
+        Response modified = anOkResponse();
+        when(modified.getHeaderString(HttpHeaders.ETAG)).thenReturn("\"v1\"");
+        Response notModified = mock(Response.class);
+        when(notModified.getStatus()).thenReturn(304);
+        Invocation.Builder request = client.target(METADATA_URI).request();
+        when(request.get()).thenReturn(modified, notModified);
+
+        SnapshotBackedMetadataResolver metadataResolver = anInitialisedMetadataResolver();
+        metadataResolver.refresh();
+
+        verify(request).header(HttpHeaders.IF_NONE_MATCH, "\"v1\"");
+        assertThat(metadataResolver.resolveSingle(new CriteriaSet(new EntityIdCriterion(HUB_ENTITY_ID)))).isNotNull();
+        assertThat(metricRegistry.counter("hub-metadata.refreshes.applied").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("hub-metadata.refreshes.skipped").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotProcessADocumentIdenticalToTheLastOneAccepted() throws Exception {
+        Response first = anOkResponse();
+        Response second = anOkResponse();
+        when(client.target(METADATA_URI).request().get()).thenReturn(first, second);
+
+        SnapshotBackedMetadataResolver metadataResolver = anInitialisedMetadataResolver();
+        metadataResolver.refresh();
+
+        verify(second, times(1)).readEntity(byte[].class);
+        assertThat(metricRegistry.counter("hub-metadata.refreshes.applied").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("hub-metadata.refreshes.skipped").getCount()).isEqualTo(1);
+    }
+
+    private Response anOkResponse() {
+        Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(200);
+        when(response.readEntity(byte[].class)).thenReturn(metadata);
+        return response;
+    }
+
+    private SnapshotBackedMetadataResolver anInitialisedMetadataResolver() throws Exception {
+        SnapshotBackedMetadataResolver metadataResolver = new SnapshotBackedMetadataResolver(refreshTimer, client, METADATA_URI, snapshotStore, SOURCE, metricRegistry);
+        metadataResolver.setId(SOURCE);
+        metadataResolver.setParserPool(XMLObjectProviderRegistrySupport.getParserPool());
+        metadataResolver.initialize();
+        return metadataResolver;
+    }
+}
@@ -0,0 +1,84 @@
+package unit.uk.gov.ida.verifyserviceprovider.saml;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.saml2.core.Response;
+import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
+import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
+import uk.gov.ida.verifyserviceprovider.factories.saml.ResponseFactory;
+import uk.gov.ida.verifyserviceprovider.saml.StreamingStringToOpenSamlObjectTransformer;
+
+import java.util.Base64;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.gov.ida.saml.core.test.builders.ResponseBuilder.aResponse;
+
+public class StreamingStringToOpenSamlObjectTransformerTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private StreamingStringToOpenSamlObjectTransformer<Response> stringToResponseTransformer = ResponseFactory.createStreamingStringToResponseTransformer();
+
+    @Before
+    public void bootStrapOpenSaml() {
+        IdaSamlBootstrap.bootstrap();
+    }
+
+    @Test
+    public void shouldParseBase64EncodedSamlResponse() throws Exception {
+        Response response = aResponse().withId("streamed-response-id").build();
+        String samlResponse = new XmlObjectToBase64EncodedStringTransformer<XMLObject>().apply(response);
+
+        Response parsedResponse = stringToResponseTransformer.apply(samlResponse);
+
+        assertThat(parsedResponse.getID()).isEqualTo("streamed-response-id");
+    }
+
+    @Test
+    public void shouldParseBase64EncodedSamlResponseWithLineBreaks() throws Exception {
+        Response response = aResponse().withId("streamed-response-id").build();
+        String samlResponse = new XmlObjectToBase64EncodedStringTransformer<XMLObject>().apply(response);
+        String samlResponseWithLineBreaks = Base64.getMimeEncoder().encodeToString(Base64.getDecoder().decode(samlResponse));
+
+        Response parsedResponse = stringToResponseTransformer.apply(samlResponseWithLineBreaks);
+
+        assertThat(parsedResponse.getID()).isEqualTo("streamed-response-id");
+    }
+
+    @Test
+    public void shouldNotAllowNullSamlResponse() {
+        expectedException.expect(SamlTransformationErrorException.class);
+        expectedException.expectMessage("SAML Validation Specification: Missing SAML message.");
+        stringToResponseTransformer.apply(null);
+    }
+
+    @Test
+    public void shouldNotAllowNotBase64EncodedSamlResponse() {
+        expectedException.expect(SamlTransformationErrorException.class);
+        expectedException.expectMessage("SAML Validation Specification: SAML is not base64 encoded in message body. start> not-encoded-string <end");
+        stringToResponseTransformer.apply("not-encoded-string");
+    }
+
+    @Test
+    public void shouldNotAllowTooLongSamlMessages() {
+        String longXml = "<a>" + String.join("", Collections.nCopies(50001, "a")) + "</a>";
+        String longBase64EncodedString = Base64.getEncoder().encodeToString(longXml.getBytes());
+        expectedException.expect(SamlResponseValidationException.class);
+        expectedException.expectMessage("SAML Response is too long.");
+        stringToResponseTransformer.apply(longBase64EncodedString);
+    }
+
+    @Test
+    public void shouldNotAllowBase64EncodedMessagesThatAreNotXml() {
+        String notXml = Base64.getEncoder().encodeToString("not xml".getBytes());
+        expectedException.expect(SamlTransformationErrorException.class);
+        stringToResponseTransformer.apply(notXml);
+    }
+}
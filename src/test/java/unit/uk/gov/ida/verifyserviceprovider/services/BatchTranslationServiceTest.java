@@ -0,0 +1,138 @@
+package unit.uk.gov.ida.verifyserviceprovider.services;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.ida.verifyserviceprovider.dto.BatchTranslationResult;
+import uk.gov.ida.verifyserviceprovider.dto.Scenario;
+import uk.gov.ida.verifyserviceprovider.dto.TranslateSamlResponseBody;
+import uk.gov.ida.verifyserviceprovider.dto.TranslatedResponseBody;
+import uk.gov.ida.verifyserviceprovider.exceptions.InvalidEntityIdException;
+import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
+import uk.gov.ida.verifyserviceprovider.services.BatchTranslationService;
+import uk.gov.ida.verifyserviceprovider.services.EntityIdService;
+import uk.gov.ida.verifyserviceprovider.services.ResponseService;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance.LEVEL_2;
+
+public class BatchTranslationServiceTest {
+
+    private static final String ENTITY_ID = "http://default-entity-id";
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    private final EntityIdService entityIdService = mock(EntityIdService.class);
+
+    @SuppressWarnings("unchecked")
+    private final ResponseService<TranslatedResponseBody> responseService = mock(ResponseService.class);
+
+    private BatchTranslationService<TranslatedResponseBody> batchTranslationService;
+
+    @Before
+    public void setUp() {
+        when(entityIdService.getEntityId(any(TranslateSamlResponseBody.class))).thenReturn(ENTITY_ID);
+        batchTranslationService = new BatchTranslationService<>(responseService, entityIdService, executorService);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldReturnAResultForEachResponseInOrder() {
+        TranslatedResponseBody first = new TranslatedResponseBody(Scenario.SUCCESS_MATCH, "pid-1", LEVEL_2, null);
+        TranslatedResponseBody second = new TranslatedResponseBody(Scenario.NO_MATCH, null, null, null);
+        when(responseService.convertTranslatedResponseBody("saml-1", "request-1", LEVEL_2, ENTITY_ID)).thenReturn(first);
+        when(responseService.convertTranslatedResponseBody("saml-2", "request-2", LEVEL_2, ENTITY_ID)).thenReturn(second);
+
+        List<BatchTranslationResult<TranslatedResponseBody>> results = batchTranslationService.translate(asList(
+            new TranslateSamlResponseBody("saml-1", "request-1", LEVEL_2, null),
+            new TranslateSamlResponseBody("saml-2", "request-2", LEVEL_2, null)
+        ));
+
+        assertThat(results).extracting(BatchTranslationResult::getRequestId).containsExactly("request-1", "request-2");
+        assertThat(results).extracting(BatchTranslationResult::getStatus).containsExactly(200, 200);
+        assertThat(results.get(0).getResponse()).contains(first);
+        assertThat(results.get(1).getResponse()).contains(second);
+    }
+
+    @Test
+    public void shouldReturnAnErrorForResponsesThatFailWithoutAffectingOthers() {
+        TranslatedResponseBody translated = new TranslatedResponseBody(Scenario.SUCCESS_MATCH, "pid-1", LEVEL_2, null);
+        when(responseService.convertTranslatedResponseBody("saml-1", "request-1", LEVEL_2, ENTITY_ID)).thenReturn(translated);
+        when(responseService.convertTranslatedResponseBody(eq("saml-2"), any(), any(), any())).thenThrow(new SamlResponseValidationException("Some error."));
+        when(responseService.convertTranslatedResponseBody(eq("saml-3"), any(), any(), any())).thenThrow(new IllegalStateException("Unexpected"));
+
+        List<BatchTranslationResult<TranslatedResponseBody>> results = batchTranslationService.translate(asList(
+            new TranslateSamlResponseBody("saml-1", "request-1", LEVEL_2, null),
+            new TranslateSamlResponseBody("saml-2", "request-2", LEVEL_2, null),
+            new TranslateSamlResponseBody("saml-3", "request-3", LEVEL_2, null)
+        ));
+
+        assertThat(results).extracting(BatchTranslationResult::getStatus).containsExactly(200, 400, 500);
+        assertThat(results.get(1).getError().get().getMessage()).isEqualTo("Some error.");
+        assertThat(results.get(2).getResponse()).isEmpty();
+    }
+
+    @Test
+    public void shouldKeepTheRequestIdOfAResponseWhoseTranslationFailsWithAnError() {
+        when(responseService.convertTranslatedResponseBody(eq("saml-1"), any(), any(), any())).thenThrow(new StackOverflowError());
+
+        List<BatchTranslationResult<TranslatedResponseBody>> results = batchTranslationService.translate(asList(
+            new TranslateSamlResponseBody("saml-1", "request-1", LEVEL_2, null)
+        ));
+
+        assertThat(results).extracting(BatchTranslationResult::getRequestId).containsExactly("request-1");
+        assertThat(results).extracting(BatchTranslationResult::getStatus).containsExactly(500);
+    }
+
+    @Test
+    public void shouldReturnABadRequestForResponsesWithAnInvalidEntityId() {
+        when(entityIdService.getEntityId(any(TranslateSamlResponseBody.class))).thenThrow(new InvalidEntityIdException("Provided entityId: bad is not listed in config"));
+
+        List<BatchTranslationResult<TranslatedResponseBody>> results = batchTranslationService.translate(asList(
+            new TranslateSamlResponseBody("saml-1", "request-1", LEVEL_2, "bad")
+        ));
+
+        assertThat(results).extracting(BatchTranslationResult::getStatus).containsExactly(400);
+        assertThat(results.get(0).getError().get().getMessage()).isEqualTo("Provided entityId: bad is not listed in config");
+    }
+
+    @Test
+    public void shouldRejectTheWholeBatchWhenTheExecutorHasNoRoomForIt() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        ExecutorService fullExecutorService = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+        when(responseService.convertTranslatedResponseBody(any(), any(), any(), any())).thenAnswer(invocation -> {
+            blocked.await();
+            return new TranslatedResponseBody(Scenario.NO_MATCH, null, null, null);
+        });
+        try {
+            BatchTranslationService<TranslatedResponseBody> batchTranslationService = new BatchTranslationService<>(responseService, entityIdService, fullExecutorService);
+
+            assertThatThrownBy(() -> batchTranslationService.translate(asList(
+                new TranslateSamlResponseBody("saml-1", "request-1", LEVEL_2, null),
+                new TranslateSamlResponseBody("saml-2", "request-2", LEVEL_2, null),
+                new TranslateSamlResponseBody("saml-3", "request-3", LEVEL_2, null)
+            ))).isInstanceOf(RejectedExecutionException.class);
+        } finally {
+            blocked.countDown();
+            fullExecutorService.shutdownNow();
+        }
+    }
+}
@@ -107,7 +107,8 @@ public class IdpAssertionServiceTest {
                 new AssertionClassifier(),
                 matchingDatasetToNonMatchingAttributesMapper,
                 levelOfAssuranceValidator,
-                userIdHashFactory);
+                userIdHashFactory,
+                Runnable::run);
         doNothing().when(subjectValidator).validate(any(), any());
         when(hubSignatureValidator.validate(any(), any())).thenReturn(mock(ValidatedAssertions.class));
 
@@ -212,6 +213,29 @@ public class IdpAssertionServiceTest {
         verify(levelOfAssuranceValidator, times(1)).validate(LEVEL_2, LEVEL_1);
     }
 
+    @Test
+    public void shouldThrowTheMatchingDatasetAssertionFailureWhenValidatingBothAssertions() {
+        Assertion authnAssertion = anAuthnStatementAssertion(IdaAuthnContext.LEVEL_2_AUTHN_CTX, "requestId").buildUnencrypted();
+        Assertion mdsAssertion = aMatchingDatasetAssertionWithSignature(emptyList(), anIdpSignature(), "requestId").buildUnencrypted();
+        mdsAssertion.setVersion(null);
+
+        exception.expect(SamlResponseValidationException.class);
+        exception.expectMessage("Assertion with id mds-assertion has missing Version.");
+        idpAssertionService.validate(authnAssertion, mdsAssertion, "requestId", LevelOfAssurance.LEVEL_1, LEVEL_2);
+    }
+
+    @Test
+    public void shouldThrowTheAuthnAssertionFailureFirstWhenBothAssertionsAreInvalid() {
+        Assertion authnAssertion = anAuthnStatementAssertion(IdaAuthnContext.LEVEL_2_AUTHN_CTX, "requestId").buildUnencrypted();
+        authnAssertion.setIssueInstant(null);
+        Assertion mdsAssertion = aMatchingDatasetAssertionWithSignature(emptyList(), anIdpSignature(), "requestId").buildUnencrypted();
+        mdsAssertion.setVersion(null);
+
+        exception.expect(SamlResponseValidationException.class);
+        exception.expectMessage("Assertion IssueInstant is missing.");
+        idpAssertionService.validate(authnAssertion, mdsAssertion, "requestId", LevelOfAssurance.LEVEL_1, LEVEL_2);
+    }
+
     @Test
     public void shouldCorrectlyExtractLevelOfAssurance() {
         Assertion authnAssertion = anAuthnStatementAssertion(IdaAuthnContext.LEVEL_2_AUTHN_CTX, "requestId").buildUnencrypted();
@@ -1,5 +1,6 @@
 package unit.uk.gov.ida.verifyserviceprovider.services;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
 import net.shibboleth.utilities.java.support.component.ComponentInitializationException;
 import org.joda.time.DateTime;
@@ -32,6 +33,7 @@ import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
 import uk.gov.ida.saml.metadata.factories.MetadataSignatureTrustEngineFactory;
 import uk.gov.ida.saml.security.SamlAssertionsSignatureValidator;
 import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
+import uk.gov.ida.verifyserviceprovider.cache.MappedReplayCache;
 import uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance;
 import uk.gov.ida.verifyserviceprovider.dto.TranslatedResponseBody;
 import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
@@ -51,6 +53,8 @@ import java.security.KeyException;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import static common.uk.gov.ida.verifyserviceprovider.utils.SamlResponseHelper.createVerifiedAttribute;
 import static java.util.Arrays.asList;
@@ -95,6 +99,12 @@ public class MatchingResponseServiceTest {
 
     private MetadataResolver hubMetadataResolver;
 
+    private MetricRegistry metricRegistry;
+
+    private ResponseService<TranslatedResponseBody> replayCheckingResponseService;
+
+    private ResponseService<TranslatedResponseBody> speculativeDecryptionResponseService;
+
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
     private TestCredentialFactory encryptionCredentialFactory;
@@ -111,7 +121,8 @@ public class MatchingResponseServiceTest {
 
         hubMetadataResolver = mock(MetadataResolver.class);
 
-        ResponseFactory responseFactory = new ResponseFactory(keyPairs);
+        metricRegistry = new MetricRegistry();
+        ResponseFactory responseFactory = ResponseFactory.builder(keyPairs).withMetricRegistry(metricRegistry).build();
         DateTimeComparator dateTimeComparator = new DateTimeComparator(Duration.standardSeconds(5));
         TimeRestrictionValidator timeRestrictionValidator = new TimeRestrictionValidator(dateTimeComparator);
 
@@ -130,6 +141,26 @@ public class MatchingResponseServiceTest {
             msaAssertionService,
             dateTimeComparator
         );
+
+        replayCheckingResponseService = ResponseFactory.builder(keyPairs)
+            .withMetricRegistry(metricRegistry)
+            .withReplayCache(MappedReplayCache.inMemory(100))
+            .build()
+            .createMatchingResponseService(
+            signatureTrustEngine,
+            msaAssertionService,
+            dateTimeComparator
+        );
+
+        speculativeDecryptionResponseService = ResponseFactory.builder(keyPairs)
+            .withMetricRegistry(metricRegistry)
+            .withSpeculativeDecryptionExecutor(Optional.of(ForkJoinPool.commonPool()))
+            .build()
+            .createMatchingResponseService(
+            signatureTrustEngine,
+            msaAssertionService,
+            dateTimeComparator
+        );
     }
 
     @Before
@@ -162,6 +193,52 @@ public class MatchingResponseServiceTest {
         ));
     }
 
+    @Test
+    public void shouldTimeEachStageOfTranslation() throws Exception {
+        EntityDescriptor entityDescriptor = createEntityDescriptorWithSigningCertificate(TEST_RP_PUBLIC_SIGNING_CERT);
+        when(hubMetadataResolver.resolve(any())).thenReturn(ImmutableList.of(entityDescriptor));
+
+        Status successStatus = aStatus().
+            withStatusCode(aStatusCode().withValue(StatusCode.SUCCESS).build())
+            .build();
+        Response response = signResponse(createNoAttributeResponseBuilder(successStatus), testRpSigningCredential);
+
+        responseService.convertTranslatedResponseBody(
+            responseToBase64StringTransformer.apply(response),
+            response.getInResponseTo(),
+            LevelOfAssurance.LEVEL_2,
+            VERIFY_SERVICE_PROVIDER_ENTITY_ID
+        );
+
+        assertThat(metricRegistry.getTimers().keySet()).contains(
+            "translate-response.stage.parse.entityId." + VERIFY_SERVICE_PROVIDER_ENTITY_ID,
+            "translate-response.stage.response-signature-validation.entityId." + VERIFY_SERVICE_PROVIDER_ENTITY_ID,
+            "translate-response.stage.instant-validation.entityId." + VERIFY_SERVICE_PROVIDER_ENTITY_ID,
+            "translate-response.stage.decryption.entityId." + VERIFY_SERVICE_PROVIDER_ENTITY_ID,
+            "translate-response.stage.assertion-translation.entityId." + VERIFY_SERVICE_PROVIDER_ENTITY_ID,
+            "translate-response.total.entityId." + VERIFY_SERVICE_PROVIDER_ENTITY_ID + ".scenario.SUCCESS_MATCH"
+        );
+    }
+
+    @Test
+    public void shouldRejectAResponseThatHasAlreadyBeenTranslated() throws Exception {
+        EntityDescriptor entityDescriptor = createEntityDescriptorWithSigningCertificate(TEST_RP_PUBLIC_SIGNING_CERT);
+        when(hubMetadataResolver.resolve(any())).thenReturn(ImmutableList.of(entityDescriptor));
+
+        Status successStatus = aStatus().
+            withStatusCode(aStatusCode().withValue(StatusCode.SUCCESS).build())
+            .build();
+        Response response = signResponse(createNoAttributeResponseBuilder(successStatus), testRpSigningCredential);
+        String samlResponse = responseToBase64StringTransformer.apply(response);
+
+        replayCheckingResponseService.convertTranslatedResponseBody(samlResponse, response.getInResponseTo(), LevelOfAssurance.LEVEL_2, VERIFY_SERVICE_PROVIDER_ENTITY_ID);
+
+        expectedException.expect(SamlResponseValidationException.class);
+        expectedException.expectMessage("Response " + response.getID() + " has already been processed");
+
+        replayCheckingResponseService.convertTranslatedResponseBody(samlResponse, response.getInResponseTo(), LevelOfAssurance.LEVEL_2, VERIFY_SERVICE_PROVIDER_ENTITY_ID);
+    }
+
     @Test
     public void shouldHandleAccountCreationSaml() throws Exception {
         EntityDescriptor entityDescriptor = createEntityDescriptorWithSigningCertificate(TEST_RP_PUBLIC_SIGNING_CERT);
@@ -370,6 +447,48 @@ public class MatchingResponseServiceTest {
         );
     }
 
+    @Test
+    public void shouldUseSpeculativelyDecryptedAssertionsOnceTheSignatureIsValid() throws Exception {
+        EntityDescriptor entityDescriptor = createEntityDescriptorWithSigningCertificate(TEST_RP_PUBLIC_SIGNING_CERT);
+        when(hubMetadataResolver.resolve(any())).thenReturn(ImmutableList.of(entityDescriptor));
+
+        Status successStatus = aStatus().
+            withStatusCode(aStatusCode().withValue(StatusCode.SUCCESS).build())
+            .build();
+        Response response = signResponse(createAttributeResponseBuilder(successStatus), testRpSigningCredential);
+
+        TranslatedResponseBody result = speculativeDecryptionResponseService.convertTranslatedResponseBody(
+            responseToBase64StringTransformer.apply(response),
+            response.getInResponseTo(),
+            LevelOfAssurance.LEVEL_2,
+            VERIFY_SERVICE_PROVIDER_ENTITY_ID
+        );
+
+        assertThat(result.getScenario()).isEqualTo(ACCOUNT_CREATION);
+        assertThat(result.getAttributes()).isNotNull();
+    }
+
+    @Test
+    public void shouldReportAnInvalidSignatureRatherThanSpeculativelyDecryptedAssertions() throws Exception {
+        expectedException.expect(SamlTransformationErrorException.class);
+        expectedException.expectMessage("SAML Validation Specification: Signature was not valid.");
+
+        Status successStatus = aStatus().
+            withStatusCode(aStatusCode().withValue(StatusCode.SUCCESS).build())
+            .build();
+        Response response = signResponse(createNoAttributeResponseBuilder(successStatus), testRpSigningCredential);
+        EntityDescriptor entityDescriptor = createEntityDescriptorWithSigningCertificate(TEST_PUBLIC_CERT);
+
+        when(hubMetadataResolver.resolve(any())).thenReturn(ImmutableList.of(entityDescriptor));
+
+        speculativeDecryptionResponseService.convertTranslatedResponseBody(
+            responseToBase64StringTransformer.apply(response),
+            response.getInResponseTo(),
+            LevelOfAssurance.LEVEL_2,
+            VERIFY_SERVICE_PROVIDER_ENTITY_ID
+        );
+    }
+
     @Test
     public void shouldFailWhenInResponseToDoesNotMatchRequestId() throws Exception {
         expectedException.expect(SamlResponseValidationException.class);
@@ -391,6 +510,24 @@ public class MatchingResponseServiceTest {
         );
     }
 
+    @Test
+    public void shouldRejectAResponseToAnotherRequestBeforeCheckingItsSignature() throws Exception {
+        expectedException.expect(SamlResponseValidationException.class);
+        expectedException.expectMessage("Expected InResponseTo to be some-incorrect-request-id, but was default-request-id");
+
+        Status successStatus = aStatus().
+            withStatusCode(aStatusCode().withValue(StatusCode.SUCCESS).build())
+            .build();
+        Response response = createNoAttributeResponseBuilder(successStatus).withoutSigning().build();
+
+        responseService.convertTranslatedResponseBody(
+            responseToBase64StringTransformer.apply(response),
+            "some-incorrect-request-id",
+            LevelOfAssurance.LEVEL_2,
+            VERIFY_SERVICE_PROVIDER_ENTITY_ID
+        );
+    }
+
     @Test
     public void shouldFailWhenIssueInstantIsTooOld() throws Exception {
         expectedException.expect(SamlResponseValidationException.class);
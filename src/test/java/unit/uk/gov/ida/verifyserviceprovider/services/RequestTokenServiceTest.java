@@ -0,0 +1,80 @@
+package unit.uk.gov.ida.verifyserviceprovider.services;
+
+import org.junit.Test;
+import uk.gov.ida.verifyserviceprovider.dto.TranslateSamlResponseBody;
+import uk.gov.ida.verifyserviceprovider.exceptions.InvalidRequestTokenException;
+import uk.gov.ida.verifyserviceprovider.services.RequestTokenService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.gov.ida.verifyserviceprovider.dto.LevelOfAssurance.LEVEL_2;
+
+public class RequestTokenServiceTest {
+
+    private static final String SECRET = "c2VjcmV0LXVzZWQtdG8tc2lnbi1yZXF1ZXN0LXRva2Vucy1pbi10ZXN0cw==";
+    private static final String ANOTHER_SECRET = "YW5vdGhlci1zZWNyZXQtdXNlZC10by1zaWduLXJlcXVlc3QtdG9rZW5z";
+    private static final String REQUEST_ID = "_some-request-id";
+    private static final String ENTITY_ID = "http://service-entity-id";
+
+    private final RequestTokenService requestTokenService = new RequestTokenService(SECRET);
+
+    @Test
+    public void shouldAcceptATokenIssuedByAnyServiceWithTheSameSecret() {
+        String requestToken = new RequestTokenService(SECRET).createToken(REQUEST_ID, ENTITY_ID);
+
+        requestTokenService.verify(aTranslateBody(REQUEST_ID, requestToken), ENTITY_ID);
+    }
+
+    @Test
+    public void shouldRejectATokenForAnotherRequestId() {
+        String requestToken = requestTokenService.createToken("_another-request-id", ENTITY_ID);
+
+        assertThatThrownBy(() -> requestTokenService.verify(aTranslateBody(REQUEST_ID, requestToken), ENTITY_ID))
+            .isInstanceOf(InvalidRequestTokenException.class)
+            .hasMessage("The requestToken does not match requestId: " + REQUEST_ID);
+    }
+
+    @Test
+    public void shouldRejectATokenForAnotherEntityId() {
+        String requestToken = requestTokenService.createToken(REQUEST_ID, "http://another-service-entity-id");
+
+        assertThatThrownBy(() -> requestTokenService.verify(aTranslateBody(REQUEST_ID, requestToken), ENTITY_ID))
+            .isInstanceOf(InvalidRequestTokenException.class);
+    }
+
+    @Test
+    public void shouldRejectATokenIssuedWithAnotherSecret() {
+        String requestToken = new RequestTokenService(ANOTHER_SECRET).createToken(REQUEST_ID, ENTITY_ID);
+
+        assertThatThrownBy(() -> requestTokenService.verify(aTranslateBody(REQUEST_ID, requestToken), ENTITY_ID))
+            .isInstanceOf(InvalidRequestTokenException.class);
+    }
+
+    @Test
+    public void shouldRejectAMissingOrMalformedToken() {
+        assertThatThrownBy(() -> requestTokenService.verify(aTranslateBody(REQUEST_ID, null), ENTITY_ID))
+            .isInstanceOf(InvalidRequestTokenException.class)
+            .hasMessage("No requestToken was provided for requestId: " + REQUEST_ID);
+        assertThatThrownBy(() -> requestTokenService.verify(aTranslateBody(REQUEST_ID, "not base64!"), ENTITY_ID))
+            .isInstanceOf(InvalidRequestTokenException.class);
+    }
+
+    @Test
+    public void shouldNotIssueOrRequireTokensWhenDisabled() {
+        RequestTokenService disabled = RequestTokenService.disabled();
+
+        assertThat(disabled.createToken(REQUEST_ID, ENTITY_ID)).isNull();
+        disabled.verify(aTranslateBody(REQUEST_ID, null), ENTITY_ID);
+    }
+
+    @Test
+    public void shouldRefuseASecretShorterThan32Bytes() {
+        assertThatThrownBy(() -> new RequestTokenService("c2hvcnQtc2VjcmV0"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("requestTokens.secret must be at least 32 bytes long");
+    }
+
+    private static TranslateSamlResponseBody aTranslateBody(String requestId, String requestToken) {
+        return new TranslateSamlResponseBody("some-saml-response", requestId, LEVEL_2, ENTITY_ID, requestToken);
+    }
+}
@@ -0,0 +1,82 @@
+package unit.uk.gov.ida.verifyserviceprovider.utils;
+
+import org.junit.Test;
+import uk.gov.ida.verifyserviceprovider.utils.Futures;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FuturesTest {
+
+    @Test
+    public void joinShouldRethrowTheExceptionTheFutureFailedWith() {
+        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("Failed");
+        });
+
+        assertThatThrownBy(() -> Futures.join(future))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Failed");
+    }
+
+    @Test
+    public void runAlongsideShouldRunTheTaskOnTheCallingThreadWhenTheExecutorRejectsIt() {
+        AtomicReference<Thread> taskThread = new AtomicReference<>();
+
+        Futures.runAlongside(() -> {}, () -> taskThread.set(Thread.currentThread()), task -> {
+            throw new RejectedExecutionException();
+        });
+
+        assertThat(taskThread.get()).isEqualTo(Thread.currentThread());
+    }
+
+    @Test
+    public void runAlongsideShouldRunTheTaskOnTheCallingThreadWhenTheExecutorHasNotStartedIt() {
+        AtomicReference<Runnable> queued = new AtomicReference<>();
+        AtomicReference<Thread> taskThread = new AtomicReference<>();
+
+        Futures.runAlongside(() -> {}, () -> taskThread.set(Thread.currentThread()), queued::set);
+        queued.get().run();
+
+        assertThat(taskThread.get()).isEqualTo(Thread.currentThread());
+    }
+
+    @Test
+    public void runAlongsideShouldTakeTheTaskOffTheQueueWhenTheCallingThreadRunsIt() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            Futures.runAlongside(() -> {}, () -> {}, executor);
+
+            assertThat(executor.getQueue()).isEmpty();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void runAlongsideShouldRethrowTheExceptionTheTaskFailedWithOnTheExecutor() {
+        assertThatThrownBy(() -> Futures.runAlongside(() -> {}, () -> {
+            throw new IllegalStateException("Failed");
+        }, Runnable::run))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Failed");
+    }
+}
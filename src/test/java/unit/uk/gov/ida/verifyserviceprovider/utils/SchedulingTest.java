@@ -0,0 +1,34 @@
+package unit.uk.gov.ida.verifyserviceprovider.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.gov.ida.verifyserviceprovider.utils.Scheduling.scheduleWithFixedDelayLoggingFailures;
+
+public class SchedulingTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void shouldKeepRunningATaskAfterItThrows() throws Exception {
+        CountDownLatch runs = new CountDownLatch(3);
+
+        scheduleWithFixedDelayLoggingFailures(scheduler, () -> {
+            runs.countDown();
+            throw new IllegalStateException("Failed");
+        }, "run the task", 0, 1, TimeUnit.MILLISECONDS);
+
+        assertThat(runs.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,80 @@
+package unit.uk.gov.ida.verifyserviceprovider.validators;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.core.Status;
+import org.opensaml.saml.saml2.core.StatusCode;
+import uk.gov.ida.verifyserviceprovider.exceptions.SamlResponseValidationException;
+import uk.gov.ida.verifyserviceprovider.utils.DateTimeComparator;
+import uk.gov.ida.verifyserviceprovider.validators.InstantValidator;
+import uk.gov.ida.verifyserviceprovider.validators.ResponsePrecheckValidator;
+
+import static org.joda.time.Duration.standardSeconds;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ResponsePrecheckValidatorTest {
+
+    private static final String REQUEST_ID = "some-request-id";
+
+    private ResponsePrecheckValidator validator;
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Before
+    public void setUp() {
+        validator = new ResponsePrecheckValidator(new InstantValidator(new DateTimeComparator(standardSeconds(5))));
+    }
+
+    @Test
+    public void shouldAcceptAResponseThatCouldSucceed() {
+        validator.validate(aResponse(REQUEST_ID, DateTime.now(), StatusCode.SUCCESS), REQUEST_ID);
+        validator.validate(aResponse(REQUEST_ID, DateTime.now(), StatusCode.RESPONDER), REQUEST_ID);
+    }
+
+    @Test
+    public void shouldRejectAResponseToAnotherRequest() {
+        expectedException.expect(SamlResponseValidationException.class);
+        expectedException.expectMessage("Expected InResponseTo to be some-request-id, but was another-request-id");
+
+        validator.validate(aResponse("another-request-id", DateTime.now(), StatusCode.SUCCESS), REQUEST_ID);
+    }
+
+    @Test
+    public void shouldRejectAResponseIssuedTooLongAgo() {
+        expectedException.expect(SamlResponseValidationException.class);
+        expectedException.expectMessage("Response IssueInstant is too far in the past ");
+
+        validator.validate(aResponse(REQUEST_ID, DateTime.now().minusMinutes(10), StatusCode.SUCCESS), REQUEST_ID);
+    }
+
+    @Test
+    public void shouldRejectAResponseWithAnUnknownStatus() {
+        expectedException.expect(SamlResponseValidationException.class);
+        expectedException.expectMessage("Unknown SAML status: UNKNOWN");
+
+        validator.validate(aResponse(REQUEST_ID, DateTime.now(), "UNKNOWN"), REQUEST_ID);
+    }
+
+    @Test
+    public void shouldAcceptAnythingWhenDisabled() {
+        ResponsePrecheckValidator.disabled().validate(aResponse("another-request-id", DateTime.now().minusMinutes(10), "UNKNOWN"), REQUEST_ID);
+    }
+
+    private static Response aResponse(String inResponseTo, DateTime issueInstant, String statusCodeValue) {
+        StatusCode statusCode = mock(StatusCode.class);
+        when(statusCode.getValue()).thenReturn(statusCodeValue);
+        Status status = mock(Status.class);
+        when(status.getStatusCode()).thenReturn(statusCode);
+        Response response = mock(Response.class);
+        when(response.getInResponseTo()).thenReturn(inResponseTo);
+        when(response.getIssueInstant()).thenReturn(issueInstant);
+        when(response.getStatus()).thenReturn(status);
+        return response;
+    }
+}